@@ -20,6 +20,7 @@
 package io.ballerina.messaging.broker.amqp;
 
 import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
+import io.ballerina.messaging.broker.amqp.codec.PrefetchWindow;
 import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.ballerina.messaging.broker.core.Consumer;
 import io.ballerina.messaging.broker.core.Message;
@@ -33,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * AMQP based message consumer.
@@ -45,28 +47,55 @@ public class AmqpConsumer extends Consumer {
 
     public static final String CONSUMER_TAG_FIELD_NAME = "consumerTag";
 
+    /**
+     * basic.consume argument used to set the consumer priority.
+     */
+    public static final ShortString PRIORITY_ARGUMENT = ShortString.parseString("x-priority");
+
     private final String queueName;
 
     private final ShortString consumerTag;
 
     private final boolean isExclusive;
 
+    private final int priority;
+
     private final ChannelHandlerContext context;
 
     private final AmqpChannel channel;
 
-    private ChannelFutureListener errorLogger;
+    /**
+     * Prefetch window of the consumer set through basic.qos without the global flag.
+     */
+    private final PrefetchWindow prefetchWindow = new PrefetchWindow();
+
+    /**
+     * True if messages were written after the last flush. Partitions of a queue can deliver to the same consumer
+     * concurrently.
+     */
+    private volatile boolean flushPending;
+
+    /**
+     * Messages are not delivered until basic.consume-ok is written. Deliveries are written on the I/O thread without
+     * going through the blocking task executor that writes basic.consume-ok. Therefore they could overtake it.
+     */
+    private volatile boolean started;
 
     private final List<TraceField> tracingProperties;
 
     public AmqpConsumer(ChannelHandlerContext ctx, AmqpChannel channel,
                         String queueName, ShortString consumerTag, boolean isExclusive) {
+        this(ctx, channel, queueName, consumerTag, isExclusive, DEFAULT_PRIORITY);
+    }
+
+    public AmqpConsumer(ChannelHandlerContext ctx, AmqpChannel channel,
+                        String queueName, ShortString consumerTag, boolean isExclusive, int priority) {
         this.queueName = queueName;
         this.consumerTag = consumerTag;
         this.isExclusive = isExclusive;
+        this.priority = priority;
         this.context = ctx;
         this.channel = channel;
-        this.errorLogger = new ErrorLogger(queueName);
         this.tracingProperties = new ArrayList<>(2);
         tracingProperties.add(new TraceField(AmqpChannel.CHANNEL_ID_FIELD_NAME, channel.getChannelId()));
         tracingProperties.add(new TraceField(CONSUMER_TAG_FIELD_NAME, consumerTag));
@@ -82,16 +111,37 @@ public class AmqpConsumer extends Consumer {
                          queueName);
         }
 
+        channel.addUnackedBytes(this, message.getMetadata().getContentLength());
         AmqpDeliverMessage deliverMessage = channel.createDeliverMessage(message, consumerTag, queueName);
 
-        ChannelFutureListener channelListener;
-        if (MessageTracer.isTraceEnabled()) {
-            channelListener = new TracingChannelFutureListener(message, this);
+        if (context.executor().inEventLoop()) {
+            // Delivered on the I/O thread of the connection. Write the frames directly instead of passing the
+            // message through the whole pipeline
+            ChannelFuture channelFuture = deliverMessage.write(context);
+            if (MessageTracer.isTraceEnabled()) {
+                channelFuture.addListener(new TracingChannelFutureListener(message, this));
+            }
+        } else if (MessageTracer.isTraceEnabled()) {
+            context.channel().write(deliverMessage).addListener(new TracingChannelFutureListener(message, this));
         } else {
-            channelListener = errorLogger;
+            // Write errors are reported to the pipeline through the void promise
+            context.channel().write(deliverMessage, context.channel().voidPromise());
+        }
+        // Set after the write so that a concurrent flush that sees the flag also flushes this message
+        flushPending = true;
+    }
+
+    @Override
+    protected void flush() {
+        if (!flushPending) {
+            return;
+        }
+        flushPending = false;
+        if (context.executor().inEventLoop()) {
+            context.flush();
+        } else {
+            context.channel().flush();
         }
-        ChannelFuture channelFuture = context.channel().writeAndFlush(deliverMessage);
-        channelFuture.addListener(channelListener);
     }
 
     @Override
@@ -108,24 +158,51 @@ public class AmqpConsumer extends Consumer {
         return isExclusive;
     }
 
+    /**
+     * The consumer is not ready while the outbound buffer of the connection is above the write buffer high
+     * watermark. Delivery resumes when the connection becomes writable again.
+     */
     @Override
     public boolean isReady() {
-        return channel.isReady();
+        return started && context.channel().isWritable() && channel.isReady(this);
     }
 
-    private static class ErrorLogger implements ChannelFutureListener {
-        private final String queueName;
-
-        private ErrorLogger(String queueName) {
-            this.queueName = queueName;
+    @Override
+    public int acquireCredit(int maxCount) {
+        if (!started || !context.channel().isWritable()) {
+            return 0;
         }
+        return channel.acquireCredit(this, maxCount);
+    }
 
-        @Override
-        public void operationComplete(ChannelFuture future) {
-            if (!future.isSuccess()) {
-                LOGGER.warn("Error while sending message for " + queueName, future.cause());
-            }
-        }
+    /**
+     * Start delivering messages to the consumer. Called after basic.consume-ok is written.
+     */
+    public void start() {
+        started = true;
+        notifyReady();
+    }
+
+    @Override
+    public void releaseCredit(int count) {
+        channel.releaseCredit(this, count);
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    @Override
+    public Executor getDeliveryExecutor() {
+        return context.executor();
+    }
+
+    /**
+     * Getter for prefetchWindow.
+     */
+    public PrefetchWindow getPrefetchWindow() {
+        return prefetchWindow;
     }
 
     @Override
@@ -20,17 +20,18 @@
 package io.ballerina.messaging.broker.amqp;
 
 import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
+import io.ballerina.messaging.broker.amqp.codec.BlockingTask;
 import io.ballerina.messaging.broker.amqp.codec.frames.BasicDeliver;
-import io.ballerina.messaging.broker.amqp.codec.frames.ContentFrame;
+import io.ballerina.messaging.broker.amqp.codec.frames.DeliveryEncoder;
 import io.ballerina.messaging.broker.amqp.codec.frames.HeaderFrame;
 import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.ballerina.messaging.broker.core.Broker;
 import io.ballerina.messaging.broker.core.BrokerException;
-import io.ballerina.messaging.broker.core.ContentChunk;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.Metadata;
 import io.ballerina.messaging.broker.core.util.MessageTracer;
 import io.ballerina.messaging.broker.core.util.TraceField;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,16 +66,29 @@ public class AmqpDeliverMessage {
         this.broker = broker;
     }
 
-    public void write(ChannelHandlerContext ctx) {
-        if (channel.isClosed()) {
-            try {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Requeueing message since subscriber is already closed. {}", message);
-                }
-                broker.requeue(queueName, message);
-            } catch (BrokerException e) {
-                LOGGER.error("Error while requeueing message {} for queue {}", message, queueName, e);
+    private void requeue() {
+        try {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Requeueing message since subscriber is already closed. {}", message);
             }
+            broker.requeue(queueName, message);
+        } catch (BrokerException e) {
+            LOGGER.error("Error while requeueing message {} for queue {}", message, queueName, e);
+        }
+    }
+
+    /**
+     * Write the delivery frames using the given context. The frames are not flushed.
+     *
+     * @param ctx context to write the frames on
+     * @return future of the last frame, or a succeeded future if the message was requeued or put on hold
+     */
+    public ChannelFuture write(ChannelHandlerContext ctx) {
+        ChannelFuture future = ctx.newSucceededFuture();
+        if (channel.isClosed()) {
+            // Frames are written on the I/O thread. Requeue on the blocking task executor since it takes the broker
+            // lock.
+            ctx.fireChannelRead((BlockingTask) this::requeue);
         } else if (!channel.isFlowEnabled()) {
             channel.hold(this);
             if (MessageTracer.isTraceEnabled()) {
@@ -101,14 +115,9 @@ public class AmqpDeliverMessage {
             HeaderFrame headerFrame = new HeaderFrame(channel.getChannelId(), 60, metadata.getContentLength());
             headerFrame.setProperties(metadata.getProperties());
             headerFrame.setHeaders(metadata.getHeaders());
-            ctx.write(basicDeliverFrame);
-            ctx.write(headerFrame);
-            for (ContentChunk chunk : message.getContentChunks()) {
-                ContentFrame contentFrame = new ContentFrame(channel.getChannelId(),
-                                                             chunk.getBytes().capacity(),
-                                                             chunk.getBytes());
-                ctx.write(contentFrame);
-            }
+            future = ctx.write(DeliveryEncoder.encode(ctx.alloc(), channel.getChannelId(), basicDeliverFrame,
+                                                      headerFrame, message.getContentChunks(),
+                                                      channel.getMaxFrameSize()));
 
             if (MessageTracer.isTraceEnabled()) {
                 MessageTracer.trace(message, SEND_MESSAGE,
@@ -121,5 +130,6 @@ public class AmqpDeliverMessage {
             }
 
         }
+        return future;
     }
 }
@@ -32,8 +32,18 @@ public class AmqpServerConfiguration {
 
     private String maxRedeliveryCount = "5";
 
+    private boolean useVirtualThreads = false;
+
+    private int maxFrameSize = 1048576;
+
+    private int maxChannels = 256;
+
     private FlowDetails channelFlow = new FlowDetails();
 
+    private MemoryFlowDetails memoryFlow = new MemoryFlowDetails();
+
+    private WriteBufferDetails writeBuffer = new WriteBufferDetails();
+
     private NonSecureServerDetails plain = new NonSecureServerDetails();
 
     private SslServerDetails ssl = new SslServerDetails();
@@ -60,6 +70,39 @@ public class AmqpServerConfiguration {
         this.maxRedeliveryCount = maxRedeliveryCount;
     }
 
+    /**
+     * Getter for useVirtualThreads.
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * Getter for maxFrameSize.
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Getter for maxChannels.
+     */
+    public int getMaxChannels() {
+        return maxChannels;
+    }
+
+    public void setMaxChannels(int maxChannels) {
+        this.maxChannels = maxChannels;
+    }
+
     /**
      * Getter for channelFlow.
      */
@@ -71,6 +114,28 @@ public class AmqpServerConfiguration {
         this.channelFlow = channelFlow;
     }
 
+    /**
+     * Getter for memoryFlow.
+     */
+    public MemoryFlowDetails getMemoryFlow() {
+        return memoryFlow;
+    }
+
+    public void setMemoryFlow(MemoryFlowDetails memoryFlow) {
+        this.memoryFlow = memoryFlow;
+    }
+
+    /**
+     * Getter for writeBuffer.
+     */
+    public WriteBufferDetails getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    public void setWriteBuffer(WriteBufferDetails writeBuffer) {
+        this.writeBuffer = writeBuffer;
+    }
+
     /**
      * Getter for tcp.
      */
@@ -124,6 +189,82 @@ public class AmqpServerConfiguration {
         }
     }
 
+    /**
+     * Contains information related to broker wide memory based flow controlling limits.
+     */
+    public static class MemoryFlowDetails {
+        private double highWatermark = 0.8;
+
+        private double lowWatermark = 0.6;
+
+        private long checkInterval = 1000;
+
+        /**
+         * Getter for highWatermark.
+         */
+        public double getHighWatermark() {
+            return highWatermark;
+        }
+
+        public void setHighWatermark(double highWatermark) {
+            this.highWatermark = highWatermark;
+        }
+
+        /**
+         * Getter for lowWatermark.
+         */
+        public double getLowWatermark() {
+            return lowWatermark;
+        }
+
+        public void setLowWatermark(double lowWatermark) {
+            this.lowWatermark = lowWatermark;
+        }
+
+        /**
+         * Getter for checkInterval.
+         */
+        public long getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(long checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+    }
+
+    /**
+     * Contains the outbound buffer limits of a connection. Messages are not delivered to the consumers of a
+     * connection while the outbound buffer is above the high watermark.
+     */
+    public static class WriteBufferDetails {
+        private int lowWatermark = 524288;
+
+        private int highWatermark = 1048576;
+
+        /**
+         * Getter for lowWatermark.
+         */
+        public int getLowWatermark() {
+            return lowWatermark;
+        }
+
+        public void setLowWatermark(int lowWatermark) {
+            this.lowWatermark = lowWatermark;
+        }
+
+        /**
+         * Getter for highWatermark.
+         */
+        public int getHighWatermark() {
+            return highWatermark;
+        }
+
+        public void setHighWatermark(int highWatermark) {
+            this.highWatermark = highWatermark;
+        }
+    }
+
     /**
      * Contains information required to setup the non secure server socket.
      */
@@ -22,6 +22,7 @@ package io.ballerina.messaging.broker.amqp;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategy;
 import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategyFactory;
+import io.ballerina.messaging.broker.amqp.codec.flow.MemoryMonitor;
 import io.ballerina.messaging.broker.amqp.codec.frames.AmqMethodRegistryFactory;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpDecoder;
@@ -34,6 +35,7 @@ import io.ballerina.messaging.broker.amqp.metrics.NullAmqpMetricManager;
 import io.ballerina.messaging.broker.auth.AuthManager;
 import io.ballerina.messaging.broker.common.BrokerConfigProvider;
 import io.ballerina.messaging.broker.common.StartupContext;
+import io.ballerina.messaging.broker.common.util.VirtualThreads;
 import io.ballerina.messaging.broker.coordination.BasicHaListener;
 import io.ballerina.messaging.broker.coordination.HaListener;
 import io.ballerina.messaging.broker.coordination.HaStrategy;
@@ -44,10 +46,13 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultEventExecutor;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,7 +76,8 @@ public class Server {
 
     /**
      * Number of threads used for blocking tasks like I/O operations. Putting a higher number of threads here is OK
-     * since these are I/O bound threads.
+     * since these are I/O bound threads. Each connection is pinned to one of the threads so that the blocking tasks
+     * of a connection are executed in order.
      * TODO This should be read from
      */
     private static final int BLOCKING_TASK_EXECUTOR_THREADS = 32;
@@ -82,6 +88,12 @@ public class Server {
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
     private EventExecutorGroup ioExecutors;
+
+    /**
+     * Creates a virtual thread for the blocking tasks of each connection. Null if blocking tasks are executed by the
+     * shared {@link #ioExecutors}.
+     */
+    private ThreadFactory connectionThreadFactory;
     private Channel plainServerChannel;
     private Channel sslServerChannel;
 
@@ -94,6 +106,11 @@ public class Server {
 
     private AmqMethodRegistryFactory amqMethodRegistryFactory;
 
+    /**
+     * Blocks publishing connections of the server when the broker is low on memory.
+     */
+    private final MemoryMonitor memoryMonitor;
+
     public Server(StartupContext startupContext) throws Exception {
         MetricService metrics = startupContext.getService(MetricService.class);
         if (Objects.nonNull(metrics)) {
@@ -112,9 +129,20 @@ public class Server {
         }
         bossGroup = new NioEventLoopGroup();
         workerGroup = new NioEventLoopGroup();
-        ThreadFactory blockingTaskThreadFactory = new ThreadFactoryBuilder().setNameFormat("NettyBlockingTaskThread-%d")
-                                                                            .build();
-        ioExecutors = new DefaultEventExecutorGroup(BLOCKING_TASK_EXECUTOR_THREADS, blockingTaskThreadFactory);
+        memoryMonitor = new MemoryMonitor(configuration.getMemoryFlow(), broker);
+        memoryMonitor.start(workerGroup.next(), configuration.getMemoryFlow().getCheckInterval());
+        if (configuration.isUseVirtualThreads() && VirtualThreads.isSupported()) {
+            LOGGER.info("Executing AMQP blocking tasks using a virtual thread per connection");
+            connectionThreadFactory = VirtualThreads.newThreadFactory("NettyBlockingTaskThread-");
+        } else {
+            if (configuration.isUseVirtualThreads()) {
+                LOGGER.warn("Virtual threads are not supported by the JVM. Executing AMQP blocking tasks using "
+                                    + "platform threads.");
+            }
+            ThreadFactory blockingTaskThreadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("NettyBlockingTaskThread-%d").build();
+            ioExecutors = new DefaultEventExecutorGroup(BLOCKING_TASK_EXECUTOR_THREADS, blockingTaskThreadFactory);
+        }
         haStrategy = startupContext.getService(HaStrategy.class);
         if (haStrategy == null) {
             serverHelper = new ServerHelper();
@@ -130,9 +158,35 @@ public class Server {
 
     private void shutdownExecutors() {
         LOGGER.info("Shutting down Netty Executors for AMQP transport");
+        memoryMonitor.stop();
         workerGroup.shutdownGracefully();
         bossGroup.shutdownGracefully();
-        ioExecutors.shutdownGracefully();
+        if (ioExecutors != null) {
+            ioExecutors.shutdownGracefully();
+        }
+    }
+
+    /**
+     * Get the executor for the blocking tasks of a connection. Connections share the {@link #ioExecutors} unless
+     * virtual threads are enabled. Then each connection gets an executor of its own, which is shut down when the
+     * connection is closed.
+     *
+     * @param socketChannel channel of the connection
+     * @return executor for the blocking tasks
+     */
+    private EventExecutorGroup getBlockingTaskExecutor(SocketChannel socketChannel) {
+        if (connectionThreadFactory == null) {
+            return ioExecutors;
+        }
+
+        EventExecutor connectionExecutor = new DefaultEventExecutor(connectionThreadFactory);
+        socketChannel.closeFuture().addListener(future -> connectionExecutor.shutdownGracefully());
+        return connectionExecutor;
+    }
+
+    private WriteBufferWaterMark createWriteBufferWaterMark() {
+        return new WriteBufferWaterMark(configuration.getWriteBuffer().getLowWatermark(),
+                                        configuration.getWriteBuffer().getHighWatermark());
     }
 
     private ChannelFuture bindToPlainSocket() throws InterruptedException {
@@ -142,9 +196,10 @@ public class Server {
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
                 .channel(NioServerSocketChannel.class)
-                .childHandler(new SocketChannelInitializer(ioExecutors))
+                .childHandler(new SocketChannelInitializer())
                 .option(ChannelOption.SO_BACKLOG, 128)
-                .childOption(ChannelOption.SO_KEEPALIVE, true);
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, createWriteBufferWaterMark());
 
         // Bind and start to accept incoming connections.
         ChannelFuture future = b.bind(hostname, port).sync();
@@ -161,9 +216,10 @@ public class Server {
         ServerBootstrap b = new ServerBootstrap();
         b.group(bossGroup, workerGroup)
          .channel(NioServerSocketChannel.class)
-         .childHandler(new SslSocketChannelInitializer(ioExecutors, new SslHandlerFactory(configuration)))
+         .childHandler(new SslSocketChannelInitializer(new SslHandlerFactory(configuration)))
          .option(ChannelOption.SO_BACKLOG, 128)
-         .childOption(ChannelOption.SO_KEEPALIVE, true);
+         .childOption(ChannelOption.SO_KEEPALIVE, true)
+         .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, createWriteBufferWaterMark());
 
         // Bind and start to accept incoming connections.
         ChannelFuture future = b.bind(hostname, port).sync();
@@ -212,40 +268,38 @@ public class Server {
 
     private class SocketChannelInitializer extends ChannelInitializer<SocketChannel> {
 
-        private final EventExecutorGroup ioExecutors;
-
-        public SocketChannelInitializer(EventExecutorGroup ioExecutors) {
-            this.ioExecutors = ioExecutors;
-        }
-
         protected void initChannel(SocketChannel socketChannel) {
+            EventExecutorGroup blockingTaskExecutor = getBlockingTaskExecutor(socketChannel);
             socketChannel.pipeline()
-                         .addLast(new AmqpDecoder(amqMethodRegistryFactory.newInstance()))
+                         .addLast(new AmqpDecoder(amqMethodRegistryFactory.getRegistry(),
+                                                 configuration.getMaxFrameSize()))
                          .addLast(new AmqpEncoder())
-                         .addLast(new AmqpConnectionHandler(configuration, broker, metricManager))
-                         .addLast(ioExecutors, new AmqpMessageWriter())
-                         .addLast(ioExecutors, new BlockingTaskHandler());
+                         .addLast(new AmqpConnectionHandler(configuration, broker, metricManager,
+                                                           memoryMonitor))
+                         .addLast(new AmqpMessageWriter())
+                         .addLast(blockingTaskExecutor, new BlockingTaskHandler());
         }
     }
 
     private class SslSocketChannelInitializer extends ChannelInitializer<SocketChannel> {
 
-        private final EventExecutorGroup ioExecutors;
         private final SslHandlerFactory sslHandlerFactory;
 
-        public SslSocketChannelInitializer(EventExecutorGroup ioExecutors, SslHandlerFactory sslHandlerFactory) {
-            this.ioExecutors = ioExecutors;
+        public SslSocketChannelInitializer(SslHandlerFactory sslHandlerFactory) {
             this.sslHandlerFactory = sslHandlerFactory;
         }
 
         protected void initChannel(SocketChannel socketChannel) {
+            EventExecutorGroup blockingTaskExecutor = getBlockingTaskExecutor(socketChannel);
             socketChannel.pipeline()
                          .addLast(sslHandlerFactory.create())
-                         .addLast(new AmqpDecoder(amqMethodRegistryFactory.newInstance()))
+                         .addLast(new AmqpDecoder(amqMethodRegistryFactory.getRegistry(),
+                                                 configuration.getMaxFrameSize()))
                          .addLast(new AmqpEncoder())
-                         .addLast(new AmqpConnectionHandler(configuration, broker, metricManager))
-                         .addLast(ioExecutors, new AmqpMessageWriter())
-                         .addLast(ioExecutors, new BlockingTaskHandler());
+                         .addLast(new AmqpConnectionHandler(configuration, broker, metricManager,
+                                                           memoryMonitor))
+                         .addLast(new AmqpMessageWriter())
+                         .addLast(blockingTaskExecutor, new BlockingTaskHandler());
         }
     }
 
@@ -24,6 +24,10 @@ import io.ballerina.messaging.broker.amqp.AmqpConsumer;
 import io.ballerina.messaging.broker.amqp.AmqpDeliverMessage;
 import io.ballerina.messaging.broker.amqp.AmqpServerConfiguration;
 import io.ballerina.messaging.broker.amqp.codec.flow.ChannelFlowManager;
+import io.ballerina.messaging.broker.amqp.codec.flow.MemoryMonitor;
+import io.ballerina.messaging.broker.amqp.codec.frames.BasicGetOk;
+import io.ballerina.messaging.broker.amqp.codec.frames.DeliveryEncoder;
+import io.ballerina.messaging.broker.amqp.codec.frames.HeaderFrame;
 import io.ballerina.messaging.broker.amqp.metrics.AmqpMetricManager;
 import io.ballerina.messaging.broker.common.ValidationException;
 import io.ballerina.messaging.broker.common.data.types.FieldTable;
@@ -32,6 +36,9 @@ import io.ballerina.messaging.broker.core.Broker;
 import io.ballerina.messaging.broker.core.BrokerException;
 import io.ballerina.messaging.broker.core.Consumer;
 import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.Metadata;
+import io.ballerina.messaging.broker.core.QueueArguments;
+import io.ballerina.messaging.broker.core.QueueHandler;
 import io.ballerina.messaging.broker.core.util.MessageTracer;
 import io.ballerina.messaging.broker.core.util.TraceField;
 import io.netty.channel.ChannelHandlerContext;
@@ -40,11 +47,11 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -64,12 +71,16 @@ public class AmqpChannel {
 
     private static final String UNKNOWN_REJECT = "Matching message for reject not found.";
 
+    private static final String GET_MESSAGE = "Sending message to client through basic.get-ok.";
+
     public static final String DELIVERY_TAG_FIELD_NAME = "deliveryTag";
 
     public static final String CHANNEL_ID_FIELD_NAME = "channelId";
 
     private static final String REQUEUE_FLAG_FIELD_NAME = "requeueFlag";
 
+    private static final String MULTIPLE_FLAG_FIELD_NAME = "multipleFlag";
+
     private final Broker broker;
 
     private final int channelId;
@@ -107,9 +118,9 @@ public class AmqpChannel {
     private AtomicBoolean flow = new AtomicBoolean(true);
 
     /**
-     * Indicate if unack count is within the prefetch limit.
+     * Prefetch window shared by all the consumers of the channel. Set by basic.qos with the global flag.
      */
-    private AtomicBoolean hasRoom = new AtomicBoolean(true);
+    private final PrefetchWindow prefetchWindow = new PrefetchWindow();
 
     /**
      * List of messages blocked due to flow being disabled.
@@ -119,22 +130,36 @@ public class AmqpChannel {
     private final TraceField traceChannelIdField;
 
     /**
-     * Max window size.
+     * Prefetch count applied to each consumer of the channel. Zero means unlimited.
+     */
+    private volatile int consumerPrefetchCount;
+
+    /**
+     * Prefetch size in octets applied to each consumer of the channel. Zero means unlimited.
      */
-    private int prefetchCount;
+    private volatile long consumerPrefetchSize;
+
+    /**
+     * Maximum frame size negotiated for the connection. Content sent to the client is split to fit.
+     */
+    private final long maxFrameSize;
 
     public AmqpChannel(AmqpServerConfiguration configuration,
                        Broker broker,
                        int channelId,
-                       AmqpMetricManager metricManager) {
+                       AmqpMetricManager metricManager,
+                       long maxFrameSize,
+                       MemoryMonitor memoryMonitor) {
         this.broker = broker;
+        this.maxFrameSize = maxFrameSize;
         this.channelId = channelId;
         this.metricManager = metricManager;
-        this.consumerMap = new HashMap<>();
+        this.consumerMap = new ConcurrentHashMap<>();
         this.messageAggregator = new InMemoryMessageAggregator(broker);
         this.flowManager = new ChannelFlowManager(this,
                                                   configuration.getChannelFlow().getLowLimit(),
-                                                  configuration.getChannelFlow().getHighLimit());
+                                                  configuration.getChannelFlow().getHighLimit(),
+                                                  memoryMonitor);
         this.maxRedeliveryCount = Integer.parseInt(configuration.getMaxRedeliveryCount());
         traceChannelIdField = new TraceField(CHANNEL_ID_FIELD_NAME, channelId);
     }
@@ -148,9 +173,9 @@ public class AmqpChannel {
         broker.deleteExchange(exchangeName, ifUnused);
     }
 
-    public void declareQueue(ShortString queue, boolean passive,
-                             boolean durable, boolean autoDelete) throws BrokerException, ValidationException {
-        broker.createQueue(queue.toString(), passive, durable, autoDelete);
+    public void declareQueue(ShortString queue, boolean passive, boolean durable, boolean autoDelete,
+                             FieldTable arguments) throws BrokerException, ValidationException {
+        broker.createQueue(queue.toString(), passive, durable, autoDelete, arguments);
     }
 
     public void bind(ShortString queue, ShortString exchange,
@@ -164,18 +189,32 @@ public class AmqpChannel {
     }
 
     public ShortString consume(ShortString queueName, ShortString consumerTag, boolean exclusive,
-                               ChannelHandlerContext ctx) throws BrokerException {
+                               FieldTable arguments, ChannelHandlerContext ctx) throws BrokerException {
         ShortString tag = consumerTag;
         if (tag.isEmpty()) {
             tag = ShortString.parseString("sgen" + getNextConsumerTag());
         }
-        AmqpConsumer amqpConsumer = new AmqpConsumer(ctx, this, queueName.toString(), tag, exclusive);
-        consumerMap.put(consumerTag, amqpConsumer);
+        int priority = QueueArguments.getInt(arguments, AmqpConsumer.PRIORITY_ARGUMENT, Consumer.DEFAULT_PRIORITY);
+        AmqpConsumer amqpConsumer = new AmqpConsumer(ctx, this, queueName.toString(), tag, exclusive, priority);
+        amqpConsumer.getPrefetchWindow().setLimits(consumerPrefetchCount, consumerPrefetchSize);
+        consumerMap.put(tag, amqpConsumer);
         broker.addConsumer(amqpConsumer);
         metricManager.incrementConsumerCount();
         return tag;
     }
 
+    /**
+     * Start delivering messages to a consumer created by {@link #consume}.
+     *
+     * @param consumerTag consumer tag
+     */
+    public void startConsumer(ShortString consumerTag) {
+        AmqpConsumer consumer = consumerMap.get(consumerTag);
+        if (consumer != null) {
+            consumer.start();
+        }
+    }
+
     public void close() {
         closed.set(true);
         for (Consumer consumer : consumerMap.values()) {
@@ -189,17 +228,30 @@ public class AmqpChannel {
     private void requeueUnackedMessages() {
         Collection<AckData> ackDataList = unackedMessageMap.clear();
 
-        for (AckData ackData : ackDataList) {
-            Message message = ackData.getMessage();
-            String queueName = ackData.getQueueName();
+        for (Map.Entry<String, List<Message>> entry : groupByQueue(ackDataList).entrySet()) {
+            String queueName = entry.getKey();
             try {
-                broker.requeue(queueName, message);
+                broker.requeue(queueName, entry.getValue());
             } catch (BrokerException e) {
-                LOGGER.error("Error while requeueing message {} for queue ()", message, queueName, e);
+                LOGGER.error("Error while requeueing {} messages for queue {}", entry.getValue().size(), queueName,
+                             e);
             }
         }
     }
 
+    /**
+     * Group unacknowledged messages by queue so that each queue is requeued with a single batch. Messages keep their
+     * delivery order within each queue.
+     */
+    private static Map<String, List<Message>> groupByQueue(Collection<AckData> ackDataList) {
+        Map<String, List<Message>> queueMessages = new LinkedHashMap<>();
+        for (AckData ackData : ackDataList) {
+            queueMessages.computeIfAbsent(ackData.getQueueName(), queueName -> new ArrayList<>())
+                         .add(ackData.getMessage());
+        }
+        return queueMessages;
+    }
+
     public void cancelConsumer(ShortString consumerTag) throws ChannelException {
         AmqpConsumer amqpConsumer = consumerMap.remove(consumerTag);
         if (amqpConsumer != null) {
@@ -223,7 +275,11 @@ public class AmqpChannel {
     }
 
     public void acknowledge(long deliveryTag, boolean multiple) throws BrokerException {
-        //TODO handle multiple
+        if (multiple) {
+            acknowledgeUpTo(deliveryTag);
+            return;
+        }
+
         AckData ackData = unackedMessageMap.remove(deliveryTag);
         if (MessageTracer.isTraceEnabled()) {
             String description = Objects.nonNull(ackData) ? ACKNOWLEDGE_RECEIVED : UNKNOWN_ACKNOWLEDGEMENT;
@@ -237,10 +293,48 @@ public class AmqpChannel {
         }
     }
 
+    /**
+     * Acknowledge all the outstanding messages up to and including the delivery tag. A delivery tag of zero
+     * acknowledges all the outstanding messages. Messages are acknowledged to the broker in one batch per queue.
+     *
+     * @param deliveryTag highest delivery tag acknowledged
+     * @throws BrokerException if the messages cannot be acknowledged
+     */
+    private void acknowledgeUpTo(long deliveryTag) throws BrokerException {
+        Collection<AckData> ackDataList = deliveryTag == 0 ? unackedMessageMap.clear()
+                : unackedMessageMap.removeUpTo(deliveryTag);
+        if (MessageTracer.isTraceEnabled()) {
+            String description = ackDataList.isEmpty() ? UNKNOWN_ACKNOWLEDGEMENT : ACKNOWLEDGE_RECEIVED;
+            MessageTracer.trace(description, traceChannelIdField, new TraceField(DELIVERY_TAG_FIELD_NAME, deliveryTag),
+                                new TraceField(MULTIPLE_FLAG_FIELD_NAME, true));
+        }
+        if (ackDataList.isEmpty()) {
+            LOGGER.warn("Could not find matching ack data for acking up to the delivery tag " + deliveryTag);
+            return;
+        }
+
+        Map<String, List<Message>> queueMessages = new LinkedHashMap<>();
+        for (AckData ackData : ackDataList) {
+            ackData.getMessage().release();
+            queueMessages.computeIfAbsent(ackData.getQueueName(), queueName -> new ArrayList<>())
+                         .add(ackData.getMessage());
+        }
+        for (Map.Entry<String, List<Message>> entry : queueMessages.entrySet()) {
+            broker.acknowledge(entry.getKey(), entry.getValue());
+        }
+    }
+
     public int getNextConsumerTag() {
         return consumerTagGenerator.incrementAndGet();
     }
 
+    /**
+     * Getter for maxFrameSize.
+     */
+    public long getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
     public long getNextDeliveryTag() {
         return deliveryTagGenerator.incrementAndGet();
     }
@@ -253,7 +347,56 @@ public class AmqpChannel {
     }
 
     public void recordMessageDelivery(long deliveryTag, AckData ackData) {
-        unackedMessageMap.put(deliveryTag, ackData);
+        unackedMessageMap.put(deliveryTag, ackData, true);
+    }
+
+    /**
+     * Serve a basic.get request. The message is dequeued directly from the queue without registering a consumer.
+     * Messages sent through basic.get-ok are not counted against the prefetch windows.
+     * Messages of a message group pinned to a consumer are left for that consumer.
+     *
+     * @param ctx       channel handler context
+     * @param queueName name of the queue
+     * @param noAck     true if the message is acknowledged as soon as it is sent
+     * @return true if a message was sent, false if the queue had no messages
+     * @throws BrokerException if the queue does not exist
+     */
+    public boolean get(ChannelHandlerContext ctx, String queueName, boolean noAck) throws BrokerException {
+        Message message = broker.get(queueName);
+        if (message == null) {
+            return false;
+        }
+
+        long deliveryTag = getNextDeliveryTag();
+        Message ackMessage = message.shallowCopy();
+        if (!noAck) {
+            unackedMessageMap.put(deliveryTag, new AckData(ackMessage, queueName, null), false);
+        }
+
+        QueueHandler queueHandler = broker.getQueue(queueName);
+        int messageCount = queueHandler != null ? queueHandler.size() : 0;
+        Metadata metadata = message.getMetadata();
+        BasicGetOk getOkFrame = new BasicGetOk(channelId,
+                                               deliveryTag,
+                                               message.isRedelivered(),
+                                               ShortString.parseString(metadata.getExchangeName()),
+                                               ShortString.parseString(metadata.getRoutingKey()),
+                                               messageCount);
+        HeaderFrame headerFrame = new HeaderFrame(channelId, 60, metadata.getContentLength());
+        headerFrame.setProperties(metadata.getProperties());
+        headerFrame.setHeaders(metadata.getHeaders());
+        ctx.writeAndFlush(DeliveryEncoder.encode(ctx.alloc(), channelId, getOkFrame, headerFrame,
+                                                 message.getContentChunks(), maxFrameSize));
+        if (MessageTracer.isTraceEnabled()) {
+            MessageTracer.trace(message, GET_MESSAGE, traceChannelIdField,
+                                new TraceField(DELIVERY_TAG_FIELD_NAME, deliveryTag));
+        }
+
+        if (noAck) {
+            ackMessage.release();
+            broker.acknowledge(queueName, ackMessage);
+        }
+        return true;
     }
 
     public void reject(long deliveryTag, boolean requeue) throws BrokerException {
@@ -271,6 +414,7 @@ public class AmqpChannel {
             if (requeue) {
                 setRedeliverAndRequeue(message, ackData.getQueueName());
             } else {
+                broker.releaseMessageGroup(ackData.getQueueName(), message);
                 message.release();
                 LOGGER.debug("Dropping message for delivery tag {}", deliveryTag);
             }
@@ -279,18 +423,88 @@ public class AmqpChannel {
         }
     }
 
+    /**
+     * Reject messages received through basic.nack. With the multiple flag all the outstanding messages up to and
+     * including the delivery tag are rejected. A delivery tag of zero rejects all the outstanding messages. Requeued
+     * messages are returned to each queue as one batch in delivery order.
+     *
+     * @param deliveryTag delivery tag of the message
+     * @param multiple    true if all the messages up to the delivery tag are rejected
+     * @param requeue     true if the messages should be requeued
+     * @throws BrokerException if the messages cannot be requeued
+     */
+    public void nack(long deliveryTag, boolean multiple, boolean requeue) throws BrokerException {
+        if (!multiple) {
+            reject(deliveryTag, requeue);
+            return;
+        }
+
+        Collection<AckData> ackDataList = deliveryTag == 0 ? unackedMessageMap.clear()
+                : unackedMessageMap.removeUpTo(deliveryTag);
+        if (MessageTracer.isTraceEnabled()) {
+            String description = ackDataList.isEmpty() ? UNKNOWN_REJECT : REJECT_RECEIVED;
+            MessageTracer.trace(description, traceChannelIdField,
+                                new TraceField(DELIVERY_TAG_FIELD_NAME, deliveryTag),
+                                new TraceField(MULTIPLE_FLAG_FIELD_NAME, true),
+                                new TraceField(REQUEUE_FLAG_FIELD_NAME, requeue));
+        }
+        if (ackDataList.isEmpty()) {
+            LOGGER.warn("Could not find matching ack data for rejecting up to the delivery tag " + deliveryTag);
+            return;
+        }
+
+        for (int i = 0; i < ackDataList.size(); i++) {
+            metricManager.markReject();
+        }
+        if (!requeue) {
+            for (AckData ackData : ackDataList) {
+                broker.releaseMessageGroup(ackData.getQueueName(), ackData.getMessage());
+                ackData.getMessage().release();
+            }
+            LOGGER.debug("Dropping {} messages up to delivery tag {}", ackDataList.size(), deliveryTag);
+            return;
+        }
+
+        Map<String, List<Message>> queueMessages = new LinkedHashMap<>();
+        List<AckData> deadLetters = new ArrayList<>(0);
+        for (AckData ackData : ackDataList) {
+            Message message = ackData.getMessage();
+            if (setRedeliver(message)) {
+                queueMessages.computeIfAbsent(ackData.getQueueName(), queueName -> new ArrayList<>()).add(message);
+            } else {
+                deadLetters.add(ackData);
+            }
+        }
+        for (Map.Entry<String, List<Message>> entry : queueMessages.entrySet()) {
+            broker.requeue(entry.getKey(), entry.getValue());
+        }
+        for (AckData ackData : deadLetters) {
+            broker.moveToDlc(ackData.getQueueName(), ackData.getMessage());
+        }
+    }
+
     private void setRedeliverAndRequeue(Message message, String queueName) throws BrokerException {
+        if (setRedeliver(message)) {
+            broker.requeue(queueName, message);
+        } else {
+            broker.moveToDlc(queueName, message);
+        }
+    }
+
+    /**
+     * Mark a message as redelivered.
+     *
+     * @param message rejected message
+     * @return true if the message can be redelivered, false if it exceeded the max redelivery count
+     */
+    private boolean setRedeliver(Message message) {
         int redeliveryCount = message.setRedeliver();
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Redelivery count is {} for message {}",
                          redeliveryCount,
                          message.getInternalId());
         }
-        if (redeliveryCount <= maxRedeliveryCount) {
-            broker.requeue(queueName, message);
-        } else {
-            broker.moveToDlc(queueName, message);
-        }
+        return redeliveryCount <= maxRedeliveryCount;
     }
 
     /**
@@ -304,13 +518,28 @@ public class AmqpChannel {
 
     public void requeueAll() throws BrokerException {
         Collection<AckData> entries = unackedMessageMap.clear();
-        for (AckData ackData : entries) {
-            broker.requeue(ackData.getQueueName(), ackData.getMessage());
+        for (Map.Entry<String, List<Message>> entry : groupByQueue(entries).entrySet()) {
+            broker.requeue(entry.getKey(), entry.getValue());
         }
     }
 
     public void setFlow(boolean active) {
-        flow.set(active);
+        if (!flow.getAndSet(active) && active) {
+            notifyConsumersReady();
+        }
+    }
+
+    /**
+     * Resume delivery to the consumers of the channel after the channel or the connection became ready again.
+     */
+    public void notifyConsumersReady() {
+        if (isReady()) {
+            for (AmqpConsumer consumer : consumerMap.values()) {
+                if (consumer.getPrefetchWindow().hasCredit()) {
+                    consumer.notifyReady();
+                }
+            }
+        }
     }
 
     /**
@@ -319,7 +548,78 @@ public class AmqpChannel {
      * @return true if messages can be delivered through the channel, false otherwise
      */
     public boolean isReady() {
-        return flow.get() && hasRoom.get() && !closed.get();
+        return flow.get() && !closed.get() && prefetchWindow.hasCredit();
+    }
+
+    /**
+     * Check whether messages can be delivered to a consumer of the channel.
+     *
+     * @param consumer consumer of the channel
+     * @return true if both the channel and the consumer prefetch windows have credit
+     */
+    public boolean isReady(AmqpConsumer consumer) {
+        return isReady() && consumer.getPrefetchWindow().hasCredit();
+    }
+
+    /**
+     * Acquire credit from the consumer and the channel prefetch windows to dispatch messages to a consumer of the
+     * channel. Without any prefetch limit a single message is granted at a time so that messages are distributed
+     * among consumers one by one.
+     *
+     * @param consumer consumer of the channel
+     * @param maxCount maximum number of messages the caller intends to dispatch
+     * @return number of messages that can be dispatched
+     */
+    public int acquireCredit(AmqpConsumer consumer, int maxCount) {
+        if (!flow.get() || closed.get() || maxCount <= 0) {
+            return 0;
+        }
+
+        PrefetchWindow consumerWindow = consumer.getPrefetchWindow();
+        int requested = consumerWindow.isLimited() || prefetchWindow.isLimited() ? maxCount : 1;
+        int granted = consumerWindow.acquire(requested);
+        if (granted == 0) {
+            return 0;
+        }
+
+        int channelGranted = prefetchWindow.acquire(granted);
+        if (channelGranted < granted) {
+            consumerWindow.release(granted - channelGranted, 0);
+        }
+        return channelGranted;
+    }
+
+    /**
+     * Return credit that was not used for dispatching messages.
+     *
+     * @param consumer consumer the credit was acquired for
+     * @param count    number of messages
+     */
+    public void releaseCredit(AmqpConsumer consumer, int count) {
+        releaseCredit(consumer, count, 0);
+    }
+
+    /**
+     * Account the content size of a message dispatched to a consumer of the channel against the prefetch windows.
+     *
+     * @param consumer consumer of the channel
+     * @param bytes    content size of the message
+     */
+    public void addUnackedBytes(AmqpConsumer consumer, long bytes) {
+        consumer.getPrefetchWindow().addBytes(bytes);
+        prefetchWindow.addBytes(bytes);
+    }
+
+    /**
+     * Return credit to the prefetch windows. Consumers are notified if a window was exhausted before.
+     */
+    private void releaseCredit(AmqpConsumer consumer, int count, long bytes) {
+        boolean consumerReopened = Objects.nonNull(consumer) && consumer.getPrefetchWindow().release(count, bytes);
+        if (prefetchWindow.release(count, bytes)) {
+            notifyConsumersReady();
+        } else if (consumerReopened && isReady()) {
+            consumer.notifyReady();
+        }
     }
 
     /**
@@ -347,17 +647,41 @@ public class AmqpChannel {
     }
 
     public void hold(AmqpDeliverMessage deliverMessage) {
-        deliveryPendingMessages.add(deliverMessage);
+        synchronized (deliveryPendingMessages) {
+            deliveryPendingMessages.add(deliverMessage);
+        }
     }
 
     public List<AmqpDeliverMessage> getPendingMessages() {
-        List<AmqpDeliverMessage> pendingMessages = new ArrayList<>(deliveryPendingMessages);
-        deliveryPendingMessages.clear();
-        return pendingMessages;
+        synchronized (deliveryPendingMessages) {
+            List<AmqpDeliverMessage> pendingMessages = new ArrayList<>(deliveryPendingMessages);
+            deliveryPendingMessages.clear();
+            return pendingMessages;
+        }
     }
 
-    public void setPrefetchCount(int prefetchCount) {
-        this.prefetchCount = prefetchCount;
+    /**
+     * Set the prefetch limits requested through basic.qos. Limits without the global flag apply to each consumer
+     * of the channel separately. Limits with the global flag are shared by all the consumers of the channel.
+     *
+     * @param prefetchCount max number of unacknowledged messages. Zero means unlimited
+     * @param prefetchSize  max number of unacknowledged content bytes. Zero means unlimited
+     * @param global        true if the limits are shared by all the consumers of the channel
+     */
+    public void setPrefetch(int prefetchCount, long prefetchSize, boolean global) {
+        if (global) {
+            if (prefetchWindow.setLimits(prefetchCount, prefetchSize)) {
+                notifyConsumersReady();
+            }
+        } else {
+            consumerPrefetchCount = prefetchCount;
+            consumerPrefetchSize = prefetchSize;
+            for (AmqpConsumer consumer : consumerMap.values()) {
+                if (consumer.getPrefetchWindow().setLimits(prefetchCount, prefetchSize) && isReady(consumer)) {
+                    consumer.notifyReady();
+                }
+            }
+        }
     }
 
     public AmqpDeliverMessage createDeliverMessage(Message message, ShortString consumerTag, String queueName) {
@@ -365,35 +689,113 @@ public class AmqpChannel {
     }
 
     /**
-     * Data-structure to handle unacknowledge messages. This class will update the has room variable depending on the
-     * number of messages in the unackedMessageMap.
+     * Data-structure to handle unacknowledge messages. Messages are indexed by delivery tag in a
+     * {@link DeliveryTagRing}. This class returns credit to the prefetch windows when messages are removed.
+     * Deliveries can be recorded on the I/O thread of the connection while acknowledgements are processed by the
+     * blocking task executor. Therefore access to the ring is synchronized. Credit is returned outside the lock since
+     * it can resume delivery.
      */
     private class UnackedMessageMap {
-        private Map<Long, AckData> unackedMessageMap = new LinkedHashMap<>();
+        private final DeliveryTagRing<UnackedMessage> unackedMessages = new DeliveryTagRing<>();
 
         AckData remove(long deliveryTag) {
-            AckData ackData = unackedMessageMap.remove(deliveryTag);
-
-            if (!hasRoom.get() && unackedMessageMap.size() < prefetchCount) {
-                hasRoom.set(true);
+            UnackedMessage unackedMessage;
+            synchronized (unackedMessages) {
+                unackedMessage = unackedMessages.remove(deliveryTag);
             }
-
-            return ackData;
+            if (unackedMessage == null) {
+                return null;
+            }
+            if (unackedMessage.holdsCredit) {
+                releaseCredit(unackedMessage.consumer, 1, unackedMessage.size);
+            }
+            return unackedMessage.ackData;
         }
 
-        void put(long deliveryTag, AckData ackData) {
-            unackedMessageMap.put(deliveryTag, ackData);
+        /**
+         * Record an unacknowledged message.
+         *
+         * @param deliveryTag delivery tag of the message
+         * @param ackData     ack data of the message
+         * @param holdsCredit true if the message was delivered with credit from the prefetch windows
+         */
+        void put(long deliveryTag, AckData ackData, boolean holdsCredit) {
+            AmqpConsumer consumer = holdsCredit ? consumerMap.get(ackData.getConsumerTag()) : null;
+            long size = ackData.getMessage().getMetadata().getContentLength();
+            synchronized (unackedMessages) {
+                unackedMessages.put(deliveryTag, new UnackedMessage(ackData, consumer, size, holdsCredit));
+            }
+        }
 
-            if (hasRoom.get() && unackedMessageMap.size() >= prefetchCount) {
-                hasRoom.set(false);
+        Collection<AckData> removeUpTo(long deliveryTag) {
+            List<UnackedMessage> removed;
+            synchronized (unackedMessages) {
+                removed = unackedMessages.removeUpTo(deliveryTag);
             }
+            return release(removed);
         }
 
         Collection<AckData> clear() {
-            Collection<AckData> entries = new ArrayList<>(unackedMessageMap.values());
-            unackedMessageMap.clear();
-            hasRoom.set(true);
+            List<UnackedMessage> removed;
+            synchronized (unackedMessages) {
+                removed = unackedMessages.removeAll();
+            }
+            return release(removed);
+        }
+
+        /**
+         * Return the credit held by the removed messages. Credit of consecutive messages of the same consumer is
+         * returned together.
+         */
+        private Collection<AckData> release(List<UnackedMessage> removed) {
+            Collection<AckData> entries = new ArrayList<>(removed.size());
+            AmqpConsumer consumer = null;
+            int count = 0;
+            long bytes = 0;
+            for (UnackedMessage unackedMessage : removed) {
+                entries.add(unackedMessage.ackData);
+                if (!unackedMessage.holdsCredit) {
+                    continue;
+                }
+                if (count > 0 && unackedMessage.consumer != consumer) {
+                    releaseCredit(consumer, count, bytes);
+                    count = 0;
+                    bytes = 0;
+                }
+                consumer = unackedMessage.consumer;
+                count++;
+                bytes += unackedMessage.size;
+            }
+            if (count > 0) {
+                releaseCredit(consumer, count, bytes);
+            }
             return entries;
         }
     }
+
+    /**
+     * Unacknowledged message with the prefetch credit it holds.
+     */
+    private static class UnackedMessage {
+        private final AckData ackData;
+
+        /**
+         * Consumer the message was delivered to. Null if the consumer was cancelled before the delivery.
+         */
+        private final AmqpConsumer consumer;
+
+        private final long size;
+
+        /**
+         * False for messages sent through basic.get-ok, which do not take credit from the prefetch windows.
+         */
+        private final boolean holdsCredit;
+
+        UnackedMessage(AckData ackData, AmqpConsumer consumer, long size, boolean holdsCredit) {
+            this.ackData = ackData;
+            this.consumer = consumer;
+            this.size = size;
+            this.holdsCredit = holdsCredit;
+        }
+    }
 }
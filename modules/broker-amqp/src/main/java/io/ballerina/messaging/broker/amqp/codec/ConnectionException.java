@@ -24,6 +24,7 @@ package io.ballerina.messaging.broker.amqp.codec;
  * on the connection and require its closing.
  */
 public class ConnectionException extends Exception {
+    public static final int FRAME_ERROR = 501;
     public static final int CHANNEL_ERROR = 504;
     public static final int NOT_ALLOWED = 530;
     public static final int INTERNAL_ERROR = 541;
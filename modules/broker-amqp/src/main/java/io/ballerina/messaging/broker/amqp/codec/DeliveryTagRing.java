@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package io.ballerina.messaging.broker.amqp.codec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer of (delivery tag, value) entries kept in delivery tag order. Delivery tags of a channel increase
+ * monotonically. Therefore new entries are appended at the tail, acknowledgements mostly remove entries from the
+ * head and a tag is located with a binary search without hashing or boxing the tag. The ring is sized by the number
+ * of outstanding entries, not by the span of the outstanding tags. It grows when it is full and shrinks once most of
+ * it is unused.
+ * <p>
+ * An entry removed from the middle of the ring only has its value cleared. Such entries are dropped once they reach
+ * either end of the ring or when the ring is resized.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> type of the stored values
+ */
+final class DeliveryTagRing<T> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] tags = new long[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Array index of the entry with the lowest tag.
+     */
+    private int head;
+
+    /**
+     * Number of entries in the ring including removed entries that are not yet dropped.
+     */
+    private int count;
+
+    /**
+     * Number of entries with a value.
+     */
+    private int size;
+
+    /**
+     * Store a value for a delivery tag.
+     *
+     * @param tag   delivery tag
+     * @param value value to store
+     */
+    void put(long tag, T value) {
+        if (count == 0 || tag > tagAt(count - 1)) {
+            ensureCapacity();
+            setEntry(count, tag, value);
+            count++;
+            size++;
+            return;
+        }
+
+        int position = search(tag);
+        if (position < count && tagAt(position) == tag) {
+            if (valueAt(position) == null) {
+                size++;
+            }
+            values[index(position)] = value;
+            return;
+        }
+
+        // Tags recorded out of order are rare. Shift the entries after the position to make room.
+        ensureCapacity();
+        for (int i = count; i > position; i--) {
+            setEntry(i, tagAt(i - 1), valueAt(i - 1));
+        }
+        setEntry(position, tag, value);
+        count++;
+        size++;
+    }
+
+    /**
+     * Remove the value of a delivery tag.
+     *
+     * @param tag delivery tag
+     * @return removed value or null if the tag is not outstanding
+     */
+    T remove(long tag) {
+        int position = search(tag);
+        if (position == count || tagAt(position) != tag) {
+            return null;
+        }
+
+        T value = valueAt(position);
+        if (value != null) {
+            values[index(position)] = null;
+            size--;
+            trim();
+        }
+        return value;
+    }
+
+    /**
+     * Remove the values of all the delivery tags up to and including the given tag.
+     *
+     * @param tag highest delivery tag to remove
+     * @return removed values in delivery tag order
+     */
+    List<T> removeUpTo(long tag) {
+        int end = search(tag);
+        if (end < count && tagAt(end) == tag) {
+            end++;
+        }
+
+        List<T> removed = new ArrayList<>(Math.min(end, size));
+        for (int position = 0; position < end; position++) {
+            T value = valueAt(position);
+            if (value != null) {
+                removed.add(value);
+                values[index(position)] = null;
+            }
+        }
+        head = index(end);
+        count -= end;
+        size -= removed.size();
+        trim();
+        return removed;
+    }
+
+    /**
+     * Remove all the values.
+     *
+     * @return removed values in delivery tag order
+     */
+    List<T> removeAll() {
+        if (size == 0) {
+            return new ArrayList<>(0);
+        }
+        return removeUpTo(tagAt(count - 1));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of entries the ring can hold without growing.
+     */
+    int capacity() {
+        return tags.length;
+    }
+
+    /**
+     * Drop removed entries at either end of the ring and shrink the ring if most of it is unused.
+     */
+    private void trim() {
+        while (count > 0 && valueAt(0) == null) {
+            head = index(1);
+            count--;
+        }
+        while (count > 0 && valueAt(count - 1) == null) {
+            count--;
+        }
+        if (count == 0) {
+            head = 0;
+        }
+
+        int capacity = tags.length;
+        while (capacity > INITIAL_CAPACITY && size < capacity / 4) {
+            capacity /= 2;
+        }
+        if (capacity < tags.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Make room for one more entry. Removed entries are dropped first and the ring only grows if at least half of
+     * it holds values.
+     */
+    private void ensureCapacity() {
+        if (count < tags.length) {
+            return;
+        }
+        resize(size > tags.length / 2 ? tags.length * 2 : tags.length);
+    }
+
+    /**
+     * Copy the entries with a value to new arrays of the given capacity.
+     */
+    private void resize(int capacity) {
+        long[] resizedTags = new long[capacity];
+        Object[] resizedValues = new Object[capacity];
+        int resizedCount = 0;
+        for (int position = 0; position < count; position++) {
+            Object value = valueAt(position);
+            if (value != null) {
+                resizedTags[resizedCount] = tagAt(position);
+                resizedValues[resizedCount] = value;
+                resizedCount++;
+            }
+        }
+        tags = resizedTags;
+        values = resizedValues;
+        head = 0;
+        count = resizedCount;
+    }
+
+    /**
+     * Find the position of the first entry with a tag that is not lower than the given tag.
+     *
+     * @return position of the entry or the number of entries if all tags are lower
+     */
+    private int search(long tag) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tagAt(middle) < tag) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void setEntry(int position, long tag, Object value) {
+        int index = index(position);
+        tags[index] = tag;
+        values[index] = value;
+    }
+
+    private long tagAt(int position) {
+        return tags[index(position)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueAt(int position) {
+        return (T) values[index(position)];
+    }
+
+    /**
+     * Array index of a position relative to the head of the ring.
+     */
+    private int index(int position) {
+        return (head + position) & (tags.length - 1);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prefetch window set through basic.qos. Keeps the number of messages and the number of content bytes delivered
+ * through the window that are not yet acknowledged. A limit of zero means unlimited.
+ * <p>
+ * The message count is taken when credit is acquired. Content size is only known once a message is dispatched.
+ * Therefore the byte limit is a soft limit. Credit is granted one message at a time while the unacknowledged bytes
+ * are below the limit. A message larger than the window is still delivered when the window is empty.
+ */
+public final class PrefetchWindow {
+
+    private volatile int messageLimit;
+
+    private volatile long byteLimit;
+
+    private final AtomicInteger unackedMessages = new AtomicInteger(0);
+
+    private final AtomicLong unackedBytes = new AtomicLong(0);
+
+    /**
+     * Set the window limits.
+     *
+     * @param messageLimit max number of unacknowledged messages
+     * @param byteLimit    max number of unacknowledged content bytes
+     * @return true if the window became wider in any dimension
+     */
+    boolean setLimits(int messageLimit, long byteLimit) {
+        boolean widened = isWider(this.messageLimit, messageLimit) || isWider(this.byteLimit, byteLimit);
+        this.messageLimit = messageLimit;
+        this.byteLimit = byteLimit;
+        return widened;
+    }
+
+    private static boolean isWider(long previousLimit, long limit) {
+        return previousLimit != 0 && (limit == 0 || limit > previousLimit);
+    }
+
+    boolean isLimited() {
+        return messageLimit != 0 || byteLimit != 0;
+    }
+
+    boolean hasCredit() {
+        return hasCredit(unackedMessages.get(), unackedBytes.get());
+    }
+
+    private boolean hasCredit(int messages, long bytes) {
+        int maxMessages = messageLimit;
+        long maxBytes = byteLimit;
+        return (maxMessages == 0 || messages < maxMessages) && (maxBytes == 0 || bytes < maxBytes);
+    }
+
+    /**
+     * Take credit for up to the given number of messages.
+     *
+     * @param maxCount max number of messages
+     * @return number of messages granted
+     */
+    int acquire(int maxCount) {
+        int requested = maxCount;
+        long maxBytes = byteLimit;
+        if (maxBytes != 0) {
+            if (unackedBytes.get() >= maxBytes) {
+                return 0;
+            }
+            requested = Math.min(requested, 1);
+        }
+
+        while (true) {
+            int maxMessages = messageLimit;
+            int unacked = unackedMessages.get();
+            int granted = maxMessages == 0 ? requested : Math.min(maxMessages - unacked, requested);
+            if (granted <= 0) {
+                return 0;
+            }
+            if (unackedMessages.compareAndSet(unacked, unacked + granted)) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Account the content size of a message dispatched with acquired credit.
+     *
+     * @param bytes content size of the message
+     */
+    void addBytes(long bytes) {
+        unackedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Return credit to the window.
+     *
+     * @param count number of messages
+     * @param bytes content size of the messages
+     * @return true if this call brought the window below one of its limits and the window has credit now
+     */
+    boolean release(int count, long bytes) {
+        int messages = unackedMessages.addAndGet(-count);
+        long unackedSize = bytes == 0 ? unackedBytes.get() : unackedBytes.addAndGet(-bytes);
+        int maxMessages = messageLimit;
+        long maxBytes = byteLimit;
+        boolean crossed = (maxMessages != 0 && messages < maxMessages && messages + count >= maxMessages)
+                || (maxBytes != 0 && unackedSize < maxBytes && unackedSize + bytes >= maxBytes);
+        return crossed && hasCredit();
+    }
+}
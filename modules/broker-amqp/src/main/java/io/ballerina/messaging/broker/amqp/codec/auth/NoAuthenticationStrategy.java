@@ -18,7 +18,6 @@
  */
 package io.ballerina.messaging.broker.amqp.codec.auth;
 
-import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionTune;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
 import io.ballerina.messaging.broker.common.data.types.LongString;
 import io.ballerina.messaging.broker.common.data.types.ShortString;
@@ -33,6 +32,6 @@ public class NoAuthenticationStrategy implements AuthenticationStrategy {
     @Override
     public void handle(int channel, ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler,
                        ShortString mechanism, LongString response) throws BrokerException {
-        ctx.writeAndFlush(new ConnectionTune(256, 65535, 0));
+        ctx.writeAndFlush(connectionHandler.createConnectionTune());
     }
 }
@@ -19,7 +19,6 @@
 package io.ballerina.messaging.broker.amqp.codec.auth;
 
 import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionSecure;
-import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionTune;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
 import io.ballerina.messaging.broker.auth.AuthManager;
 import io.ballerina.messaging.broker.common.data.types.LongString;
@@ -53,7 +52,7 @@ public class SaslAuthenticationStrategy implements AuthenticationStrategy {
                     .createSaslServer(connectionHandler.getConfiguration().getHostName(), mechanism.toString());
             byte[] challenge = saslServer.evaluateResponse(response.getBytes());
             if (saslServer.isComplete()) {
-                ctx.writeAndFlush(new ConnectionTune(256, 65535, 0));
+                ctx.writeAndFlush(connectionHandler.createConnectionTune());
             } else {
                 ctx.channel().attr(AttributeKey.valueOf(SASL_SERVER_ATTRIBUTE)).set(saslServer);
                 ctx.writeAndFlush(new ConnectionSecure(channel, LongString.parse(challenge)));
@@ -27,7 +27,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * ChannelFlowManager is responsible for managing flow rate of publishers. The flow should be disabled and enabled
- * depending on the server load.
+ * depending on the server load. Flow is disabled when the in flight messages of the channel exceed the high limit or
+ * when the {@link MemoryMonitor} blocks publishing and the channel has published messages.
  */
 public class ChannelFlowManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChannelFlowManager.class);
@@ -36,29 +37,80 @@ public class ChannelFlowManager {
     private final int lowLimit;
     private int messagesInFlight = 0;
     private boolean inflowEnabled = true;
+    private boolean publishing = false;
     private final AmqpChannel channel;
+    private final MemoryMonitor memoryMonitor;
 
     public ChannelFlowManager(AmqpChannel channel, int lowLimit, int highLimit) {
+        this(channel, lowLimit, highLimit, null);
+    }
+
+    public ChannelFlowManager(AmqpChannel channel, int lowLimit, int highLimit, MemoryMonitor memoryMonitor) {
         this.channel = channel;
         this.lowLimit = lowLimit;
         this.highLimit = highLimit;
+        this.memoryMonitor = memoryMonitor;
     }
 
     public void notifyMessageAddition(ChannelHandlerContext ctx) {
         messagesInFlight++;
-        if (messagesInFlight > highLimit && inflowEnabled) {
-            inflowEnabled = false;
-            ctx.writeAndFlush(new ChannelFlow(channel.getChannelId(), false));
-            LOGGER.info("Inflow disabled for channel {}-{}", channel.getChannelId(), ctx.channel().remoteAddress());
+        publishing = true;
+        if (inflowEnabled && shouldDisableInflow()) {
+            disableInflow(ctx);
         }
     }
 
     public void notifyMessageRemoval(ChannelHandlerContext ctx) {
-        messagesInFlight--;
-        if (messagesInFlight < lowLimit && !inflowEnabled) {
-            inflowEnabled = true;
-            ctx.writeAndFlush(new ChannelFlow(channel.getChannelId(), true));
-            LOGGER.info("Inflow enabled for channel {}-{}", channel.getChannelId(), ctx.channel().remoteAddress());
+        notifyMessageRemoval(ctx, 1);
+    }
+
+    /**
+     * Notify the removal of a batch of messages with a single flow update.
+     *
+     * @param ctx   channel handler context
+     * @param count number of messages removed
+     */
+    public void notifyMessageRemoval(ChannelHandlerContext ctx, int count) {
+        messagesInFlight -= count;
+        if (!inflowEnabled && shouldEnableInflow()) {
+            enableInflow(ctx);
         }
     }
+
+    /**
+     * Re-evaluate the flow after the memory state of the broker changed.
+     *
+     * @param ctx channel handler context
+     */
+    public void notifyMemoryStateChange(ChannelHandlerContext ctx) {
+        if (inflowEnabled && shouldDisableInflow()) {
+            disableInflow(ctx);
+        } else if (!inflowEnabled && shouldEnableInflow()) {
+            enableInflow(ctx);
+        }
+    }
+
+    private boolean shouldDisableInflow() {
+        return messagesInFlight > highLimit || (publishing && isMemoryBlocked());
+    }
+
+    private boolean shouldEnableInflow() {
+        return messagesInFlight < lowLimit && !isMemoryBlocked();
+    }
+
+    private boolean isMemoryBlocked() {
+        return memoryMonitor != null && memoryMonitor.isBlocked();
+    }
+
+    private void disableInflow(ChannelHandlerContext ctx) {
+        inflowEnabled = false;
+        ctx.writeAndFlush(new ChannelFlow(channel.getChannelId(), false));
+        LOGGER.info("Inflow disabled for channel {}-{}", channel.getChannelId(), ctx.channel().remoteAddress());
+    }
+
+    private void enableInflow(ChannelHandlerContext ctx) {
+        inflowEnabled = true;
+        ctx.writeAndFlush(new ChannelFlow(channel.getChannelId(), true));
+        LOGGER.info("Inflow enabled for channel {}-{}", channel.getChannelId(), ctx.channel().remoteAddress());
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.flow;
+
+import io.ballerina.messaging.broker.amqp.AmqpServerConfiguration;
+import io.ballerina.messaging.broker.core.Broker;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Broker wide monitor of the resources consumed by incoming messages. Publishing is blocked when the usage of heap,
+ * direct memory or message store backlog reaches the high watermark and unblocked when the usage of all of them
+ * drops below the low watermark. Each usage is a fraction of the respective limit.
+ * <p>
+ * Heap usage is taken from the usage of heap memory pools after the last garbage collection so that garbage which
+ * is yet to be collected does not block publishers.
+ */
+public class MemoryMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMonitor.class);
+
+    private final double highWatermark;
+
+    private final double lowWatermark;
+
+    private final List<DoubleSupplier> usageSources;
+
+    private final Set<Listener> listeners = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean blocked = false;
+
+    private ScheduledFuture<?> checkFuture;
+
+    public MemoryMonitor(AmqpServerConfiguration.MemoryFlowDetails configuration, Broker broker) {
+        this(configuration.getLowWatermark(), configuration.getHighWatermark(),
+             Arrays.asList(MemoryMonitor::getHeapUsage, MemoryMonitor::getDirectMemoryUsage,
+                           broker::getStoreBacklog));
+    }
+
+    MemoryMonitor(double lowWatermark, double highWatermark, List<DoubleSupplier> usageSources) {
+        if (lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Memory low watermark " + lowWatermark
+                                                       + " is greater than the high watermark " + highWatermark);
+        }
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.usageSources = usageSources;
+    }
+
+    /**
+     * Start checking the memory usage periodically.
+     *
+     * @param executor       executor used to schedule the checks
+     * @param intervalMillis interval between two checks in milliseconds
+     */
+    public void start(ScheduledExecutorService executor, long intervalMillis) {
+        checkFuture = executor.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis,
+                                                      TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (Objects.nonNull(checkFuture)) {
+            checkFuture.cancel(false);
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Check whether publishing is blocked due to memory usage.
+     *
+     * @return true if publishing is blocked
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    /**
+     * Update the blocked state using the current usage and notify the listeners if the state changed.
+     */
+    void check() {
+        double usage = getUsage();
+        if (!blocked && usage >= highWatermark) {
+            blocked = true;
+            LOGGER.warn("Memory usage {} reached the high watermark {}. Blocking publishers.", usage, highWatermark);
+            notifyListeners();
+        } else if (blocked && usage < lowWatermark) {
+            blocked = false;
+            LOGGER.info("Memory usage {} dropped below the low watermark {}. Unblocking publishers.", usage,
+                        lowWatermark);
+            notifyListeners();
+        }
+    }
+
+    private double getUsage() {
+        double usage = 0;
+        for (DoubleSupplier usageSource : usageSources) {
+            try {
+                usage = Math.max(usage, usageSource.getAsDouble());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while reading memory usage", e);
+            }
+        }
+        return usage;
+    }
+
+    private void notifyListeners() {
+        boolean currentState = blocked;
+        for (Listener listener : listeners) {
+            listener.onBlockedStateChange(currentState);
+        }
+    }
+
+    private static double getHeapUsage() {
+        long used = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                MemoryUsage usage = memoryPool.getCollectionUsage();
+                used += Objects.nonNull(usage) ? usage.getUsed() : memoryPool.getUsage().getUsed();
+            }
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Direct memory allocated by the pooled Netty allocator does not always go through the JDK buffer pool. Hence
+     * the larger of the two is taken as the direct memory usage.
+     */
+    private static double getDirectMemoryUsage() {
+        long used = 0;
+        for (PoolArenaMetric arena : PooledByteBufAllocator.DEFAULT.metric().directArenas()) {
+            used += arena.numActiveBytes();
+        }
+        for (BufferPoolMXBean bufferPool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(bufferPool.getName())) {
+                used = Math.max(used, bufferPool.getMemoryUsed());
+            }
+        }
+        return (double) used / PlatformDependent.maxDirectMemory();
+    }
+
+    /**
+     * Listener notified when publishing is blocked or unblocked. Listeners are notified from the monitor thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onBlockedStateChange(boolean blocked);
+    }
+}
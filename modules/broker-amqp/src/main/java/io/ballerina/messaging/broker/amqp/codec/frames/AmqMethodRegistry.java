@@ -24,91 +24,98 @@ import io.ballerina.messaging.broker.amqp.codec.AmqFrameDecodingException;
 import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategy;
 
 /**
- * Keep factory classes for different class IDs and method IDs.
+ * Keep factory classes for different class IDs and method IDs. Factories are kept in a flat table indexed by the class
+ * ID and the method ID so that a factory is found with a single array access for each method frame.
  */
 public class AmqMethodRegistry {
-    public AmqMethodBodyFactory[][] factories = new AmqMethodBodyFactory[101][];
+
+    /**
+     * Highest class ID known to the registry.
+     */
+    private static final int MAX_CLASS_ID = 100;
+
+    /**
+     * Method IDs of AMQP 0-9-1 are below 128. Therefore the method ID takes the lower 7 bits of the table index.
+     */
+    private static final int METHOD_ID_BITS = 7;
+
+    private static final int MAX_METHOD_ID = (1 << METHOD_ID_BITS) - 1;
+
+    private final AmqMethodBodyFactory[] factories = new AmqMethodBodyFactory[(MAX_CLASS_ID + 1) << METHOD_ID_BITS];
 
     public AmqMethodRegistry(AuthenticationStrategy authenticationStrategy) {
-        factories[10] = new AmqMethodBodyFactory[52];
-        factories[10][11] = ConnectionStartOk.getFactory(authenticationStrategy);
-        factories[10][20] = ConnectionSecure.getFactory();
-        factories[10][21] = ConnectionSecureOk.getFactory();
-        factories[10][31] = ConnectionTuneOk.getFactory();
-        factories[10][40] = ConnectionOpen.getFactory();
-        factories[10][41] = ConnectionOpenOk.getFactory();
-        factories[10][50] = ConnectionClose.getFactory();
-        factories[10][51] = ConnectionCloseOk.getFactory();
+        register(10, 11, ConnectionStartOk.getFactory(authenticationStrategy));
+        register(10, 20, ConnectionSecure.getFactory());
+        register(10, 21, ConnectionSecureOk.getFactory());
+        register(10, 31, ConnectionTuneOk.getFactory());
+        register(10, 40, ConnectionOpen.getFactory());
+        register(10, 41, ConnectionOpenOk.getFactory());
+        register(10, 50, ConnectionClose.getFactory());
+        register(10, 51, ConnectionCloseOk.getFactory());
+        register(10, 60, ConnectionBlocked.getFactory());
+        register(10, 61, ConnectionUnblocked.getFactory());
 
-        factories[20] = new AmqMethodBodyFactory[42];
-        factories[20][10] = ChannelOpen.getFactory();
-        factories[20][11] = ChannelOpenOk.getFactory();
-        factories[20][20] = ChannelFlow.getFactory();
-        factories[20][21] = ChannelFlowOk.getFactory();
-        factories[20][40] = ChannelClose.getFactory();
-        factories[20][41] = ChannelCloseOk.getFactory();
+        register(20, 10, ChannelOpen.getFactory());
+        register(20, 11, ChannelOpenOk.getFactory());
+        register(20, 20, ChannelFlow.getFactory());
+        register(20, 21, ChannelFlowOk.getFactory());
+        register(20, 40, ChannelClose.getFactory());
+        register(20, 41, ChannelCloseOk.getFactory());
 
-        factories[40] = new AmqMethodBodyFactory[24];
-        factories[40][10] = ExchangeDeclare.getFactory();
-        factories[40][11] = ExchangeDeclareOk.getFactory();
-        factories[40][20] = ExchangeDelete.getFactory();
-        factories[40][21] = ExchangeDeleteOk.getFactory();
+        register(40, 10, ExchangeDeclare.getFactory());
+        register(40, 11, ExchangeDeclareOk.getFactory());
+        register(40, 20, ExchangeDelete.getFactory());
+        register(40, 21, ExchangeDeleteOk.getFactory());
 
-        factories[50] = new AmqMethodBodyFactory[52];
-        factories[50][10] = QueueDeclare.getFactory();
-        factories[50][11] = QueueDeclareOk.getFactory();
-        factories[50][20] = QueueBind.getFactory();
-        factories[50][21] = QueueBindOk.getFactory();
-        factories[50][40] = QueueDelete.getFactory();
-        factories[50][41] = QueueDeleteOk.getFactory();
-        factories[50][50] = QueueUnbind.getFactory();
-        factories[50][51] = QueueUnbindOk.getFactory();
+        register(50, 10, QueueDeclare.getFactory());
+        register(50, 11, QueueDeclareOk.getFactory());
+        register(50, 20, QueueBind.getFactory());
+        register(50, 21, QueueBindOk.getFactory());
+        register(50, 40, QueueDelete.getFactory());
+        register(50, 41, QueueDeleteOk.getFactory());
+        register(50, 50, QueueUnbind.getFactory());
+        register(50, 51, QueueUnbindOk.getFactory());
 
-        factories[60] = new AmqMethodBodyFactory[112];
-        factories[60][10] = BasicQos.getFactory();
-        factories[60][11] = BasicQosOk.getFactory();
-        factories[60][20] = BasicConsume.getFactory();
-        factories[60][21] = BasicConsumeOk.getFactory();
-        factories[60][30] = BasicCancel.getFactory();
-        factories[60][31] = BasicCancelOk.getFactory();
-        factories[60][40] = BasicPublish.getFactory();
-        factories[60][60] = BasicDeliver.getFactory();
-        factories[60][80] = BasicAck.getFactory();
-        factories[60][90] = BasicReject.getFactory();
-        factories[60][110] = BasicRecover.getFactory();
-        factories[60][111] = BasicRecoveryOk.getFactory();
+        register(60, 10, BasicQos.getFactory());
+        register(60, 11, BasicQosOk.getFactory());
+        register(60, 20, BasicConsume.getFactory());
+        register(60, 21, BasicConsumeOk.getFactory());
+        register(60, 30, BasicCancel.getFactory());
+        register(60, 31, BasicCancelOk.getFactory());
+        register(60, 40, BasicPublish.getFactory());
+        register(60, 60, BasicDeliver.getFactory());
+        register(60, 70, BasicGet.getFactory());
+        register(60, 71, BasicGetOk.getFactory());
+        register(60, 72, BasicGetEmpty.getFactory());
+        register(60, 80, BasicAck.getFactory());
+        register(60, 90, BasicReject.getFactory());
+        register(60, 110, BasicRecover.getFactory());
+        register(60, 111, BasicRecoveryOk.getFactory());
+        register(60, 120, BasicNack.getFactory());
     }
 
-    public AmqMethodBodyFactory getFactory(short classId, short methodId) throws AmqFrameDecodingException {
-        try {
-            AmqMethodBodyFactory factory = factories[classId][methodId];
-            if (factory == null) {
-                throw new AmqFrameDecodingException(AmqConstant.COMMAND_INVALID,
-                                                    "Method " + methodId + " unknown in AMQP version 0-91"
-                                                      + " (while trying to decode class " + classId + " method "
-                                                      + methodId + ".");
-            }
+    private void register(int classId, int methodId, AmqMethodBodyFactory factory) {
+        factories[(classId << METHOD_ID_BITS) | methodId] = factory;
+    }
 
-            return factory;
-        } catch (NullPointerException e) {
+    public AmqMethodBodyFactory getFactory(int classId, int methodId) throws AmqFrameDecodingException {
+        if (classId < 0 || classId > MAX_CLASS_ID) {
             throw new AmqFrameDecodingException(AmqConstant.COMMAND_INVALID,
                                                 "Class " + classId + " unknown in AMQP version 0-91"
                                                         + " (while trying to decode class " + classId + " method "
                                                         + methodId + ".");
-        } catch (IndexOutOfBoundsException e) {
-            if (classId >= factories.length) {
-                throw new AmqFrameDecodingException(AmqConstant.COMMAND_INVALID,
-                                                    "Class " + classId + " unknown in AMQP version 0-91"
-                                                            + " (while trying to decode class " + classId + " method "
-                                                            + methodId + ".");
-
-            } else {
-                throw new AmqFrameDecodingException(AmqConstant.COMMAND_INVALID,
-                                                    "Method " + methodId + " unknown in AMQP version 0-91"
-                                                            + " (while trying to decode class " + classId + " method "
-                                                            + methodId + ".");
+        }
 
-            }
+        AmqMethodBodyFactory factory = null;
+        if (methodId >= 0 && methodId <= MAX_METHOD_ID) {
+            factory = factories[(classId << METHOD_ID_BITS) | methodId];
+        }
+        if (factory == null) {
+            throw new AmqFrameDecodingException(AmqConstant.COMMAND_INVALID,
+                                                "Method " + methodId + " unknown in AMQP version 0-91"
+                                                        + " (while trying to decode class " + classId + " method "
+                                                        + methodId + ".");
         }
+        return factory;
     }
 }
@@ -25,13 +25,16 @@ import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategy;
  */
 public class AmqMethodRegistryFactory {
 
-    private final AuthenticationStrategy authenticationStrategy;
+    /**
+     * The registry holds no connection specific state. Therefore a single registry is shared by all connections.
+     */
+    private final AmqMethodRegistry methodRegistry;
 
     public AmqMethodRegistryFactory(AuthenticationStrategy authenticationStrategy) {
-        this.authenticationStrategy = authenticationStrategy;
+        this.methodRegistry = new AmqMethodRegistry(authenticationStrategy);
     }
 
-    public AmqMethodRegistry newInstance() {
-        return new AmqMethodRegistry(authenticationStrategy);
+    public AmqMethodRegistry getRegistry() {
+        return methodRegistry;
     }
 }
@@ -102,8 +102,10 @@ public class BasicConsume extends MethodFrame {
         AmqpChannel channel = connectionHandler.getChannel(getChannel());
         ctx.fireChannelRead((BlockingTask) () -> {
             try {
-                ShortString usedConsumerTag = channel.consume(queue, consumerTag, exclusive, ctx);
+                ShortString usedConsumerTag = channel.consume(queue, consumerTag, exclusive, arguments, ctx);
                 ctx.writeAndFlush(new BasicConsumeOk(getChannel(), usedConsumerTag));
+                // Deliveries written after this point are queued behind basic.consume-ok
+                channel.startConsumer(usedConsumerTag);
             } catch (BrokerException e) {
                 ctx.writeAndFlush(new ChannelClose(getChannel(),
                                                    ChannelException.NOT_ALLOWED,
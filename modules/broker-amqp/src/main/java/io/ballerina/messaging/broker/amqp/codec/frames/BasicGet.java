@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
+import io.ballerina.messaging.broker.amqp.codec.BlockingTask;
+import io.ballerina.messaging.broker.amqp.codec.ChannelException;
+import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.ballerina.messaging.broker.core.BrokerException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * AMQP frame for basic.get
+ * Parameter Summary:
+ *      1. reserved-1 (short) - reserved
+ *      2. queue (ShortString) - queue name
+ *      3. no-ack (bit) - no acknowledgement needed
+ */
+public class BasicGet extends MethodFrame {
+
+    private static final short CLASS_ID = 60;
+
+    private static final short METHOD_ID = 70;
+
+    private final ShortString queue;
+    private final boolean noAck;
+
+    public BasicGet(int channel, ShortString queue, boolean noAck) {
+        super(channel, CLASS_ID, METHOD_ID);
+        this.queue = queue;
+        this.noAck = noAck;
+    }
+
+    @Override
+    protected long getMethodBodySize() {
+        return 2L + queue.getSize() + 1L;
+    }
+
+    @Override
+    protected void writeMethod(ByteBuf buf) {
+        buf.writeShort(0);
+        queue.write(buf);
+        buf.writeBoolean(noAck);
+    }
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
+        AmqpChannel channel = connectionHandler.getChannel(getChannel());
+        ctx.fireChannelRead((BlockingTask) () -> {
+            try {
+                if (!channel.get(ctx, queue.toString(), noAck)) {
+                    ctx.writeAndFlush(new BasicGetEmpty(getChannel()));
+                }
+            } catch (BrokerException e) {
+                ctx.writeAndFlush(new ChannelClose(getChannel(),
+                                                   ChannelException.NOT_FOUND,
+                                                   ShortString.parseString(e.getMessage()),
+                                                   CLASS_ID,
+                                                   METHOD_ID));
+            }
+        });
+    }
+
+    public static AmqMethodBodyFactory getFactory() {
+        return (buf, channel, size) -> {
+            buf.skipBytes(2);
+            ShortString queue = ShortString.parse(buf);
+            boolean noAck = buf.readBoolean();
+            return new BasicGet(channel, queue, noAck);
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * AMQP frame for basic.get-ok. Followed by the content header and content body frames of the message.
+ * Parameter Summary:
+ *     1. delivery-tag (longlong) - delivery tag
+ *     2. redelivered (bit) - redelivered
+ *     3. exchange (ShortString) - exchange name
+ *     4. routing-key (ShortString) - message routing key
+ *     5. message-count (long) - number of messages remaining in the queue
+ */
+public class BasicGetOk extends MethodFrame {
+
+    private static final short CLASS_ID = 60;
+
+    private static final short METHOD_ID = 71;
+
+    private final long deliveryTag;
+    private final boolean redelivered;
+    private final ShortString exchange;
+    private final ShortString routingKey;
+    private final long messageCount;
+
+    public BasicGetOk(int channel, long deliveryTag, boolean redelivered, ShortString exchange,
+                      ShortString routingKey, long messageCount) {
+        super(channel, CLASS_ID, METHOD_ID);
+        this.deliveryTag = deliveryTag;
+        this.redelivered = redelivered;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.messageCount = messageCount;
+    }
+
+    @Override
+    protected long getMethodBodySize() {
+        return 8L + 1L + exchange.getSize() + routingKey.getSize() + 4L;
+    }
+
+    @Override
+    protected void writeMethod(ByteBuf buf) {
+        buf.writeLong(deliveryTag);
+        buf.writeBoolean(redelivered);
+        exchange.write(buf);
+        routingKey.write(buf);
+        buf.writeInt((int) messageCount);
+    }
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
+        // Server does not handle basic get ok
+    }
+
+    public static AmqMethodBodyFactory getFactory() {
+        return (buf, channel, size) -> {
+            long deliveryTag = buf.readLong();
+            boolean redelivered = buf.readBoolean();
+            ShortString exchange = ShortString.parse(buf);
+            ShortString routingKey = ShortString.parse(buf);
+            long messageCount = buf.readUnsignedInt();
+            return new BasicGetOk(channel, deliveryTag, redelivered, exchange, routingKey, messageCount);
+        };
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
+import io.ballerina.messaging.broker.amqp.codec.BlockingTask;
+import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * AMQP frame for basic.nack
+ * Parameter Summary:
+ *      1. delivery-tag (longlong) - delivery tag
+ *      2. multiple (bit) - reject multiple messages
+ *      3. requeue (bit) - requeue messages
+ */
+public class BasicNack extends MethodFrame {
+
+    private static final short CLASS_ID = 60;
+
+    private static final short METHOD_ID = 120;
+
+    private final long deliveryTag;
+    private final boolean multiple;
+    private final boolean requeue;
+
+    public BasicNack(int channel, long deliveryTag, boolean multiple, boolean requeue) {
+        super(channel, CLASS_ID, METHOD_ID);
+        this.deliveryTag = deliveryTag;
+        this.multiple = multiple;
+        this.requeue = requeue;
+    }
+
+    @Override
+    protected long getMethodBodySize() {
+        return 8L + 1L;
+    }
+
+    @Override
+    protected void writeMethod(ByteBuf buf) {
+        buf.writeLong(deliveryTag);
+
+        byte flags = 0x0;
+        if (multiple) {
+            flags |= 0x1;
+        }
+        if (requeue) {
+            flags |= 0x2;
+        }
+        buf.writeByte(flags);
+    }
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
+        AmqpChannel channel = connectionHandler.getChannel(getChannel());
+        ctx.fireChannelRead((BlockingTask) () -> channel.nack(deliveryTag, multiple, requeue));
+    }
+
+    public static AmqMethodBodyFactory getFactory() {
+        return (buf, channel, size) -> {
+            long deliveryTag = buf.readLong();
+            byte flags = buf.readByte();
+            boolean multiple = (flags & 0x1) == 0x1;
+            boolean requeue = (flags & 0x2) == 0x2;
+            return new BasicNack(channel, deliveryTag, multiple, requeue);
+        };
+    }
+}
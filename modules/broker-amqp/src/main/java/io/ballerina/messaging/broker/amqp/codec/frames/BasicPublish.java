@@ -113,8 +113,8 @@ public class BasicPublish extends MethodFrame {
     public static AmqMethodBodyFactory getFactory() {
         return (buf, channel, size) -> {
             buf.skipBytes(2);
-            ShortString exchange = ShortString.parse(buf);
-            ShortString routingKey = ShortString.parse(buf);
+            ShortString exchange = ShortStringCache.parse(buf);
+            ShortString routingKey = ShortStringCache.parse(buf);
             byte flags = buf.readByte();
             boolean mandatory = (flags & 0x1) == 0x1;
             boolean immediate = (flags & 0x2) == 0x2;
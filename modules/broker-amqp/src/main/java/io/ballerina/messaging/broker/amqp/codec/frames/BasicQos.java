@@ -31,7 +31,7 @@ import org.slf4j.LoggerFactory;
  * Parameter Summary:
  *     1. prefetch­size (long) - prefetch window in octets
  *     2. prefetch­count (short) - prefetch window in messages
- *     3. global (bit) - apply to entire connection
+ *     3. global (bit) - apply to all the consumers of the channel
  */
 public class BasicQos extends MethodFrame {
     private static final Logger LOGGER = LoggerFactory.getLogger(BasicQos.class);
@@ -61,10 +61,9 @@ public class BasicQos extends MethodFrame {
 
     @Override
     public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
-        // TODO QoS Parameters should be propagated to message prefetch logic
         int channelId = getChannel();
         AmqpChannel channel = connectionHandler.getChannel(channelId);
-        channel.setPrefetchCount(prefetchCount);
+        channel.setPrefetch(prefetchCount, prefetchWindowSize, global);
         ctx.writeAndFlush(new BasicQosOk(channelId));
     }
 
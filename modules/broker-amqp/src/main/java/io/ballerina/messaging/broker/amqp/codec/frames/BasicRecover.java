@@ -74,6 +74,11 @@ public class BasicRecover extends MethodFrame {
                 Collection<AckData> unackedMessages = channel.recover();
                 for (AckData ackData : unackedMessages) {
                     Message message = ackData.getMessage();
+                    if (ackData.getConsumerTag() == null) {
+                        // Messages received through basic.get have no consumer to redeliver to
+                        connectionHandler.getBroker().requeue(ackData.getQueueName(), message);
+                        continue;
+                    }
                     nettyChannel.write(channel.createDeliverMessage(message,
                                                               ackData.getConsumerTag(),
                                                               ackData.getQueueName()));
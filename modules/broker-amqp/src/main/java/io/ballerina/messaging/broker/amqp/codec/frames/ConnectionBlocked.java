@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * AMQP frame for connection.blocked. Sent to clients supporting the connection.blocked capability when the broker
+ * stops reading from the connection to limit resource usage.
+ * Parameter Summary:
+ *     1. reason (ShortString) - reason for blocking the connection
+ */
+public class ConnectionBlocked extends MethodFrame {
+
+    private static final short CLASS_ID = 10;
+
+    private static final short METHOD_ID = 60;
+
+    private final ShortString reason;
+
+    public ConnectionBlocked(ShortString reason) {
+        super(0, CLASS_ID, METHOD_ID);
+        this.reason = reason;
+    }
+
+    @Override
+    protected long getMethodBodySize() {
+        return reason.getSize();
+    }
+
+    @Override
+    protected void writeMethod(ByteBuf buf) {
+        reason.write(buf);
+    }
+
+    @Override
+    public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
+        // Server does not handle connection blocked
+    }
+
+    public static AmqMethodBodyFactory getFactory() {
+        return (buf, channel, size) -> new ConnectionBlocked(ShortString.parse(buf));
+    }
+}
@@ -75,7 +75,7 @@ public class ConnectionSecureOk extends MethodFrame {
                 if (saslServerAttribute != null && (saslServer = saslServerAttribute.get()) != null) {
                     byte[] challenge = saslServer.evaluateResponse(response.getBytes());
                     if (saslServer.isComplete()) {
-                        ctx.writeAndFlush(new ConnectionTune(256, 65535, 0));
+                        ctx.writeAndFlush(connectionHandler.createConnectionTune());
                     } else {
                         ctx.channel().attr(AttributeKey.valueOf(SaslAuthenticationStrategy.SASL_SERVER_ATTRIBUTE))
                             .set(null);
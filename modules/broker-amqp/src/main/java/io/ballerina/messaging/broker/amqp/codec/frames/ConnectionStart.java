@@ -21,7 +21,9 @@ package io.ballerina.messaging.broker.amqp.codec.frames;
 
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
 import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
 import io.ballerina.messaging.broker.common.data.types.LongString;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 
@@ -29,10 +31,20 @@ import io.netty.channel.ChannelHandlerContext;
  * AMQP connection.start frame.
  */
 public class ConnectionStart extends MethodFrame {
+    /**
+     * Property listing the protocol extensions supported by the peer.
+     */
+    public static final ShortString CAPABILITIES = ShortString.parseString("capabilities");
+
+    /**
+     * Capability to send and receive connection.blocked and connection.unblocked.
+     */
+    public static final ShortString CONNECTION_BLOCKED_CAPABILITY = ShortString.parseString("connection.blocked");
+
     public static final ConnectionStart DEFAULT_FRAME = new ConnectionStart((short) 0,
                                                                             (byte) 0,
                                                                             (byte) 9,
-                                                                            FieldTable.EMPTY_TABLE,
+                                                                            createServerProperties(),
                                                                             LongString.parseString("PLAIN"),
                                                                             LongString.parseString("en_US"));
     private final byte majorVersion;
@@ -51,6 +63,15 @@ public class ConnectionStart extends MethodFrame {
         this.locales = locales;
     }
 
+    private static FieldTable createServerProperties() {
+        FieldTable capabilities = new FieldTable();
+        capabilities.add(CONNECTION_BLOCKED_CAPABILITY,
+                         FieldValue.parseBoolean(io.ballerina.messaging.broker.common.data.types.Boolean.parse(true)));
+        FieldTable serverProperties = new FieldTable();
+        serverProperties.add(CAPABILITIES, FieldValue.parseFieldTable(capabilities));
+        return serverProperties;
+    }
+
     @Override
     protected long getMethodBodySize() {
         return 1L + 1L + serverProperties.getSize() + mechanisms.getSize() + locales.getSize();
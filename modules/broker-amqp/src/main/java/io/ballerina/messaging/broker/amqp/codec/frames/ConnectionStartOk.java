@@ -24,6 +24,7 @@ import io.ballerina.messaging.broker.amqp.codec.ConnectionException;
 import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategy;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
 import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
 import io.ballerina.messaging.broker.common.data.types.LongString;
 import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.ballerina.messaging.broker.core.BrokerException;
@@ -32,6 +33,8 @@ import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Objects;
+
 /**
  * AMQP connection.start frame.
  */
@@ -74,6 +77,8 @@ public class ConnectionStartOk extends MethodFrame {
 
     @Override
     public void handle(ChannelHandlerContext ctx, AmqpConnectionHandler connectionHandler) {
+        connectionHandler.setBlockedNotificationSupported(
+                hasCapability(clientProperties, ConnectionStart.CONNECTION_BLOCKED_CAPABILITY));
         ctx.fireChannelRead((BlockingTask) () -> {
             try {
                 authenticationStrategy.handle(getChannel(), ctx, connectionHandler, mechanism, response);
@@ -88,6 +93,15 @@ public class ConnectionStartOk extends MethodFrame {
         });
     }
 
+    private static boolean hasCapability(FieldTable clientProperties, ShortString capability) {
+        FieldValue capabilities = clientProperties.getValue(ConnectionStart.CAPABILITIES);
+        if (Objects.isNull(capabilities) || capabilities.getType() != FieldValue.Type.FIELD_TABLE) {
+            return false;
+        }
+        FieldValue value = ((FieldTable) capabilities.getValue()).getValue(capability);
+        return Objects.nonNull(value) && value.getType() == FieldValue.Type.BOOLEAN
+                && "true".equals(value.getValue().toString());
+    }
 
     public static AmqMethodBodyFactory getFactory(AuthenticationStrategy authenticationStrategy) {
         return (buf, channel, size) -> {
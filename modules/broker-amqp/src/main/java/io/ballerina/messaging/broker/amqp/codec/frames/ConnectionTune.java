@@ -31,6 +31,11 @@ import io.netty.channel.ChannelHandlerContext;
  *     3. heartbeat (short) - desired heartbeat delay
  */
 public class ConnectionTune extends MethodFrame {
+    /**
+     * Smallest frame-max a peer has to accept.
+     */
+    public static final int MIN_FRAME_SIZE = 4096;
+
     private final int channelMax;
     private final long frameMax;
     private final int heartbeat;
@@ -21,11 +21,8 @@ package io.ballerina.messaging.broker.amqp.codec.frames;
 
 import io.ballerina.messaging.broker.amqp.AmqpException;
 import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
-import io.ballerina.messaging.broker.amqp.codec.BlockingTask;
 import io.ballerina.messaging.broker.amqp.codec.InMemoryMessageAggregator;
 import io.ballerina.messaging.broker.amqp.codec.handlers.AmqpConnectionHandler;
-import io.ballerina.messaging.broker.core.BrokerException;
-import io.ballerina.messaging.broker.core.Message;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
@@ -78,17 +75,7 @@ public class ContentFrame extends GeneralFrame {
         }
 
         if (allContentReceived) {
-            Message message = messageAggregator.popMessage();
-
-            ctx.fireChannelRead((BlockingTask) () -> {
-                try {
-                    messageAggregator.publish(message);
-                    // flow manager should always be executed through the event loop
-                    ctx.executor().submit(() -> channel.getFlowManager().notifyMessageRemoval(ctx));
-                } catch (BrokerException e) {
-                    LOGGER.warn("Content receiving failed", e);
-                }
-            });
+            connectionHandler.addPendingPublish(channel, messageAggregator.popMessage());
         }
     }
 
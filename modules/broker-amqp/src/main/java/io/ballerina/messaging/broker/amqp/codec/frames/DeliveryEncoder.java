@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.core.ContentChunk;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+
+import java.util.List;
+
+/**
+ * Encodes the frames of a message delivery without copying the message content. The method frame, the header frame
+ * and the framing of the content frames are written to a single buffer. The content chunks are placed between
+ * slices of that buffer in a {@link CompositeByteBuf}. Chunks larger than the frame size negotiated with the client
+ * are split into several content frames.
+ */
+public final class DeliveryEncoder {
+
+    private static final byte CONTENT_FRAME_TYPE = 3;
+
+    private DeliveryEncoder() {
+    }
+
+    /**
+     * Encode a message delivery. The returned buffer takes over the content chunk buffers, which are released when
+     * the returned buffer is released.
+     *
+     * @param allocator   allocator for the frame buffer
+     * @param channel     channel id
+     * @param methodFrame method frame of the delivery, for instance basic.deliver
+     * @param headerFrame content header frame
+     * @param chunks       content chunks
+     * @param maxFrameSize maximum size of a frame including the frame header and frame end
+     * @return encoded delivery
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, int channel, GeneralFrame methodFrame,
+                                 HeaderFrame headerFrame, List<ContentChunk> chunks, long maxFrameSize) {
+        int maxPayloadSize = (int) Math.min(maxFrameSize - GeneralFrame.FRAME_OVERHEAD, Integer.MAX_VALUE);
+        int contentFrameCount = 0;
+        for (ContentChunk chunk : chunks) {
+            contentFrameCount += getFrameCount(chunk.getBytes().readableBytes(), maxPayloadSize);
+        }
+
+        long methodPayloadSize = methodFrame.getPayloadSize();
+        long headerPayloadSize = headerFrame.getPayloadSize();
+        int frameBufferSize = (int) (methodPayloadSize + headerPayloadSize) + GeneralFrame.FRAME_OVERHEAD * 2
+                + GeneralFrame.FRAME_OVERHEAD * contentFrameCount;
+        ByteBuf frameBuffer = allocator.buffer(frameBufferSize);
+        methodFrame.write(frameBuffer, methodPayloadSize);
+        headerFrame.write(frameBuffer, headerPayloadSize);
+        if (chunks.isEmpty()) {
+            return frameBuffer;
+        }
+
+        // Keep each buffer as a component. Consolidating components would copy the content.
+        CompositeByteBuf delivery = allocator.compositeBuffer(contentFrameCount * 2 + 1);
+        // Number of content chunks handed over to the composite buffer
+        int addedChunks = 0;
+        try {
+            int sliceStart = 0;
+            for (ContentChunk chunk : chunks) {
+                ByteBuf content = chunk.getBytes();
+                int offset = content.readerIndex();
+                int remaining = content.readableBytes();
+                boolean split = remaining > maxPayloadSize;
+                do {
+                    int length = Math.min(remaining, maxPayloadSize);
+                    frameBuffer.writeByte(CONTENT_FRAME_TYPE);
+                    frameBuffer.writeShort(channel);
+                    frameBuffer.writeInt(length);
+                    delivery.addComponent(true, frameBuffer.retainedSlice(sliceStart,
+                                                                          frameBuffer.writerIndex() - sliceStart));
+                    if (split) {
+                        delivery.addComponent(true, content.retainedSlice(offset, length));
+                    } else {
+                        delivery.addComponent(true, content);
+                        addedChunks++;
+                    }
+                    offset += length;
+                    remaining -= length;
+
+                    sliceStart = frameBuffer.writerIndex();
+                    frameBuffer.writeByte(GeneralFrame.FRAME_END);
+                } while (remaining > 0);
+
+                if (split) {
+                    // The slices hold their own references
+                    content.release();
+                    addedChunks++;
+                }
+            }
+            delivery.addComponent(true, frameBuffer.retainedSlice(sliceStart, frameBuffer.writerIndex() - sliceStart));
+        } catch (RuntimeException e) {
+            delivery.release();
+            for (ContentChunk chunk : chunks.subList(addedChunks, chunks.size())) {
+                chunk.release();
+            }
+            throw e;
+        } finally {
+            frameBuffer.release();
+        }
+        return delivery;
+    }
+
+    private static int getFrameCount(int contentSize, int maxPayloadSize) {
+        if (contentSize == 0) {
+            return 1;
+        }
+        return (contentSize + maxPayloadSize - 1) / maxPayloadSize;
+    }
+}
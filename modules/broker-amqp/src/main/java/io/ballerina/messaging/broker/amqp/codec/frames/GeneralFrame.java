@@ -30,6 +30,11 @@ import io.netty.channel.ChannelHandlerContext;
 public abstract class GeneralFrame {
     public static final short FRAME_END = 0xCE;
 
+    /**
+     * Size of the frame type, channel, payload size and frame end fields.
+     */
+    public static final int FRAME_OVERHEAD = 1 + 2 + 4 + 1;
+
     private final byte type;
     private final int channel;
 
@@ -54,9 +59,18 @@ public abstract class GeneralFrame {
 
     public ByteBuf write(ByteBufAllocator out) {
         long payloadSize = getPayloadSize();
-        long totalSize = payloadSize + 1 + 2 + 4;
-        ByteBuf buf = out.buffer((int) totalSize);
+        ByteBuf buf = out.buffer((int) (payloadSize + FRAME_OVERHEAD));
+        write(buf, payloadSize);
+        return buf;
+    }
 
+    /**
+     * Write the frame to the end of the given buffer.
+     *
+     * @param buf         buffer to write to
+     * @param payloadSize payload size returned by {@link #getPayloadSize()}
+     */
+    public void write(ByteBuf buf, long payloadSize) {
         buf.writeByte(type);
         buf.writeShort(channel);
         buf.writeInt((int) payloadSize);
@@ -64,7 +78,5 @@ public abstract class GeneralFrame {
         writePayload(buf);
 
         buf.writeByte(FRAME_END);
-
-        return buf;
     }
 }
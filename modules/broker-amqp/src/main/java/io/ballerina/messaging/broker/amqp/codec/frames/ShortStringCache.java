@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * Direct mapped cache of {@link ShortString} values decoded from method frames. Publishers tend to use a small set of
+ * exchange names and routing keys. Returning the cached instance for a repeated value avoids allocating a byte array
+ * and a {@link ShortString} for each frame, and the frames share the decoded string of the instance. Each I/O thread
+ * has a cache of its own. Therefore the cache is not synchronized.
+ */
+final class ShortStringCache {
+
+    private static final int SIZE = 256;
+
+    private static final FastThreadLocal<ShortString[]> ENTRIES = new FastThreadLocal<ShortString[]>() {
+        @Override
+        protected ShortString[] initialValue() {
+            return new ShortString[SIZE];
+        }
+    };
+
+    private ShortStringCache() {
+    }
+
+    /**
+     * Read a short string from the buffer.
+     *
+     * @param buf buffer positioned at the length octet of the short string
+     * @return cached instance if a short string with the same content was read before, a new instance otherwise
+     */
+    static ShortString parse(ByteBuf buf) {
+        int lengthIndex = buf.readerIndex();
+        int length = buf.getUnsignedByte(lengthIndex);
+        int contentIndex = lengthIndex + 1;
+
+        int hash = length;
+        for (int i = contentIndex; i < contentIndex + length; i++) {
+            hash = 31 * hash + buf.getByte(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+        ShortString[] entries = ENTRIES.get();
+        ShortString cached = entries[slot];
+        if (cached != null && cached.contentEquals(buf, contentIndex, length)) {
+            buf.skipBytes(length + 1);
+            return cached;
+        }
+
+        ShortString value = ShortString.parse(buf);
+        entries[slot] = value;
+        return value;
+    }
+}
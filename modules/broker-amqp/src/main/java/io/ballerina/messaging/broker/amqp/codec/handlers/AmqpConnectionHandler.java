@@ -23,20 +23,34 @@ import io.ballerina.messaging.broker.amqp.AmqpServerConfiguration;
 import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
 import io.ballerina.messaging.broker.amqp.codec.BlockingTask;
 import io.ballerina.messaging.broker.amqp.codec.ConnectionException;
+import io.ballerina.messaging.broker.amqp.codec.InMemoryMessageAggregator;
+import io.ballerina.messaging.broker.amqp.codec.flow.MemoryMonitor;
 import io.ballerina.messaging.broker.amqp.codec.frames.AmqpBadMessage;
+import io.ballerina.messaging.broker.amqp.codec.frames.BasicPublish;
+import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionBlocked;
 import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionStart;
+import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionTune;
+import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionUnblocked;
+import io.ballerina.messaging.broker.amqp.codec.frames.ContentFrame;
 import io.ballerina.messaging.broker.amqp.codec.frames.GeneralFrame;
+import io.ballerina.messaging.broker.amqp.codec.frames.HeaderFrame;
 import io.ballerina.messaging.broker.amqp.codec.frames.ProtocolInitFrame;
 import io.ballerina.messaging.broker.amqp.metrics.AmqpMetricManager;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.ballerina.messaging.broker.core.Broker;
+import io.ballerina.messaging.broker.core.BrokerException;
+import io.ballerina.messaging.broker.core.Message;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Netty handler for handling an AMQP connection.
@@ -44,26 +58,96 @@ import java.util.Objects;
 public class AmqpConnectionHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AmqpConnectionHandler.class);
-    private final Map<Integer, AmqpChannel> channels = new HashMap<>();
+    private static final ShortString MEMORY_BLOCKED_REASON = ShortString.parseString("Broker memory is low");
+
+    /**
+     * Channels of the connection. Channels are opened and closed by the blocking task executor while flow and
+     * writability changes iterate the channels on the event loop.
+     */
+    private final Map<Integer, AmqpChannel> channels = new ConcurrentHashMap<>();
     private final AmqpServerConfiguration configuration;
     private final Broker broker;
     private final AmqpMetricManager metricManager;
+    private final MemoryMonitor memoryMonitor;
+    private MemoryMonitor.Listener memoryListener;
+
+    /**
+     * Messages fully received during the current read, grouped by channel. Each group is handed to the broker as one
+     * blocking task when the read completes. Accessed only from the event loop.
+     */
+    private final Map<AmqpChannel, List<Message>> pendingPublishes = new LinkedHashMap<>();
+
+    /**
+     * Maximum frame size, including the frame header and frame end, negotiated with the client.
+     */
+    private long maxFrameSize;
+
+    /**
+     * Highest channel number negotiated with the client.
+     */
+    private int maxChannels;
+
+    /**
+     * True if the client accepts connection.blocked and connection.unblocked.
+     */
+    private boolean blockedNotificationSupported = false;
+
+    /**
+     * True once the client has published a message. Only publishing connections are blocked on low memory.
+     */
+    private boolean publishing = false;
+
+    /**
+     * True while a publishing connection is blocked due to low memory. Accessed only from the event loop.
+     */
+    private boolean blocked = false;
+
+    /**
+     * True while reading from the connection is suspended since the client published on a blocked connection.
+     * Accessed only from the event loop.
+     */
+    private boolean readSuspended = false;
 
     public AmqpConnectionHandler(AmqpServerConfiguration configuration,
                                  Broker broker,
-                                 AmqpMetricManager metricManager) {
+                                 AmqpMetricManager metricManager,
+                                 MemoryMonitor memoryMonitor) {
         this.configuration = configuration;
         this.broker = broker;
         this.metricManager = metricManager;
+        this.memoryMonitor = memoryMonitor;
+        this.maxFrameSize = configuration.getMaxFrameSize();
+        this.maxChannels = configuration.getMaxChannels();
         metricManager.incrementConnectionCount();
     }
 
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
-        ctx.channel().closeFuture().addListener(future -> ctx.fireChannelRead((BlockingTask) this::onConnectionClose));
+        memoryListener = memoryBlocked -> ctx.executor().execute(() -> onMemoryStateChange(ctx));
+        memoryMonitor.addListener(memoryListener);
+        ctx.channel().closeFuture().addListener(future -> {
+            memoryMonitor.removeListener(memoryListener);
+            publishPendingMessages(ctx);
+            ctx.fireChannelRead((BlockingTask) this::onConnectionClose);
+        });
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!isPublishFrame(msg)) {
+            // Blocking tasks of other frames must not overtake the messages published before them
+            publishPendingMessages(ctx);
+        } else if (msg instanceof BasicPublish) {
+            if (!publishing) {
+                publishing = true;
+                updateBlockedState(ctx);
+            }
+            if (blocked && !readSuspended) {
+                // Frames already read are still handled, further publishes wait until the connection is unblocked
+                readSuspended = true;
+                ctx.channel().config().setAutoRead(false);
+            }
+        }
+
         if (msg instanceof ProtocolInitFrame) {
             handleProtocolInit(ctx, (ProtocolInitFrame) msg);
         } else if (msg instanceof GeneralFrame) {
@@ -75,6 +159,114 @@ public class AmqpConnectionHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        publishPendingMessages(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    /**
+     * Consumers stop receiving messages while the connection is not writable. Wake them up once the outbound
+     * buffer drains below the write buffer low watermark.
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            for (AmqpChannel channel : channels.values()) {
+                channel.notifyConsumersReady();
+            }
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    private static boolean isPublishFrame(Object msg) {
+        return msg instanceof BasicPublish || msg instanceof HeaderFrame || msg instanceof ContentFrame;
+    }
+
+    /**
+     * Queue a fully received message to be published when the current read completes.
+     *
+     * @param channel channel the message was published on
+     * @param message received message
+     */
+    public void addPendingPublish(AmqpChannel channel, Message message) {
+        pendingPublishes.computeIfAbsent(channel, key -> new ArrayList<>()).add(message);
+    }
+
+    private void publishPendingMessages(ChannelHandlerContext ctx) {
+        if (pendingPublishes.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<AmqpChannel, List<Message>> entry : pendingPublishes.entrySet()) {
+            AmqpChannel channel = entry.getKey();
+            List<Message> messages = entry.getValue();
+            ctx.fireChannelRead((BlockingTask) () -> publish(ctx, channel, messages));
+        }
+        pendingPublishes.clear();
+    }
+
+    private static void publish(ChannelHandlerContext ctx, AmqpChannel channel, List<Message> messages) {
+        InMemoryMessageAggregator messageAggregator = channel.getMessageAggregator();
+        for (Message message : messages) {
+            try {
+                messageAggregator.publish(message);
+            } catch (BrokerException e) {
+                LOGGER.warn("Content receiving failed", e);
+            }
+        }
+        // flow manager should always be executed through the event loop
+        ctx.executor().execute(() -> channel.getFlowManager().notifyMessageRemoval(ctx, messages.size()));
+    }
+
+    /**
+     * Re-evaluate the flow of the channels and block or unblock the connection after the memory state of the broker
+     * changed.
+     *
+     * @param ctx channel handler context
+     */
+    private void onMemoryStateChange(ChannelHandlerContext ctx) {
+        for (AmqpChannel channel : channels.values()) {
+            channel.getFlowManager().notifyMemoryStateChange(ctx);
+        }
+        updateBlockedState(ctx);
+    }
+
+    /**
+     * Block a publishing connection while the broker is low on memory. Clients supporting the connection.blocked
+     * capability are notified. The connection is still read so that acknowledgements and channel closes release
+     * messages, and reading is suspended only once the client publishes on the blocked connection. Clients that
+     * ignore channel.flow then cannot publish further messages since the socket is not read.
+     *
+     * @param ctx channel handler context
+     */
+    private void updateBlockedState(ChannelHandlerContext ctx) {
+        boolean block = publishing && memoryMonitor.isBlocked();
+        if (block == blocked) {
+            return;
+        }
+
+        blocked = block;
+        if (blockedNotificationSupported) {
+            ctx.writeAndFlush(block ? new ConnectionBlocked(MEMORY_BLOCKED_REASON) : new ConnectionUnblocked());
+        }
+        if (!block && readSuspended) {
+            readSuspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+        LOGGER.info("Connection {} {} due to memory usage", ctx.channel().remoteAddress(),
+                    block ? "blocked" : "unblocked");
+    }
+
+    /**
+     * Set whether the client accepts connection.blocked and connection.unblocked.
+     *
+     * @param blockedNotificationSupported true if the client advertised the connection.blocked capability
+     */
+    public void setBlockedNotificationSupported(boolean blockedNotificationSupported) {
+        this.blockedNotificationSupported = blockedNotificationSupported;
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         LOGGER.warn("Exception while handling request", cause);
@@ -94,13 +286,60 @@ public class AmqpConnectionHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Create the connection.tune frame proposing the configured limits to the client.
+     *
+     * @return connection.tune frame
+     */
+    public ConnectionTune createConnectionTune() {
+        return new ConnectionTune(configuration.getMaxChannels(), configuration.getMaxFrameSize(), 0);
+    }
+
+    /**
+     * Apply the limits the client accepted in connection.tune-ok. A value of zero means the client does not impose
+     * a limit. The client cannot raise the limits proposed by the server.
+     *
+     * @param ctx          channel handler context
+     * @param channelMax   channel-max of the client
+     * @param frameMax     frame-max of the client
+     * @throws ConnectionException if the frame-max is below the minimum frame size allowed by the protocol
+     */
+    public void tune(ChannelHandlerContext ctx, int channelMax, long frameMax) throws ConnectionException {
+        long negotiatedFrameMax = negotiate(frameMax, configuration.getMaxFrameSize());
+        if (negotiatedFrameMax < ConnectionTune.MIN_FRAME_SIZE) {
+            throw new ConnectionException(ConnectionException.NOT_ALLOWED,
+                                          "Frame max " + frameMax + " is less than the minimum frame size "
+                                                  + ConnectionTune.MIN_FRAME_SIZE);
+        }
+        maxFrameSize = negotiatedFrameMax;
+        maxChannels = (int) negotiate(channelMax, configuration.getMaxChannels());
+
+        AmqpDecoder decoder = ctx.pipeline().get(AmqpDecoder.class);
+        if (decoder != null) {
+            decoder.setMaxFrameSize(maxFrameSize);
+        }
+    }
+
+    private static long negotiate(long clientValue, long serverValue) {
+        if (clientValue == 0) {
+            return serverValue;
+        }
+        return Math.min(clientValue, serverValue);
+    }
+
     public void createChannel(int channelId) throws ConnectionException {
+        if (channelId < 1 || channelId > maxChannels) {
+            throw new ConnectionException(ConnectionException.CHANNEL_ERROR,
+                                          "Channel ID " + channelId + " is not between 1 and the channel max "
+                                                  + maxChannels);
+        }
         AmqpChannel channel = channels.get(channelId);
         if (channel != null) {
             throw new ConnectionException(ConnectionException.CHANNEL_ERROR,
                     "Channel ID " + channelId + " Already exists");
         }
-        channels.put(channelId, new AmqpChannel(configuration, broker, channelId, metricManager));
+        channels.put(channelId, new AmqpChannel(configuration, broker, channelId, metricManager, maxFrameSize,
+                                                memoryMonitor));
         metricManager.incrementChannelCount();
     }
 
@@ -126,12 +365,14 @@ public class AmqpConnectionHandler extends ChannelInboundHandlerAdapter {
         channel.close();
     }
 
+    /**
+     * Close all the channels of the connection. Each channel is removed before it is closed so that a concurrent
+     * channel close does not close it twice and writability or flow changes on the event loop do not reach it.
+     */
     public void closeAllChannels() {
-        for (AmqpChannel channel: channels.values()) {
-            closeChannel(channel);
+        for (Integer channelId : channels.keySet()) {
+            closeChannel(channelId);
         }
-
-        channels.clear();
     }
 
     /**
@@ -19,16 +19,20 @@
 
 package io.ballerina.messaging.broker.amqp.codec.handlers;
 
+import io.ballerina.messaging.broker.amqp.codec.ConnectionException;
 import io.ballerina.messaging.broker.amqp.codec.frames.AmqMethodBodyFactory;
 import io.ballerina.messaging.broker.amqp.codec.frames.AmqMethodRegistry;
 import io.ballerina.messaging.broker.amqp.codec.frames.AmqpBadMessage;
+import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionClose;
 import io.ballerina.messaging.broker.amqp.codec.frames.ContentFrame;
 import io.ballerina.messaging.broker.amqp.codec.frames.GeneralFrame;
 import io.ballerina.messaging.broker.amqp.codec.frames.HeaderFrame;
 import io.ballerina.messaging.broker.amqp.codec.frames.ProtocolInitFrame;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
 import io.netty.util.CharsetUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +51,12 @@ public class AmqpDecoder extends ByteToMessageDecoder {
      */
     private final AmqMethodRegistry methodRegistry;
     private static final int FRAME_SIZE_WITHOUT_PAYLOAD = 8;
+
+    /**
+     * type(octet) + channel(short) + payload-size(long).
+     */
+    private static final int FRAME_HEADER_SIZE = 7;
+
     private static final CharSequence AMQP_PROTOCOL_IDENTIFIER = "AMQP";
 
     /**
@@ -54,8 +64,27 @@ public class AmqpDecoder extends ByteToMessageDecoder {
      */
     private static final int MIN_HEADER_FRAME_SIZE = 14;
 
+    /**
+     * Maximum size of a frame, including the frame header and frame end, accepted from the client.
+     */
+    private long maxFrameSize;
+
     public AmqpDecoder(AmqMethodRegistry methodRegistry) {
+        this(methodRegistry, Integer.MAX_VALUE);
+    }
+
+    public AmqpDecoder(AmqMethodRegistry methodRegistry, long maxFrameSize) {
         this.methodRegistry = methodRegistry;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Set the maximum frame size negotiated with the client.
+     *
+     * @param maxFrameSize maximum frame size including the frame header and frame end
+     */
+    public void setMaxFrameSize(long maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
     }
 
     /**
@@ -63,22 +92,35 @@ public class AmqpDecoder extends ByteToMessageDecoder {
      */
     private enum State {
         PROTOCOL_INITIALIZATION,
-        READ_FRAME,
+        READ_FRAME_HEADER,
+        READ_FRAME_PAYLOAD,
         BAD_MESSAGE
     }
 
     private State currentState = State.PROTOCOL_INITIALIZATION;
 
+    /**
+     * Header of the frame being read. The header is kept until the whole payload is received so that it is parsed
+     * only once for a frame that arrives in several reads.
+     */
+    private byte frameType;
+    private int frameChannel;
+    private long framePayloadSize;
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out)
             throws Exception {
         switch (currentState) {
             case PROTOCOL_INITIALIZATION:
                 processProtocolInitFrame(buffer, out);
-                currentState = State.READ_FRAME;
                 return;
-            case READ_FRAME:
-                parseFrame(buffer, out);
+            case READ_FRAME_HEADER:
+                if (parseFrameHeader(buffer)) {
+                    parseFramePayload(buffer, out);
+                }
+                return;
+            case READ_FRAME_PAYLOAD:
+                parseFramePayload(buffer, out);
                 return;
             case BAD_MESSAGE:
                 // Keep discarding until disconnection.
@@ -104,57 +146,95 @@ public class AmqpDecoder extends ByteToMessageDecoder {
                 out.add(new AmqpBadMessage(new IllegalArgumentException("Unknown protocol name " +
                                                                                protocolName.toString())));
                 currentState = State.BAD_MESSAGE;
+            } else {
+                currentState = State.READ_FRAME_HEADER;
             }
 
             out.add(new ProtocolInitFrame(majorVersion, minorVersion, revision));
         }
     }
 
+    /**
+     * Close the connection after a decoding failure. Failures with an AMQP reply code are reported to the client
+     * with a connection.close before closing the connection.
+     */
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         LOGGER.warn("Exception while handling request", cause);
         currentState = State.BAD_MESSAGE;
-        ctx.close();
+
+        Throwable rootCause = cause instanceof DecoderException ? cause.getCause() : cause;
+        if (rootCause instanceof ConnectionException) {
+            ConnectionClose connectionClose = ConnectionClose.getInstance((short) 0, (short) 0,
+                                                                          (ConnectionException) rootCause);
+            // Written from the tail of the pipeline since the encoder is placed after the decoder
+            ctx.channel().writeAndFlush(connectionClose).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            ctx.close();
+        }
     }
 
-    private void parseFrame(ByteBuf buffer, List<Object> out) throws Exception {
-        buffer.markReaderIndex();
-        if (buffer.readableBytes() > FRAME_SIZE_WITHOUT_PAYLOAD) {
-            byte type = buffer.readByte();
-            int channel = buffer.readShort();
-            long payloadSize = buffer.readInt();
+    /**
+     * Read the frame header if it is fully received.
+     *
+     * @param buffer received bytes
+     * @return true if the header was read
+     * @throws ConnectionException if the frame exceeds the maximum frame size
+     */
+    private boolean parseFrameHeader(ByteBuf buffer) throws ConnectionException {
+        if (buffer.readableBytes() < FRAME_HEADER_SIZE) {
+            return false;
+        }
 
-            long estimatedRemainingSize = payloadSize + 1;
-            if (buffer.readableBytes() < estimatedRemainingSize) {
-                buffer.resetReaderIndex();
-                return;
-            }
+        frameType = buffer.readByte();
+        frameChannel = buffer.readUnsignedShort();
+        framePayloadSize = buffer.readUnsignedInt();
+        if (framePayloadSize + FRAME_SIZE_WITHOUT_PAYLOAD > maxFrameSize) {
+            throw new ConnectionException(ConnectionException.FRAME_ERROR,
+                                          "Frame size " + (framePayloadSize + FRAME_SIZE_WITHOUT_PAYLOAD)
+                                                  + " exceeds the maximum frame size " + maxFrameSize);
+        }
+        currentState = State.READ_FRAME_PAYLOAD;
+        return true;
+    }
 
-            GeneralFrame frame = null;
-            switch (type) {
-                case 1: // Method
-                    short amqpClass = buffer.readShort();
-                    short amqpMethod = buffer.readShort();
-                    AmqMethodBodyFactory factory = methodRegistry.getFactory(amqpClass, amqpMethod);
-
-                    frame = factory.newInstance(buffer, channel, payloadSize);
-                    break;
-                case 2: // Header
-                    frame = HeaderFrame.parse(buffer, channel);
-                    break;
-                case 3: // Body
-                    frame = ContentFrame.parse(buffer, channel, payloadSize);
-                    break;
-                case 4: // Heartbeat
-                    throw new Exception("Method Not implemented");
-            }
+    /**
+     * Decode the payload of the frame whose header was read, once the payload and the frame end are received.
+     *
+     * @param buffer received bytes
+     * @param out    decoded frames
+     * @throws Exception if the frame is invalid
+     */
+    private void parseFramePayload(ByteBuf buffer, List<Object> out) throws Exception {
+        if (buffer.readableBytes() < framePayloadSize + 1) {
+            return;
+        }
 
-            byte frameEnd = buffer.readByte();
-            if (frameEnd != (byte) GeneralFrame.FRAME_END) {
-                throw new Exception("Invalid AMQP frame");
-            }
+        GeneralFrame frame = null;
+        switch (frameType) {
+            case 1: // Method
+                int amqpClass = buffer.readUnsignedShort();
+                int amqpMethod = buffer.readUnsignedShort();
+                AmqMethodBodyFactory factory = methodRegistry.getFactory(amqpClass, amqpMethod);
 
-            out.add(frame);
+                frame = factory.newInstance(buffer, frameChannel, framePayloadSize);
+                break;
+            case 2: // Header
+                frame = HeaderFrame.parse(buffer, frameChannel);
+                break;
+            case 3: // Body
+                frame = ContentFrame.parse(buffer, frameChannel, framePayloadSize);
+                break;
+            case 4: // Heartbeat
+                throw new Exception("Method Not implemented");
+        }
+
+        byte frameEnd = buffer.readByte();
+        if (frameEnd != (byte) GeneralFrame.FRAME_END) {
+            throw new Exception("Invalid AMQP frame");
         }
+
+        currentState = State.READ_FRAME_HEADER;
+        out.add(frame);
     }
 }
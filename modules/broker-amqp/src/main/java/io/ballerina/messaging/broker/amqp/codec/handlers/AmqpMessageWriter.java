@@ -28,7 +28,8 @@ import io.netty.channel.ChannelPromise;
 import java.util.List;
 
 /**
- * Writes {@link AmqpDeliverMessage} to the outbound channel.
+ * Writes {@link AmqpDeliverMessage} to the outbound channel. Writing only encodes frames. Therefore the writer runs on
+ * the I/O thread of the connection.
  */
 public class AmqpMessageWriter extends ChannelOutboundHandlerAdapter {
 
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp;
+
+import io.ballerina.messaging.broker.amqp.codec.AmqpChannel;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link AmqpConsumer}.
+ */
+public class AmqpConsumerTest {
+
+    private Channel nettyChannel;
+
+    private AmqpConsumer consumer;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        nettyChannel = Mockito.mock(Channel.class);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.channel()).thenReturn(nettyChannel);
+        AmqpChannel channel = Mockito.mock(AmqpChannel.class);
+        Mockito.when(channel.isReady(Mockito.any(AmqpConsumer.class))).thenReturn(true);
+        Mockito.when(channel.acquireCredit(Mockito.any(AmqpConsumer.class), Mockito.anyInt())).thenReturn(5);
+
+        consumer = new AmqpConsumer(ctx, channel, "queue", ShortString.parseString("tag"), false);
+        consumer.start();
+    }
+
+    @Test
+    public void testConsumerReadyWhenWritable() throws Exception {
+        Mockito.when(nettyChannel.isWritable()).thenReturn(true);
+
+        Assert.assertTrue(consumer.isReady());
+        Assert.assertEquals(consumer.acquireCredit(5), 5);
+    }
+
+    @Test
+    public void testConsumerNotReadyWhenNotWritable() throws Exception {
+        Mockito.when(nettyChannel.isWritable()).thenReturn(false);
+
+        Assert.assertFalse(consumer.isReady(), "Consumer should not be ready above the write buffer watermark");
+        Assert.assertEquals(consumer.acquireCredit(5), 0, "No credit should be granted above the watermark");
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp;
+
+import io.ballerina.messaging.broker.common.util.VirtualThreads;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the executors the {@link Server} runs the blocking tasks of connections on, when publishers block on
+ * back-pressure of the message store. Connections either share a fixed group of platform threads, or each connection
+ * gets an executor of its own on a platform or a virtual thread. Results are logged. Virtual threads are only measured
+ * on a JVM that supports them. The measured duration can be raised with the
+ * {@code blockedPublisherBenchmark.durationMillis} system property and the publisher count with
+ * {@code blockedPublisherBenchmark.publisherCount}.
+ */
+public class BlockedPublisherBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockedPublisherBenchmarkTest.class);
+
+    private static final int PUBLISHER_COUNT = Integer.getInteger("blockedPublisherBenchmark.publisherCount", 2000);
+
+    private static final long DURATION_MILLIS = Long.getLong("blockedPublisherBenchmark.durationMillis", 1000);
+
+    private static final long WARM_UP_MILLIS = 500;
+
+    /**
+     * Same as the blocking task executor threads of the {@link Server}.
+     */
+    private static final int SHARED_THREAD_COUNT = 32;
+
+    /**
+     * Time a publish is blocked on the message store.
+     */
+    private static final int BLOCK_MILLIS = 5;
+
+    @Test
+    public void testBlockedPublishersOnSharedAndConnectionExecutors() throws Exception {
+        ThreadFactory platformThreadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        long sharedThroughput = run("platform/shared", new SharedExecutors(platformThreadFactory));
+        long platformThroughput = run("platform/connection", new ConnectionExecutors(platformThreadFactory));
+        LOGGER.info("A platform thread per connection published {} times the messages of the shared threads",
+                    String.format("%.2f", (double) platformThroughput / sharedThroughput));
+
+        if (VirtualThreads.isSupported()) {
+            int threadCountBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            ConnectionExecutors virtualExecutors =
+                    new ConnectionExecutors(VirtualThreads.newThreadFactory("benchmark-"));
+            long virtualThroughput = run("virtual/connection", virtualExecutors);
+            LOGGER.info("A virtual thread per connection published {} times the messages of the shared threads",
+                        String.format("%.2f", (double) virtualThroughput / sharedThroughput));
+            Assert.assertTrue(virtualExecutors.platformThreads - threadCountBefore < PUBLISHER_COUNT,
+                              "Blocked publishers on virtual threads should not need a platform thread each");
+        } else {
+            LOGGER.info("Virtual threads are not supported by the JVM {}", System.getProperty("java.version"));
+        }
+    }
+
+    private long run(String name, PublisherExecutors executors) throws InterruptedException {
+        LongAdder publishes = new LongAdder();
+        List<BlockedPublisher> publishers = new ArrayList<>(PUBLISHER_COUNT);
+        for (int i = 0; i < PUBLISHER_COUNT; i++) {
+            BlockedPublisher publisher = new BlockedPublisher(executors.next(), publishes);
+            publishers.add(publisher);
+            publisher.publish();
+        }
+
+        TimeUnit.MILLISECONDS.sleep(WARM_UP_MILLIS);
+        long start = publishes.sum();
+        TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+        long published = publishes.sum() - start;
+        executors.platformThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (BlockedPublisher publisher : publishers) {
+            publisher.stopped = true;
+        }
+        executors.shutdown();
+
+        long throughput = published * 1000 / DURATION_MILLIS;
+        LOGGER.info("{}: {} publishes/s with {} blocked publishers and {} platform threads",
+                    name, throughput, PUBLISHER_COUNT, executors.platformThreads);
+        Assert.assertTrue(published > 0, name + " should publish messages");
+        return throughput;
+    }
+
+    /**
+     * Executors of the blocking tasks of the connections.
+     */
+    private abstract static class PublisherExecutors {
+
+        /**
+         * Platform threads of the JVM while publishing.
+         */
+        int platformThreads;
+
+        abstract EventExecutor next();
+
+        abstract void shutdown();
+    }
+
+    /**
+     * Connections share a fixed group of threads, like the {@link Server} without virtual threads.
+     */
+    private static final class SharedExecutors extends PublisherExecutors {
+
+        private final EventExecutorGroup executorGroup;
+
+        SharedExecutors(ThreadFactory threadFactory) {
+            executorGroup = new DefaultEventExecutorGroup(SHARED_THREAD_COUNT, threadFactory);
+        }
+
+        @Override
+        EventExecutor next() {
+            return executorGroup.next();
+        }
+
+        @Override
+        void shutdown() {
+            executorGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Each connection gets an executor of its own, like the {@link Server} with virtual threads.
+     */
+    private static final class ConnectionExecutors extends PublisherExecutors {
+
+        private final ThreadFactory threadFactory;
+
+        private final List<EventExecutor> executors = new ArrayList<>(PUBLISHER_COUNT);
+
+        ConnectionExecutors(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        EventExecutor next() {
+            EventExecutor executor = new DefaultEventExecutor(threadFactory);
+            executors.add(executor);
+            return executor;
+        }
+
+        @Override
+        void shutdown() {
+            for (EventExecutor executor : executors) {
+                executor.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Connection that keeps publishing, and blocks on each publish.
+     */
+    private static final class BlockedPublisher implements Runnable {
+
+        private final EventExecutor executor;
+
+        private final LongAdder publishes;
+
+        private volatile boolean stopped;
+
+        BlockedPublisher(EventExecutor executor, LongAdder publishes) {
+            this.executor = executor;
+            this.publishes = publishes;
+        }
+
+        void publish() {
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(BLOCK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            publishes.increment();
+            if (!stopped) {
+                publish();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for {@link DeliveryTagRing}.
+ */
+public class DeliveryTagRingTest {
+
+    private DeliveryTagRing<String> ring;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        ring = new DeliveryTagRing<>();
+    }
+
+    @Test
+    public void testRemoveSingleTag() throws Exception {
+        ring.put(1, "1");
+        ring.put(2, "2");
+
+        Assert.assertEquals(ring.remove(2), "2");
+        Assert.assertNull(ring.remove(2), "Removed tag should not be outstanding");
+        Assert.assertNull(ring.remove(5), "Unknown tag should not be found");
+        Assert.assertEquals(ring.size(), 1);
+    }
+
+    @Test
+    public void testRemoveUpToSkipsMissingTags() throws Exception {
+        ring.put(1, "1");
+        ring.put(3, "3");
+        ring.put(4, "4");
+        ring.put(6, "6");
+        ring.remove(3);
+
+        List<String> removed = ring.removeUpTo(5);
+
+        Assert.assertEquals(removed, Arrays.asList("1", "4"), "Values should be removed in delivery tag order");
+        Assert.assertEquals(ring.size(), 1);
+        Assert.assertEquals(ring.removeUpTo(5).size(), 0, "Tags up to 5 should already be removed");
+        Assert.assertEquals(ring.removeAll(), Arrays.asList("6"));
+    }
+
+    @Test
+    public void testRingGrowsToCoverOutstandingTags() throws Exception {
+        ring.put(1, "1");
+        for (int tag = 2; tag <= 1000; tag++) {
+            ring.put(tag, String.valueOf(tag));
+            if (tag % 2 == 0) {
+                ring.remove(tag);
+            }
+        }
+
+        Assert.assertEquals(ring.size(), 500);
+        Assert.assertEquals(ring.remove(1), "1", "Oldest tag should be kept when the ring grows");
+        Assert.assertEquals(ring.remove(999), "999");
+        Assert.assertEquals(ring.removeAll().size(), 498);
+    }
+
+    @Test
+    public void testTagRecordedBelowLowestTag() throws Exception {
+        ring.put(10, "10");
+        ring.put(8, "8");
+
+        Assert.assertEquals(ring.removeUpTo(9), Arrays.asList("8"));
+        Assert.assertEquals(ring.remove(10), "10");
+    }
+
+    @Test
+    public void testWideTagSpanOnlyTakesOutstandingEntries() throws Exception {
+        int capacity = ring.capacity();
+        ring.put(1, "1");
+        ring.put(1L << 40, "2");
+        ring.put(Long.MAX_VALUE, "3");
+
+        Assert.assertEquals(ring.capacity(), capacity, "Ring should not grow with the span of the tags");
+        Assert.assertEquals(ring.removeUpTo(1L << 40), Arrays.asList("1", "2"));
+        Assert.assertEquals(ring.remove(Long.MAX_VALUE), "3");
+    }
+
+    @Test
+    public void testRingShrinksAfterAcknowledgements() throws Exception {
+        int capacity = ring.capacity();
+        for (int tag = 1; tag <= 10000; tag++) {
+            ring.put(tag, String.valueOf(tag));
+        }
+        Assert.assertTrue(ring.capacity() >= 10000, "Ring should grow to hold the outstanding tags");
+
+        Assert.assertEquals(ring.removeUpTo(9990).size(), 9990);
+        Assert.assertEquals(ring.capacity(), capacity, "Ring should shrink once the tags are acknowledged");
+        Assert.assertEquals(ring.removeAll().size(), 10);
+    }
+
+    @Test
+    public void testRemovedEntriesDoNotGrowRing() throws Exception {
+        int capacity = ring.capacity();
+        ring.put(1, "1");
+        for (int tag = 2; tag <= 100000; tag++) {
+            ring.put(tag, String.valueOf(tag));
+            if (tag > 2) {
+                Assert.assertEquals(ring.remove(tag - 1), String.valueOf(tag - 1));
+            }
+        }
+
+        Assert.assertEquals(ring.size(), 2);
+        Assert.assertEquals(ring.capacity(), capacity, "Removed entries should not grow the ring");
+        Assert.assertEquals(ring.removeAll(), Arrays.asList("1", "100000"));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link PrefetchWindow}.
+ */
+public class PrefetchWindowTest {
+
+    private PrefetchWindow prefetchWindow;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        prefetchWindow = new PrefetchWindow();
+    }
+
+    @Test
+    public void testUnlimitedWindowGrantsRequestedCredit() throws Exception {
+        Assert.assertFalse(prefetchWindow.isLimited());
+        Assert.assertEquals(prefetchWindow.acquire(50), 50);
+        Assert.assertTrue(prefetchWindow.hasCredit());
+    }
+
+    @Test
+    public void testMessageLimit() throws Exception {
+        prefetchWindow.setLimits(10, 0);
+
+        Assert.assertEquals(prefetchWindow.acquire(6), 6);
+        Assert.assertEquals(prefetchWindow.acquire(6), 4, "Only the remaining window should be granted");
+        Assert.assertEquals(prefetchWindow.acquire(1), 0);
+        Assert.assertFalse(prefetchWindow.hasCredit());
+
+        Assert.assertTrue(prefetchWindow.release(1, 0), "Window should reopen when a message is released");
+        Assert.assertFalse(prefetchWindow.release(1, 0), "Window was not exhausted before this release");
+        Assert.assertEquals(prefetchWindow.acquire(5), 2);
+    }
+
+    @Test
+    public void testByteLimit() throws Exception {
+        prefetchWindow.setLimits(0, 1000);
+
+        Assert.assertEquals(prefetchWindow.acquire(10), 1, "Credit should be granted one message at a time");
+        prefetchWindow.addBytes(600);
+        Assert.assertEquals(prefetchWindow.acquire(10), 1);
+        prefetchWindow.addBytes(600);
+        Assert.assertEquals(prefetchWindow.acquire(10), 0, "No credit should be granted above the byte limit");
+        Assert.assertFalse(prefetchWindow.hasCredit());
+
+        Assert.assertTrue(prefetchWindow.release(1, 600));
+        Assert.assertEquals(prefetchWindow.acquire(10), 1);
+    }
+
+    @Test
+    public void testWindowReopensOnlyWhenAllLimitsHaveCredit() throws Exception {
+        prefetchWindow.setLimits(1, 1000);
+        Assert.assertEquals(prefetchWindow.acquire(1), 1);
+        prefetchWindow.addBytes(2000);
+        Assert.assertEquals(prefetchWindow.acquire(1), 0);
+
+        Assert.assertFalse(prefetchWindow.release(0, 1500), "Message limit is still exhausted");
+        Assert.assertTrue(prefetchWindow.release(1, 0));
+        Assert.assertFalse(prefetchWindow.release(0, 500), "Window had credit before this release");
+    }
+
+    @Test
+    public void testWideningLimits() throws Exception {
+        Assert.assertFalse(prefetchWindow.setLimits(10, 0), "Unlimited window cannot be widened");
+        Assert.assertFalse(prefetchWindow.setLimits(5, 0));
+        Assert.assertTrue(prefetchWindow.setLimits(20, 0));
+        Assert.assertTrue(prefetchWindow.setLimits(0, 0));
+    }
+}
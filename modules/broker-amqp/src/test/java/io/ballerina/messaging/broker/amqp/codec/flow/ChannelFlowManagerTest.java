@@ -83,4 +83,39 @@ public class ChannelFlowManagerTest {
         // 2 times since flow is disabled and enables
         Mockito.verify(ctx, Mockito.times(2)).writeAndFlush(argumentCaptor.capture());
     }
+
+    @Test
+    public void testFlowEnabledOnceForBatchRemoval() throws Exception {
+        IntStream.rangeClosed(1, 11)
+                 .forEach(i -> channelFlowManager.notifyMessageAddition(ctx));
+        channelFlowManager.notifyMessageRemoval(ctx, 10);
+        // 2 times since flow is disabled and enabled by the single batch
+        Mockito.verify(ctx, Mockito.times(2)).writeAndFlush(argumentCaptor.capture());
+    }
+
+    @Test
+    public void testFlowDisabledUntilMemoryIsReleased() throws Exception {
+        MemoryMonitor memoryMonitor = Mockito.mock(MemoryMonitor.class);
+        ChannelFlowManager flowManager = new ChannelFlowManager(Mockito.mock(AmqpChannel.class), 2, 10,
+                                                                memoryMonitor);
+        Mockito.when(memoryMonitor.isBlocked()).thenReturn(true);
+        flowManager.notifyMessageAddition(ctx);
+        flowManager.notifyMessageRemoval(ctx);
+        // flow should stay disabled while memory is blocked even though the low limit is met
+        Mockito.verify(ctx, Mockito.times(1)).writeAndFlush(argumentCaptor.capture());
+
+        Mockito.when(memoryMonitor.isBlocked()).thenReturn(false);
+        flowManager.notifyMemoryStateChange(ctx);
+        Mockito.verify(ctx, Mockito.times(2)).writeAndFlush(argumentCaptor.capture());
+    }
+
+    @Test
+    public void testFlowNotDisabledOnMemoryBlockWithoutPublishing() throws Exception {
+        MemoryMonitor memoryMonitor = Mockito.mock(MemoryMonitor.class);
+        ChannelFlowManager flowManager = new ChannelFlowManager(Mockito.mock(AmqpChannel.class), 2, 10,
+                                                                memoryMonitor);
+        Mockito.when(memoryMonitor.isBlocked()).thenReturn(true);
+        flowManager.notifyMemoryStateChange(ctx);
+        Mockito.verify(ctx, Mockito.never()).writeAndFlush(argumentCaptor.capture());
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.flow;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for {@link MemoryMonitor}.
+ */
+public class MemoryMonitorTest {
+
+    private double heapUsage;
+
+    private double storeBacklog;
+
+    private MemoryMonitor memoryMonitor;
+
+    private List<Boolean> notifications;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        heapUsage = 0;
+        storeBacklog = 0;
+        memoryMonitor = new MemoryMonitor(0.6, 0.8, Arrays.asList(() -> heapUsage, () -> storeBacklog));
+        notifications = new ArrayList<>();
+        memoryMonitor.addListener(notifications::add);
+    }
+
+    @Test
+    public void testBlockedWhenAnyUsageReachesHighWatermark() throws Exception {
+        heapUsage = 0.5;
+        storeBacklog = 0.8;
+        memoryMonitor.check();
+
+        Assert.assertTrue(memoryMonitor.isBlocked(), "Store backlog reached the high watermark");
+        Assert.assertEquals(notifications, Arrays.asList(true));
+    }
+
+    @Test
+    public void testUnblockedOnlyBelowLowWatermark() throws Exception {
+        heapUsage = 0.9;
+        memoryMonitor.check();
+        heapUsage = 0.7;
+        memoryMonitor.check();
+
+        Assert.assertTrue(memoryMonitor.isBlocked(), "Usage between the watermarks should not unblock");
+
+        heapUsage = 0.5;
+        storeBacklog = 0.65;
+        memoryMonitor.check();
+
+        Assert.assertTrue(memoryMonitor.isBlocked(), "Store backlog is still above the low watermark");
+
+        storeBacklog = 0.1;
+        memoryMonitor.check();
+
+        Assert.assertFalse(memoryMonitor.isBlocked());
+        Assert.assertEquals(notifications, Arrays.asList(true, false));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeLowWatermarkAboveHighWatermark() throws Exception {
+        new MemoryMonitor(0.9, 0.8, new ArrayList<>());
+    }
+}
@@ -76,4 +76,25 @@ public class BasicPublishTest {
         Assert.assertEquals(decodedFrame.isImmediate(), testFrame.isImmediate(), "Decoded frame's immediate bit "
                 + "should match the original frame's immediate bit");
     }
+
+    @Test
+    public void testDecodedNamesAreShared() throws Exception {
+        BasicPublish first = decode(new BasicPublish(1, ShortString.parseString("amq.direct"),
+                                                     ShortString.parseString("shared.key"), false, false));
+        BasicPublish second = decode(new BasicPublish(2, ShortString.parseString("amq.direct"),
+                                                      ShortString.parseString("shared.key"), false, false));
+        BasicPublish other = decode(new BasicPublish(1, ShortString.parseString("amq.direct"),
+                                                     ShortString.parseString("other.key"), false, false));
+
+        Assert.assertSame(second.getExchange(), first.getExchange(), "Repeated exchange name should be shared");
+        Assert.assertSame(second.getRoutingKey(), first.getRoutingKey(), "Repeated routing key should be shared");
+        Assert.assertEquals(other.getRoutingKey(), ShortString.parseString("other.key"));
+    }
+
+    private static BasicPublish decode(BasicPublish frame) throws Exception {
+        ByteBuf buf = Unpooled.buffer((int) frame.getMethodBodySize());
+        frame.writeMethod(buf);
+        return (BasicPublish) BasicPublish.getFactory().newInstance(buf, frame.getChannel(),
+                                                                    frame.getMethodBodySize());
+    }
 }
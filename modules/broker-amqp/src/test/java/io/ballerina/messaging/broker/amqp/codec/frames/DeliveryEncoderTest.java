@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.frames;
+
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.ballerina.messaging.broker.core.ContentChunk;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test class for {@link DeliveryEncoder}.
+ */
+public class DeliveryEncoderTest {
+
+    private static final int CHANNEL = 3;
+
+    private static final long MAX_FRAME_SIZE = 4096;
+
+    @Test
+    public void testEncodedDeliveryMatchesSeparateFrames() {
+        ByteBuf firstChunk = Unpooled.copiedBuffer("first chunk", StandardCharsets.UTF_8);
+        ByteBuf secondChunk = Unpooled.copiedBuffer("second", StandardCharsets.UTF_8);
+        long contentLength = firstChunk.readableBytes() + secondChunk.readableBytes();
+
+        ByteBuf expected = Unpooled.buffer();
+        writeFrame(expected, createDeliverFrame());
+        writeFrame(expected, createHeaderFrame(contentLength));
+        writeFrame(expected, new ContentFrame(CHANNEL, firstChunk.readableBytes(), firstChunk.retainedDuplicate()));
+        writeFrame(expected, new ContentFrame(CHANNEL, secondChunk.readableBytes(), secondChunk.retainedDuplicate()));
+
+        ByteBuf delivery = DeliveryEncoder.encode(ByteBufAllocator.DEFAULT, CHANNEL, createDeliverFrame(),
+                                                  createHeaderFrame(contentLength),
+                                                  Arrays.asList(new ContentChunk(0, firstChunk),
+                                                                new ContentChunk(11, secondChunk)),
+                                                  MAX_FRAME_SIZE);
+
+        Assert.assertTrue(ByteBufUtil.equals(delivery, expected), "Encoded delivery should match the frames");
+        Assert.assertTrue(delivery instanceof CompositeByteBuf);
+        Assert.assertEquals(firstChunk.refCnt(), 1, "Content should be referenced instead of copied");
+
+        delivery.release();
+        expected.release();
+        Assert.assertEquals(firstChunk.refCnt(), 0, "Content should be released with the delivery");
+        Assert.assertEquals(secondChunk.refCnt(), 0, "Content should be released with the delivery");
+    }
+
+    @Test
+    public void testContentIsSplitToMaxFrameSize() {
+        ByteBuf chunk = Unpooled.copiedBuffer("content of twenty ch", StandardCharsets.UTF_8);
+        int maxPayloadSize = 8;
+
+        ByteBuf expected = Unpooled.buffer();
+        writeFrame(expected, createDeliverFrame());
+        writeFrame(expected, createHeaderFrame(chunk.readableBytes()));
+        writeFrame(expected, new ContentFrame(CHANNEL, 8, chunk.retainedSlice(0, 8)));
+        writeFrame(expected, new ContentFrame(CHANNEL, 8, chunk.retainedSlice(8, 8)));
+        writeFrame(expected, new ContentFrame(CHANNEL, 4, chunk.retainedSlice(16, 4)));
+
+        ByteBuf delivery = DeliveryEncoder.encode(ByteBufAllocator.DEFAULT, CHANNEL, createDeliverFrame(),
+                                                  createHeaderFrame(chunk.readableBytes()),
+                                                  Collections.singletonList(new ContentChunk(0, chunk)),
+                                                  maxPayloadSize + GeneralFrame.FRAME_OVERHEAD);
+
+        Assert.assertTrue(ByteBufUtil.equals(delivery, expected), "Content should be sent in three frames");
+        delivery.release();
+        expected.release();
+        Assert.assertEquals(chunk.refCnt(), 0, "Content should be released with the delivery");
+    }
+
+    @Test
+    public void testEncodeDeliveryWithoutContent() {
+        ByteBuf expected = Unpooled.buffer();
+        writeFrame(expected, createDeliverFrame());
+        writeFrame(expected, createHeaderFrame(0));
+
+        ByteBuf delivery = DeliveryEncoder.encode(ByteBufAllocator.DEFAULT, CHANNEL, createDeliverFrame(),
+                                                  createHeaderFrame(0), Collections.emptyList(), MAX_FRAME_SIZE);
+
+        Assert.assertTrue(ByteBufUtil.equals(delivery, expected), "Encoded delivery should match the frames");
+        delivery.release();
+        expected.release();
+    }
+
+    private static void writeFrame(ByteBuf out, GeneralFrame frame) {
+        ByteBuf buf = frame.write(ByteBufAllocator.DEFAULT);
+        out.writeBytes(buf);
+        buf.release();
+    }
+
+    private static BasicDeliver createDeliverFrame() {
+        return new BasicDeliver(CHANNEL, ShortString.parseString("consumer"), 7, false,
+                                ShortString.parseString("amq.direct"), ShortString.parseString("queue"));
+    }
+
+    private static HeaderFrame createHeaderFrame(long contentLength) {
+        return new HeaderFrame(CHANNEL, 60, contentLength);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.handlers;
+
+import io.ballerina.messaging.broker.amqp.AmqpServerConfiguration;
+import io.ballerina.messaging.broker.amqp.codec.flow.MemoryMonitor;
+import io.ballerina.messaging.broker.amqp.codec.frames.BasicAck;
+import io.ballerina.messaging.broker.amqp.codec.frames.BasicPublish;
+import io.ballerina.messaging.broker.amqp.metrics.AmqpMetricManager;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.ballerina.messaging.broker.core.Broker;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link AmqpConnectionHandler}.
+ */
+public class AmqpConnectionHandlerTest {
+
+    private static final int CHANNEL_ID = 1;
+
+    private MemoryMonitor memoryMonitor;
+
+    private MemoryMonitor.Listener memoryListener;
+
+    private EmbeddedChannel channel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        memoryMonitor = Mockito.mock(MemoryMonitor.class);
+        AmqpConnectionHandler connectionHandler = new AmqpConnectionHandler(new AmqpServerConfiguration(),
+                                                                            Mockito.mock(Broker.class),
+                                                                            Mockito.mock(AmqpMetricManager.class),
+                                                                            memoryMonitor);
+        channel = new EmbeddedChannel(connectionHandler);
+        ArgumentCaptor<MemoryMonitor.Listener> listenerCaptor = ArgumentCaptor.forClass(MemoryMonitor.Listener.class);
+        Mockito.verify(memoryMonitor).addListener(listenerCaptor.capture());
+        memoryListener = listenerCaptor.getValue();
+        connectionHandler.createChannel(CHANNEL_ID);
+    }
+
+    @Test
+    public void testBlockedConnectionReadsUntilNextPublish() throws Exception {
+        channel.writeInbound(createPublish());
+        setMemoryBlocked(true);
+
+        Assert.assertTrue(channel.config().isAutoRead(),
+                          "A blocked connection should be read so that consumers can acknowledge messages");
+        channel.writeInbound(new BasicAck(CHANNEL_ID, 1, false));
+        Assert.assertTrue(channel.config().isAutoRead(), "Acknowledgements should not suspend reading");
+
+        channel.writeInbound(createPublish());
+        Assert.assertFalse(channel.config().isAutoRead(), "A publish on a blocked connection should suspend reading");
+
+        setMemoryBlocked(false);
+        Assert.assertTrue(channel.config().isAutoRead(), "Reading should resume once the connection is unblocked");
+    }
+
+    @Test
+    public void testFirstPublishOnBlockedBrokerSuspendsReading() throws Exception {
+        setMemoryBlocked(true);
+        Assert.assertTrue(channel.config().isAutoRead(), "A connection that did not publish should not be blocked");
+
+        channel.writeInbound(createPublish());
+        Assert.assertFalse(channel.config().isAutoRead());
+    }
+
+    private void setMemoryBlocked(boolean blocked) {
+        Mockito.when(memoryMonitor.isBlocked()).thenReturn(blocked);
+        memoryListener.onBlockedStateChange(blocked);
+        channel.runPendingTasks();
+    }
+
+    private static BasicPublish createPublish() {
+        return new BasicPublish(CHANNEL_ID, ShortString.parseString("amq.direct"), ShortString.parseString("a.b.c"),
+                                false, false);
+    }
+}
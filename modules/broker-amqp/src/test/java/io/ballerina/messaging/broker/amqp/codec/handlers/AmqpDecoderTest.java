@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.amqp.codec.handlers;
+
+import io.ballerina.messaging.broker.amqp.codec.ConnectionException;
+import io.ballerina.messaging.broker.amqp.codec.auth.AuthenticationStrategy;
+import io.ballerina.messaging.broker.amqp.codec.frames.AmqMethodRegistry;
+import io.ballerina.messaging.broker.amqp.codec.frames.BasicPublish;
+import io.ballerina.messaging.broker.amqp.codec.frames.ConnectionClose;
+import io.ballerina.messaging.broker.amqp.codec.frames.ProtocolInitFrame;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link AmqpDecoder}.
+ */
+public class AmqpDecoderTest {
+
+    private EmbeddedChannel channel;
+
+    private AmqpDecoder decoder;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        AmqMethodRegistry methodRegistry = new AmqMethodRegistry(Mockito.mock(AuthenticationStrategy.class));
+        decoder = new AmqpDecoder(methodRegistry);
+        channel = new EmbeddedChannel(decoder);
+
+        ByteBuf protocolHeader = Unpooled.buffer(8);
+        protocolHeader.writeCharSequence("AMQP", CharsetUtil.US_ASCII);
+        protocolHeader.writeBytes(new byte[]{0, 0, 9, 1});
+        channel.writeInbound(protocolHeader);
+        Assert.assertTrue(channel.readInbound() instanceof ProtocolInitFrame);
+    }
+
+    @Test
+    public void testFrameReceivedInSeveralReads() throws Exception {
+        BasicPublish frame = new BasicPublish(3, ShortString.parseString("amq.direct"),
+                                              ShortString.parseString("a.b.c"), false, false);
+        ByteBuf buf = frame.write(UnpooledByteBufAllocator.DEFAULT);
+        int length = buf.readableBytes();
+
+        // Part of the header, the rest of the header with part of the payload, then the rest of the frame
+        channel.writeInbound(buf.readRetainedSlice(3));
+        Assert.assertNull(channel.readInbound(), "Frame should not be decoded from a partial header");
+        channel.writeInbound(buf.readRetainedSlice(length / 2 - 3));
+        Assert.assertNull(channel.readInbound(), "Frame should not be decoded from a partial payload");
+        channel.writeInbound(buf.readRetainedSlice(buf.readableBytes()));
+        buf.release();
+
+        BasicPublish decodedFrame = channel.readInbound();
+        Assert.assertEquals(decodedFrame.getChannel(), 3);
+        Assert.assertEquals(decodedFrame.getExchange(), frame.getExchange());
+        Assert.assertEquals(decodedFrame.getRoutingKey(), frame.getRoutingKey());
+    }
+
+    @Test
+    public void testSeveralFramesInOneRead() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        for (int i = 1; i <= 3; i++) {
+            BasicPublish frame = new BasicPublish(i, ShortString.parseString("amq.direct"),
+                                                  ShortString.parseString("key"), false, false);
+            frame.write(buf, frame.getPayloadSize());
+        }
+        channel.writeInbound(buf);
+
+        for (int i = 1; i <= 3; i++) {
+            BasicPublish decodedFrame = channel.readInbound();
+            Assert.assertEquals(decodedFrame.getChannel(), i);
+        }
+        Assert.assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testOversizeFrameClosesConnectionWithFrameError() throws Exception {
+        BasicPublish frame = new BasicPublish(1, ShortString.parseString("amq.direct"),
+                                              ShortString.parseString("a.b.c"), false, false);
+        ByteBuf buf = frame.write(UnpooledByteBufAllocator.DEFAULT);
+        decoder.setMaxFrameSize(buf.readableBytes() - 1);
+
+        channel.writeInbound(buf);
+
+        Assert.assertNull(channel.readInbound(), "Oversize frame should not be decoded");
+        ConnectionClose connectionClose = channel.readOutbound();
+        Assert.assertNotNull(connectionClose, "Client should be notified before closing the connection");
+        Assert.assertEquals(connectionClose.getReplyCode(), ConnectionException.FRAME_ERROR);
+        Assert.assertFalse(channel.isOpen(), "Connection should be closed after an oversize frame");
+    }
+}
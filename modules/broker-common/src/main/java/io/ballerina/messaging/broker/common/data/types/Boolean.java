@@ -61,6 +61,10 @@ public class Boolean implements EncodableData {
         return new Boolean(buf.readByte());
     }
 
+    public static Boolean parse(boolean value) {
+        return new Boolean((byte) (value ? 1 : 0));
+    }
+
     @Override
     public String toString() {
         return (value == 0) ? "false" : "true";
@@ -38,6 +38,11 @@ public class ShortString implements EncodableData {
     // We should do a perf test before switching to char sequence.
     private final byte[] content;
 
+    /**
+     * Decoded string value. Computed lazily and kept since the same instance can be shared by many frames.
+     */
+    private String stringValue;
+
     @SuppressFBWarnings("EI_EXPOSE_REP2")
     public ShortString(long length, byte[] content) {
         this.length = length;
@@ -67,7 +72,32 @@ public class ShortString implements EncodableData {
 
     @Override
     public String toString() {
-        return new String(content, StandardCharsets.UTF_8);
+        String value = stringValue;
+        if (value == null) {
+            value = new String(content, StandardCharsets.UTF_8);
+            stringValue = value;
+        }
+        return value;
+    }
+
+    /**
+     * Compares the underlying byte array content with a region of a buffer without reading the buffer.
+     *
+     * @param buf    buffer to compare with
+     * @param index  index of the first byte of the region
+     * @param length length of the region
+     * @return True if the region has the same content
+     */
+    public boolean contentEquals(ByteBuf buf, int index, int length) {
+        if (length != content.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buf.getByte(index + i) != content[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import org.wso2.carbon.metrics.core.MetricService;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import javax.sql.DataSource;
@@ -77,7 +78,7 @@ public final class Broker {
                                                                                   BrokerConfiguration.class);
         DataSource dataSource = startupContext.getService(DataSource.class);
         StoreFactory storeFactory = new StoreFactory(dataSource, metricManager, configuration);
-        this.messagingEngine = new MessagingEngine(storeFactory, metricManager);
+        this.messagingEngine = new MessagingEngine(storeFactory, metricManager, configuration);
         BrokerServiceRunner serviceRunner = startupContext.getService(BrokerServiceRunner.class);
         serviceRunner.deploy(new QueuesApi(this), new ExchangesApi(this));
         startupContext.registerService(Broker.class, this);
@@ -105,6 +106,44 @@ public final class Broker {
         metricManager.markAcknowledge();
     }
 
+    /**
+     * Acknowledge a batch of messages of a queue. The messages are detached from the queue as a single batch.
+     *
+     * @param queueName name of the queue the messages belong to
+     * @param messages  acknowledged messages
+     * @throws BrokerException if the messages cannot be acknowledged
+     */
+    public void acknowledge(String queueName, List<Message> messages) throws BrokerException {
+        messagingEngine.acknowledge(queueName, messages);
+        for (int i = 0; i < messages.size(); i++) {
+            metricManager.markAcknowledge();
+        }
+    }
+
+    /**
+     * Dequeue a message without registering a consumer. The message is unacknowledged until it is acknowledged,
+     * requeued or moved to the DLC by the caller.
+     *
+     * @param queueName name of the queue
+     * @return dequeued message or null if the queue has no deliverable messages
+     * @throws BrokerException if the queue does not exist
+     */
+    public Message get(String queueName) throws BrokerException {
+        return messagingEngine.get(queueName);
+    }
+
+    /**
+     * Dequeue up to the given number of messages without registering a consumer.
+     *
+     * @param queueName   name of the queue
+     * @param maxMessages maximum number of messages to dequeue
+     * @return dequeued messages in queue order. Empty if the queue has no deliverable messages
+     * @throws BrokerException if the queue does not exist
+     */
+    public List<Message> get(String queueName, int maxMessages) throws BrokerException {
+        return messagingEngine.get(queueName, maxMessages);
+    }
+
     /**
      * Adds a consumer for a queue. Queue will be the queue returned from {@link Consumer#getQueueName()}
      *
@@ -138,6 +177,11 @@ public final class Broker {
         return messagingEngine.createQueue(queueName, passive, durable, autoDelete);
     }
 
+    public boolean createQueue(String queueName, boolean passive, boolean durable, boolean autoDelete,
+                               FieldTable arguments) throws BrokerException, ValidationException {
+        return messagingEngine.createQueue(queueName, passive, durable, autoDelete, arguments);
+    }
+
     public int deleteQueue(String queueName, boolean ifUnused, boolean ifEmpty) throws BrokerException,
                                                                                            ValidationException,
                                                                                            ResourceNotFoundException {
@@ -171,10 +215,30 @@ public final class Broker {
         return messagingEngine.getNextMessageId();
     }
 
+    /**
+     * Get the fraction of the message store buffer taken by operations that are not yet written to the database.
+     *
+     * @return store backlog as a value between 0 and 1
+     */
+    public double getStoreBacklog() {
+        return messagingEngine.getStoreBacklog();
+    }
+
     public void requeue(String queueName, Message message) throws BrokerException {
         messagingEngine.requeue(queueName, message);
     }
 
+    /**
+     * Requeue a batch of messages of a queue with a single queue operation. The messages keep their order.
+     *
+     * @param queueName name of the queue the messages belong to
+     * @param messages  messages to requeue
+     * @throws BrokerException if the messages cannot be requeued
+     */
+    public void requeue(String queueName, List<Message> messages) throws BrokerException {
+        messagingEngine.requeue(queueName, messages);
+    }
+
     public Collection<QueueHandler> getAllQueues() {
         return messagingEngine.getAllQueues();
     }
@@ -183,6 +247,17 @@ public final class Broker {
         return messagingEngine.getQueue(queueName);
     }
 
+    /**
+     * Release a rejected message that is not requeued from its message group. Otherwise the group stays pinned to
+     * the consumer since the message is never acknowledged.
+     *
+     * @param queueName name of the queue the message was delivered from
+     * @param message   rejected message
+     */
+    public void releaseMessageGroup(String queueName, Message message) {
+        messagingEngine.releaseMessageGroup(queueName, message);
+    }
+
     public void moveToDlc(String queueName, Message message) throws BrokerException {
         messagingEngine.moveToDlc(queueName, message);
     }
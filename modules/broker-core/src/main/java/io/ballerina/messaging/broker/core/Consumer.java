@@ -19,6 +19,7 @@
 
 package io.ballerina.messaging.broker.core;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -26,10 +27,20 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public abstract class Consumer {
 
+    /**
+     * Priority of a consumer that did not request a priority.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
     private static final AtomicInteger idGenerator = new AtomicInteger(0);
 
     private final int id;
 
+    /**
+     * Handler of the queue the consumer is subscribed to.
+     */
+    private volatile QueueHandler queueHandler;
+
     public Consumer() {
         this.id = idGenerator.incrementAndGet();
     }
@@ -74,6 +85,76 @@ public abstract class Consumer {
      */
     public abstract boolean isReady();
 
+    /**
+     * Priority of the consumer. Consumers with a higher priority are given messages before consumers with a lower
+     * priority, as long as they are ready.
+     *
+     * @return consumer priority
+     */
+    public int getPriority() {
+        return DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Acquire credit to send messages to the consumer. The delivery task sends up to the granted number of messages
+     * to the consumer in one go and returns unused credit using {@link #releaseCredit(int)}.
+     * <p>
+     * The default implementation grants a single message while the consumer is ready so that messages are
+     * distributed among consumers one by one. Consumers with a known delivery window, such as a prefetch limit,
+     * should grant the remaining window.
+     *
+     * @param maxCount maximum number of messages the caller intends to send
+     * @return number of messages that can be sent, zero if the consumer cannot take messages
+     */
+    public int acquireCredit(int maxCount) {
+        return isReady() && maxCount > 0 ? 1 : 0;
+    }
+
+    /**
+     * Return credit acquired through {@link #acquireCredit(int)} that was not used to send messages.
+     *
+     * @param count number of unused messages
+     */
+    public void releaseCredit(int count) {
+        // Credit is not tracked by default
+    }
+
+    /**
+     * Flush the messages sent since the last flush. The delivery task calls this once after sending a batch of
+     * messages. Therefore transports can buffer messages in {@link #send(Message)} and write the whole batch at once.
+     * The default implementation does nothing.
+     */
+    protected void flush() {
+        // Messages are not buffered by default
+    }
+
+    /**
+     * Executor the transport writes messages of the consumer on, for instance the I/O thread of the connection.
+     * Delivering on this executor avoids handing messages over to another thread. A consumer without such an
+     * executor returns null, which is the default.
+     *
+     * @return delivery executor of the consumer, or null
+     */
+    public Executor getDeliveryExecutor() {
+        return null;
+    }
+
+    /**
+     * Notify that the consumer became ready to receive messages after being not ready. Delivery from an idle queue
+     * is resumed only when the queue is notified. Therefore transports need to call this when, for instance, flow
+     * is resumed or acknowledgements return credit to an exhausted consumer.
+     */
+    public final void notifyReady() {
+        QueueHandler handler = queueHandler;
+        if (handler != null) {
+            handler.notifyConsumerReady();
+        }
+    }
+
+    void setQueueHandler(QueueHandler queueHandler) {
+        this.queueHandler = queueHandler;
+    }
+
     @Override public boolean equals(Object obj) {
         return super.equals(obj);
     }
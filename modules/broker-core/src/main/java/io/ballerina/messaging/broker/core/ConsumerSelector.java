@@ -19,25 +19,21 @@
 
 package io.ballerina.messaging.broker.core;
 
-import java.util.Iterator;
-
 /**
- * Consumer iterator which infinitely cycle through the underlying set of {@link Consumer} objects. This gives a
- * snapshot of the {@link Consumer} for a given point in time.
+ * Strategy used by the {@link MessageDeliveryTask} to select the consumer for the next message of a queue.
+ * Implementations are used by a single delivery task at a time.
  */
-final class CyclicConsumerIterator {
-
-    private Iterator<Consumer> iterator = null;
-
-    boolean hasNext() {
-        return iterator.hasNext();
-    }
+interface ConsumerSelector {
 
-    Consumer next() {
-        return iterator.next();
-    }
+    /**
+     * Start a new delivery run. Implementations can take a snapshot of the consumers of the queue.
+     */
+    void reset();
 
-    void setIterator(Iterator<Consumer> iterator) {
-        this.iterator = iterator;
-    }
+    /**
+     * Select the consumer for the next message.
+     *
+     * @return a consumer that is ready to receive a message, or null if no consumer is ready
+     */
+    Consumer next();
 }
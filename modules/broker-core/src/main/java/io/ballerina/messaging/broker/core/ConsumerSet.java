@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Copy-on-write set of the consumers of a queue. Consumers are added and removed rarely compared to how often they
+ * are selected for delivery. Therefore every change copies the backing array and readers can use the current array
+ * as an immutable snapshot without locking or allocating.
+ */
+final class ConsumerSet extends AbstractSet<Consumer> {
+
+    private static final Consumer[] EMPTY = new Consumer[0];
+
+    private volatile Consumer[] snapshot = EMPTY;
+
+    /**
+     * Get the consumers at the time of the call. The returned array must not be modified.
+     *
+     * @return consumer array
+     */
+    Consumer[] snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public synchronized boolean add(Consumer consumer) {
+        Consumer[] current = snapshot;
+        if (indexOf(current, consumer) >= 0) {
+            return false;
+        }
+        Consumer[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = consumer;
+        snapshot = updated;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object consumer) {
+        Consumer[] current = snapshot;
+        int index = indexOf(current, consumer);
+        if (index < 0) {
+            return false;
+        }
+        Consumer[] updated = new Consumer[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        snapshot = updated;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object consumer) {
+        return indexOf(snapshot, consumer) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot.length == 0;
+    }
+
+    @Override
+    public Iterator<Consumer> iterator() {
+        return new SnapshotIterator(snapshot);
+    }
+
+    private static int indexOf(Consumer[] consumers, Object consumer) {
+        for (int i = 0; i < consumers.length; i++) {
+            if (consumers[i].equals(consumer)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates over the consumers at the time the iterator was created. Removal is applied to the set.
+     */
+    private final class SnapshotIterator implements Iterator<Consumer> {
+
+        private final Consumer[] consumers;
+
+        private int cursor;
+
+        private Consumer lastReturned;
+
+        SnapshotIterator(Consumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < consumers.length;
+        }
+
+        @Override
+        public Consumer next() {
+            if (cursor >= consumers.length) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = consumers[cursor++];
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            ConsumerSet.this.remove(lastReturned);
+            lastReturned = null;
+        }
+    }
+}
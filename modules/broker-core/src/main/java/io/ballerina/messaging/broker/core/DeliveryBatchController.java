@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import io.ballerina.messaging.broker.core.metrics.BrokerMetricManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how many messages a {@link MessageDeliveryTask} delivers in a single invocation. The batch size follows
+ * the measured delivery rate of the queue so that each invocation takes roughly the target time slice. Fast queues
+ * get large batches that amortise the scheduling cost while a queue with slow deliveries releases its worker
+ * sooner.
+ * <p>
+ * This class is not thread safe. A delivery task is never run concurrently.
+ */
+final class DeliveryBatchController {
+
+    /**
+     * Time a single delivery task invocation should take.
+     */
+    static final long TARGET_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    static final int MIN_BATCH_SIZE = 16;
+
+    static final int MAX_BATCH_SIZE = 10000;
+
+    /**
+     * Batch size used until a delivery rate is measured.
+     */
+    static final int INITIAL_BATCH_SIZE = 1000;
+
+    /**
+     * Weight given to the latest sample when smoothing the delivery rate.
+     */
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    private final BrokerMetricManager metricManager;
+
+    private int batchSize = INITIAL_BATCH_SIZE;
+
+    /**
+     * Smoothed delivery rate in messages per nanosecond. Zero until the first sample.
+     */
+    private double deliveryRate;
+
+    DeliveryBatchController(BrokerMetricManager metricManager) {
+        this.metricManager = metricManager;
+    }
+
+    /**
+     * Maximum number of messages to deliver in the next invocation.
+     *
+     * @return batch size
+     */
+    int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Record the outcome of a delivery task invocation.
+     *
+     * @param deliveredCount number of messages delivered
+     * @param elapsedNanos   time taken by the invocation
+     * @param limitReached   true if the invocation stopped because the batch size was reached. False if it stopped
+     *                       because the queue was empty or no consumer was ready
+     */
+    void recordSlice(int deliveredCount, long elapsedNanos, boolean limitReached) {
+        if (deliveredCount == 0) {
+            return;
+        }
+
+        metricManager.updateDeliveryBatchSize(batchSize);
+        metricManager.updateDeliverySliceTime(elapsedNanos);
+
+        double sampleRate = deliveredCount / (double) Math.max(elapsedNanos, 1L);
+        if (deliveryRate == 0) {
+            deliveryRate = sampleRate;
+        } else {
+            deliveryRate = SMOOTHING_FACTOR * sampleRate + (1 - SMOOTHING_FACTOR) * deliveryRate;
+        }
+
+        int targetBatchSize = clamp((long) (deliveryRate * TARGET_SLICE_NANOS));
+        if (limitReached) {
+            batchSize = targetBatchSize;
+        } else {
+            // Consumers or the queue ran dry before the limit. There is no evidence that a larger batch would be
+            // used, but the batch still shrinks if deliveries became slow
+            batchSize = Math.min(batchSize, targetBatchSize);
+        }
+    }
+
+    private static int clamp(long size) {
+        if (size < MIN_BATCH_SIZE) {
+            return MIN_BATCH_SIZE;
+        } else if (size > MAX_BATCH_SIZE) {
+            return MAX_BATCH_SIZE;
+        }
+        return (int) size;
+    }
+}
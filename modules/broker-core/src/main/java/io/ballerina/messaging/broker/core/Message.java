@@ -43,6 +43,12 @@ public class Message {
 
     private final Set<String> queueSet;
 
+    /**
+     * Message group the message is counted in while it is in flight. Null if the message does not belong to a group
+     * or is not in flight.
+     */
+    private QueueHandler.MessageGroup messageGroup;
+
     /**
      * Unique id of the message.
      */
@@ -147,6 +153,14 @@ public class Message {
         }
     }
 
+    QueueHandler.MessageGroup getMessageGroup() {
+        return messageGroup;
+    }
+
+    void setMessageGroup(QueueHandler.MessageGroup messageGroup) {
+        this.messageGroup = messageGroup;
+    }
+
     public void setMetadata(Metadata metadata) {
         this.metadata = metadata;
     }
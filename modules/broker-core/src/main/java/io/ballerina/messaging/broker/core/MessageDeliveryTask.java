@@ -19,13 +19,27 @@
 
 package io.ballerina.messaging.broker.core;
 
+import io.ballerina.messaging.broker.common.data.types.EncodableData;
+import io.ballerina.messaging.broker.core.metrics.BrokerMetricManager;
 import io.ballerina.messaging.broker.core.task.Task;
 import io.ballerina.messaging.broker.core.util.MessageTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
 /**
  * Delivers messages to consumers for a given queueHandler.
+ * <p>
+ * With event loop affinity enabled, a queue whose consumers share a {@link Consumer#getDeliveryExecutor() delivery
+ * executor}, for instance the I/O thread of a single connection, is delivered on that executor. The task processor
+ * then only hands each delivery batch over to the executor, and messages are dequeued and written on one thread.
  */
 final class MessageDeliveryTask extends Task {
 
@@ -33,18 +47,60 @@ final class MessageDeliveryTask extends Task {
 
     private final QueueHandler queueHandler;
 
-    MessageDeliveryTask(QueueHandler queueHandler) {
+    private final DeliveryBatchController batchController;
+
+    /**
+     * Runs delivery batches on the delivery executor of the consumers. Null if event loop affinity is disabled.
+     */
+    private final AffinityDelivery affinityDelivery;
+
+    /**
+     * Messages of groups whose consumer ran out of credit after the messages were dequeued. They are put back at the
+     * end of the batch while the other messages keep flowing.
+     */
+    private final List<Message> heldMessages = new ArrayList<>();
+
+    /**
+     * Groups of the held messages. Later messages of these groups are held as well to keep the group order.
+     */
+    private final Set<EncodableData> heldGroups = new HashSet<>();
+
+    /**
+     * Accepts the messages that can be delivered in the current batch. Messages of groups pinned to a consumer that
+     * is not ready are left in the queue without being dequeued.
+     */
+    private final Predicate<Message> deliverableFilter = this::isDeliverable;
+
+    /**
+     * Consumer selected for the messages dequeued next.
+     */
+    private Consumer selectedConsumer;
+
+    MessageDeliveryTask(QueueHandler queueHandler, BrokerMetricManager metricManager) {
+        this(queueHandler, metricManager, false);
+    }
+
+    /**
+     * Create a delivery task.
+     *
+     * @param queueHandler      queue to deliver messages from
+     * @param metricManager     metric manager
+     * @param eventLoopAffinity if true messages are delivered on the delivery executor shared by all consumers
+     */
+    MessageDeliveryTask(QueueHandler queueHandler, BrokerMetricManager metricManager, boolean eventLoopAffinity) {
         this.queueHandler = queueHandler;
+        this.batchController = new DeliveryBatchController(metricManager);
+        this.affinityDelivery = eventLoopAffinity ? new AffinityDelivery() : null;
     }
 
     @Override
     public void onAdd() {
-
+        queueHandler.setDeliveryTask(this);
     }
 
     @Override
     public void onRemove() {
-
+        queueHandler.clearDeliveryTask(this);
     }
 
     @Override
@@ -52,56 +108,265 @@ final class MessageDeliveryTask extends Task {
         return queueHandler.getQueue().getName();
     }
 
+    @Override
+    public int getWeight() {
+        return queueHandler.getDeliveryWeight();
+    }
+
     @Override
     public TaskHint call() throws Exception {
-        CyclicConsumerIterator consumerIterator = queueHandler.getCyclicConsumerIterator();
-        if (!consumerIterator.hasNext()) {
+        if (affinityDelivery != null && affinityDelivery.handOver()) {
             return TaskHint.IDLE;
         }
+        return deliver(true);
+    }
 
-        int deliveredCount = 0;
-        Consumer previousConsumer = null;
-        while (true) {
-            Consumer consumer = consumerIterator.next();
+    /**
+     * Deliver a batch of messages.
+     *
+     * @param blockingReads false when delivering on an I/O thread, where reads of message data must not wait for
+     *                      the message store
+     * @return task hint for the next batch
+     */
+    private TaskHint deliver(boolean blockingReads) throws BrokerException {
+        ConsumerSelector consumerSelector = queueHandler.getConsumerSelector();
+        int batchSize = batchController.batchSize();
+        long startTime = System.nanoTime();
 
-            if (!consumer.isReady()) {
+        int deliveredCount = 0;
+        long deliveredBytes = 0;
+        boolean stopped = false;
+        // Message dequeued ahead of acquiring credit so that credit is not taken while the queue is empty
+        Message message = null;
+        while (!stopped && deliveredCount < batchSize) {
+            Consumer consumer = consumerSelector.next();
+            if (consumer == null) {
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Consumer {} is not ready for consuming messages from {}",
-                                 consumer,
+                    LOGGER.debug("No consumer is ready for consuming messages from {}",
                                  queueHandler.getQueue().getName());
                 }
+                break;
+            }
 
-                if (consumer.equals(previousConsumer)) {
-                    return TaskHint.IDLE;
-                } else {
-                    previousConsumer = consumer;
-                    continue;
+            selectedConsumer = consumer;
+            if (message == null) {
+                message = dequeue(blockingReads);
+                if (message == null) {
+                    // We need to break the while loop if there are no messages in the queue
+                    break;
                 }
-            } else {
-                // TODO: handle send errors
-                Message message = queueHandler.dequeue();
+            }
 
-                if (message != null) {
-                    LOGGER.debug("Sending message {} to {}", message, consumer);
+            // Credit can be zero if a concurrent delivery used it up after the consumer was selected
+            int credit = consumer.acquireCredit(batchSize - deliveredCount);
+            while (credit > 0) {
+                // TODO: handle send errors
+                Consumer groupConsumer = selectConsumer(message, consumer);
+                if (groupConsumer == null) {
+                    heldMessages.add(message);
+                } else {
+                    if (groupConsumer == consumer) {
+                        credit--;
+                    }
+                    LOGGER.debug("Sending message {} to {}", message, groupConsumer);
                     MessageTracer.trace(message, queueHandler, MessageTracer.DELIVER);
-                    consumer.send(message);
+                    deliveredBytes += message.getMetadata().getContentLength();
+                    groupConsumer.send(message);
                     deliveredCount++;
-                    // TODO: make the value configurable
-                    if (deliveredCount == 1000) {
-                        break;
-                    }
-                } else {
-                    // We need to break the while loop if there are no messages in the queue
+                }
+                message = null;
+
+                if (heldMessages.size() >= batchSize) {
+                    // Do not scan the whole queue for messages of other groups
+                    stopped = true;
+                    break;
+                }
+                if (credit == 0 || deliveredCount == batchSize) {
+                    break;
+                }
+                message = dequeue(blockingReads);
+                if (message == null) {
+                    stopped = true;
                     break;
                 }
             }
 
-            previousConsumer = consumer;
+            if (credit > 0) {
+                consumer.releaseCredit(credit);
+            }
+        }
+        selectedConsumer = null;
+
+        if (message != null) {
+            queueHandler.putBack(message);
         }
+        if (!heldMessages.isEmpty()) {
+            // Delivery resumes when the group consumers are ready again
+            for (Message heldMessage : heldMessages) {
+                queueHandler.putBack(heldMessage);
+            }
+            heldMessages.clear();
+            heldGroups.clear();
+        }
+        if (deliveredCount > 0) {
+            // Flush once per batch instead of once per message
+            queueHandler.flushConsumers();
+        }
+        batchController.recordSlice(deliveredCount, System.nanoTime() - startTime, deliveredCount == batchSize);
+        if (affinityDelivery != null) {
+            affinityDelivery.addCost(deliveredBytes);
+        } else {
+            recordCost(deliveredBytes);
+        }
+
         if (deliveredCount > 0) {
             return TaskHint.ACTIVE;
         } else {
             return TaskHint.IDLE;
         }
     }
+
+    private Message dequeue(boolean blockingReads) {
+        if (blockingReads) {
+            return queueHandler.dequeue(deliverableFilter);
+        } else {
+            return queueHandler.dequeueWithoutBlocking(deliverableFilter);
+        }
+    }
+
+    private boolean isDeliverable(Message message) {
+        EncodableData groupId = QueueHandler.getMessageGroupId(message);
+        return groupId == null
+                || (!heldGroups.contains(groupId) && queueHandler.isMessageGroupReady(groupId, selectedConsumer));
+    }
+
+    /**
+     * Select the consumer a message is sent to. Credit is acquired for a message group consumer other than the given
+     * consumer.
+     *
+     * @param message  message to deliver
+     * @param consumer consumer selected for the next delivery, credit for the message is already acquired
+     * @return consumer to send the message to, or null if the message is held since its group consumer has no credit
+     */
+    private Consumer selectConsumer(Message message, Consumer consumer) {
+        EncodableData groupId = QueueHandler.getMessageGroupId(message);
+        if (groupId == null) {
+            return consumer;
+        } else if (heldGroups.contains(groupId)) {
+            return null;
+        }
+
+        Consumer groupConsumer = queueHandler.selectConsumer(groupId, message, consumer);
+        if (groupConsumer != consumer && groupConsumer.acquireCredit(1) == 0) {
+            queueHandler.releaseMessageGroup(message);
+            heldGroups.add(groupId);
+            return null;
+        }
+        return groupConsumer;
+    }
+
+    /**
+     * Hands delivery batches over to the delivery executor of the consumers. At most one hand over is in flight at a
+     * time, and the task processor does not deliver while a hand over is in flight. Therefore batches never run
+     * concurrently. Each hand over delivers up to {@link #MAX_BATCHES_PER_HAND_OVER} batches to spread the cost of
+     * the hand over, and every hand over is made by the task processor so that the queue keeps its share of the
+     * delivery threads and delivery stops together with the task executor.
+     * <p>
+     * Message data is not read with blocking reads on the delivery executor. If a hand over stops with messages left
+     * in the queue, the next batch is delivered by the task processor, which reads the data of the messages.
+     */
+    private final class AffinityDelivery implements Runnable {
+
+        /**
+         * Kept low since the batches of a hand over hold up the other channels of the delivery executor.
+         */
+        private static final int MAX_BATCHES_PER_HAND_OVER = 4;
+
+        /**
+         * Executor the in flight hand over was made to.
+         */
+        private Executor executor;
+
+        /**
+         * True while batches are handed over and not completed.
+         */
+        private volatile boolean inFlight;
+
+        /**
+         * Set when the task is signalled while a batch is in flight.
+         */
+        private volatile boolean signalled;
+
+        /**
+         * Set when the delivery executor left messages it could not deliver without blocking. The next batch is then
+         * delivered by the task processor.
+         */
+        private volatile boolean processorTurn;
+
+        /**
+         * Cost of the batches delivered on the delivery executor, reported from the task processor since the
+         * scheduling state of the task is owned by the task processor.
+         */
+        private final AtomicLong pendingCost = new AtomicLong();
+
+        /**
+         * Hand the next batches over to the delivery executor shared by all consumers.
+         *
+         * @return true if the batches are delivered by the delivery executor, false if the task processor should
+         * deliver them
+         */
+        boolean handOver() {
+            recordCost(pendingCost.getAndSet(0));
+            signalled = true;
+            if (inFlight) {
+                return true;
+            }
+            if (processorTurn) {
+                processorTurn = false;
+                return false;
+            }
+
+            Executor executor = queueHandler.getDeliveryExecutor();
+            if (executor == null) {
+                return false;
+            }
+            signalled = false;
+            inFlight = true;
+            this.executor = executor;
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                // The connection is closing
+                inFlight = false;
+                return false;
+            }
+            return true;
+        }
+
+        void addCost(long cost) {
+            pendingCost.addAndGet(cost);
+        }
+
+        @Override
+        public void run() {
+            TaskHint hint = TaskHint.IDLE;
+            try {
+                // Stop once the consumers no longer share this executor, the task processor takes over then
+                int batchCount = 0;
+                do {
+                    hint = deliver(false);
+                    batchCount++;
+                } while (hint == TaskHint.ACTIVE && batchCount < MAX_BATCHES_PER_HAND_OVER
+                        && queueHandler.getDeliveryExecutor() == executor);
+                processorTurn = hint == TaskHint.IDLE && !queueHandler.isEmpty();
+            } catch (Throwable throwable) {
+                LOGGER.error("Error while delivering messages of {}", queueHandler.getQueue().getName(), throwable);
+            } finally {
+                inFlight = false;
+                if (hint == TaskHint.ACTIVE || signalled || processorTurn) {
+                    signal();
+                }
+            }
+        }
+    }
 }
@@ -23,6 +23,8 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.ballerina.messaging.broker.common.ResourceNotFoundException;
 import io.ballerina.messaging.broker.common.ValidationException;
 import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.util.VirtualThreads;
+import io.ballerina.messaging.broker.core.configuration.BrokerConfiguration;
 import io.ballerina.messaging.broker.core.metrics.BrokerMetricManager;
 import io.ballerina.messaging.broker.core.store.SharedMessageStore;
 import io.ballerina.messaging.broker.core.store.StoreFactory;
@@ -33,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -47,11 +50,6 @@ final class MessagingEngine {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MessagingEngine.class);
 
-    /**
-     * Delay for waiting for an idle task.
-     */
-    private static final long IDLE_TASK_DELAY_MILLIS = 100;
-
     /**
      * Number of worker.
      */
@@ -89,23 +87,51 @@ final class MessagingEngine {
      */
     private final BrokerMetricManager metricManager;
 
+    /**
+     * Deliver messages on the delivery executor shared by the consumers of a queue.
+     */
+    private final boolean eventLoopAffinity;
+
     MessagingEngine(StoreFactory storeFactory, BrokerMetricManager metricManager)
             throws BrokerException, ValidationException {
+        this(storeFactory, metricManager, new BrokerConfiguration());
+    }
+
+    MessagingEngine(StoreFactory storeFactory, BrokerMetricManager metricManager, BrokerConfiguration configuration)
+            throws BrokerException, ValidationException {
         this.metricManager = metricManager;
+        this.eventLoopAffinity = configuration.isEventLoopAffinity();
         exchangeRegistry = storeFactory.getExchangeRegistry();
         // TODO: get the buffer sizes from configs
         sharedMessageStore = storeFactory.getSharedMessageStore(32768, 1024);
         queueRegistry = storeFactory.getQueueRegistry(sharedMessageStore);
         exchangeRegistry.retrieveFromStore(queueRegistry);
 
-        ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat("MessageDeliveryTaskThreadPool-%d").build();
-        deliveryTaskService = new TaskExecutorService<>(WORKER_COUNT, IDLE_TASK_DELAY_MILLIS, threadFactory);
+        deliveryTaskService = createDeliveryTaskService(configuration);
         messageIdGenerator = new MessageIdGenerator();
 
         initDefaultDeadLetterQueue();
     }
 
+    /**
+     * Create the executor of the delivery tasks. If virtual threads are enabled and supported each delivery task
+     * runs on a virtual thread of its own. Otherwise delivery tasks share a fixed number of platform threads.
+     */
+    private static TaskExecutorService<MessageDeliveryTask> createDeliveryTaskService(
+            BrokerConfiguration configuration) {
+        if (configuration.isUseVirtualThreads()) {
+            if (VirtualThreads.isSupported()) {
+                LOGGER.info("Delivering messages using virtual threads");
+                return new TaskExecutorService<>(VirtualThreads.newThreadFactory("MessageDeliveryTaskThread-"));
+            }
+            LOGGER.warn("Virtual threads are not supported by the JVM. Delivering messages using platform threads.");
+        }
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("MessageDeliveryTaskThreadPool-%d").build();
+        return new TaskExecutorService<>(WORKER_COUNT, threadFactory);
+    }
+
     private void initDefaultDeadLetterQueue() throws BrokerException, ValidationException {
         createQueue(DEFAULT_DEAD_LETTER_QUEUE, false, true, false);
         bind(DEFAULT_DEAD_LETTER_QUEUE,
@@ -159,9 +185,14 @@ final class MessagingEngine {
 
     boolean createQueue(String queueName, boolean passive, boolean durable, boolean autoDelete)
             throws BrokerException, ValidationException {
+        return createQueue(queueName, passive, durable, autoDelete, FieldTable.EMPTY_TABLE);
+    }
+
+    boolean createQueue(String queueName, boolean passive, boolean durable, boolean autoDelete,
+                        FieldTable arguments) throws BrokerException, ValidationException {
         lock.writeLock().lock();
         try {
-            boolean queueAdded = queueRegistry.addQueue(queueName, passive, durable, autoDelete);
+            boolean queueAdded = queueRegistry.addQueue(queueName, passive, durable, autoDelete, arguments);
             if (queueAdded) {
                 QueueHandler queueHandler = queueRegistry.getQueueHandler(queueName);
                 // We need to bind every queue to the default exchange
@@ -247,6 +278,22 @@ final class MessagingEngine {
         }
     }
 
+    /**
+     * Acknowledge a batch of messages of a queue.
+     *
+     * @param queueName name of the queue
+     * @param messages  acknowledged messages
+     */
+    void acknowledge(String queueName, List<Message> messages) throws BrokerException {
+        lock.readLock().lock();
+        try {
+            QueueHandler queueHandler = queueRegistry.getQueueHandler(queueName);
+            queueHandler.acknowledge(messages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     int deleteQueue(String queueName, boolean ifUnused, boolean ifEmpty) throws BrokerException,
                                                                                 ValidationException,
                                                                                 ResourceNotFoundException {
@@ -268,7 +315,10 @@ final class MessagingEngine {
             if (queueHandler != null) {
                 synchronized (queueHandler) {
                     if (queueHandler.addConsumer(consumer) && queueHandler.consumerCount() == 1) {
-                        deliveryTaskService.add(new MessageDeliveryTask(queueHandler));
+                        for (QueueHandler deliveryHandler : queueHandler.getDeliveryHandlers()) {
+                            deliveryTaskService.add(new MessageDeliveryTask(deliveryHandler, metricManager,
+                                                                            eventLoopAffinity));
+                        }
                     }
                 }
             } else {
@@ -280,6 +330,48 @@ final class MessagingEngine {
         }
     }
 
+    /**
+     * Dequeue a single message for a pull request. Messages of groups pinned to a consumer are left for the consumer.
+     *
+     * @param queueName name of the queue
+     * @return dequeued message or null if the queue has no deliverable messages
+     * @throws BrokerException if the queue does not exist
+     */
+    Message get(String queueName) throws BrokerException {
+        lock.readLock().lock();
+        try {
+            List<Message> messages = getQueueHandlerForPull(queueName).dequeue(1);
+            return messages.isEmpty() ? null : messages.get(0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dequeue a batch of messages for a pull request.
+     *
+     * @param queueName   name of the queue
+     * @param maxMessages maximum number of messages to dequeue
+     * @return dequeued messages in queue order
+     * @throws BrokerException if the queue does not exist
+     */
+    List<Message> get(String queueName, int maxMessages) throws BrokerException {
+        lock.readLock().lock();
+        try {
+            return getQueueHandlerForPull(queueName).dequeue(maxMessages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private QueueHandler getQueueHandlerForPull(String queueName) throws BrokerException {
+        QueueHandler queueHandler = queueRegistry.getQueueHandler(queueName);
+        if (queueHandler == null) {
+            throw new BrokerException("Cannot get messages. Queue [ " + queueName + " ] not found.");
+        }
+        return queueHandler;
+    }
+
     void startMessageDelivery() {
         deliveryTaskService.start();
     }
@@ -324,7 +416,9 @@ final class MessagingEngine {
             if (queueHandler != null) {
                 synchronized (queueHandler) {
                     if (queueHandler.removeConsumer(consumer) && queueHandler.consumerCount() == 0) {
-                        deliveryTaskService.remove(queueHandler.getQueue().getName());
+                        for (QueueHandler deliveryHandler : queueHandler.getDeliveryHandlers()) {
+                            deliveryTaskService.remove(deliveryHandler.getQueue().getName());
+                        }
                     }
                 }
             }
@@ -337,6 +431,10 @@ final class MessagingEngine {
         return messageIdGenerator.getNextId();
     }
 
+    double getStoreBacklog() {
+        return sharedMessageStore.getBacklog();
+    }
+
     public void requeue(String queueName, Message message) throws BrokerException {
         lock.readLock().lock();
         try {
@@ -347,6 +445,40 @@ final class MessagingEngine {
         }
     }
 
+    /**
+     * Requeue a batch of messages of a queue in order.
+     *
+     * @param queueName name of the queue
+     * @param messages  messages to requeue
+     */
+    public void requeue(String queueName, List<Message> messages) throws BrokerException {
+        lock.readLock().lock();
+        try {
+            QueueHandler queueHandler = queueRegistry.getQueueHandler(queueName);
+            queueHandler.requeue(messages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release a rejected message that is not requeued from its message group.
+     *
+     * @param queueName name of the queue the message was delivered from
+     * @param message   rejected message
+     */
+    void releaseMessageGroup(String queueName, Message message) {
+        lock.readLock().lock();
+        try {
+            QueueHandler queueHandler = queueRegistry.getQueueHandler(queueName);
+            if (queueHandler != null) {
+                queueHandler.releaseMessageGroup(message);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     public void moveToDlc(String queueName, Message message) throws BrokerException {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Moving message to DLC: {}", message);
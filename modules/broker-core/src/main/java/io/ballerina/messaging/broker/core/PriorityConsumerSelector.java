@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Selects the highest priority consumer that is ready to receive messages. Consumers with the same priority are
+ * selected in a round robin manner. Lower priority consumers only get messages while all higher priority consumers
+ * are not ready. Consumers are sorted only when the consumer set changes.
+ */
+final class PriorityConsumerSelector implements ConsumerSelector {
+
+    private static final Comparator<Consumer> PRIORITY_ORDER =
+            Comparator.comparingInt(Consumer::getPriority).reversed();
+
+    private final ConsumerSet consumers;
+
+    /**
+     * Snapshot of the consumer set the sorted consumers were created from.
+     */
+    private Consumer[] snapshot;
+
+    /**
+     * Consumers sorted by descending priority.
+     */
+    private Consumer[] sortedConsumers;
+
+    /**
+     * Round robin position used when selecting among consumers with the same priority.
+     */
+    private int position;
+
+    PriorityConsumerSelector(ConsumerSet consumers) {
+        this.consumers = consumers;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        Consumer[] current = consumers.snapshot();
+        // The consumer set copies its array on every change. Therefore the same array means the same consumers.
+        if (current != snapshot) {
+            Consumer[] sorted = Arrays.copyOf(current, current.length);
+            Arrays.sort(sorted, PRIORITY_ORDER);
+            sortedConsumers = sorted;
+            snapshot = current;
+        }
+    }
+
+    @Override
+    public Consumer next() {
+        int levelStart = 0;
+        while (levelStart < sortedConsumers.length) {
+            int priority = sortedConsumers[levelStart].getPriority();
+            int levelEnd = levelStart + 1;
+            while (levelEnd < sortedConsumers.length && sortedConsumers[levelEnd].getPriority() == priority) {
+                levelEnd++;
+            }
+
+            int levelSize = levelEnd - levelStart;
+            for (int i = 0; i < levelSize; i++) {
+                Consumer consumer = sortedConsumers[levelStart + Math.floorMod(position + i, levelSize)];
+                if (consumer.isReady()) {
+                    position = position + i + 1;
+                    return consumer;
+                }
+            }
+            levelStart = levelEnd;
+        }
+        return null;
+    }
+}
@@ -19,6 +19,12 @@
 
 package io.ballerina.messaging.broker.core;
 
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Abstract class to represent an underlying queue for the broker.
  */
@@ -29,18 +35,31 @@ public abstract class Queue {
      */
     public static final int UNBOUNDED = Integer.MAX_VALUE;
 
+    /**
+     * Maximum number of messages a filtered dequeue skips before giving up. Keeps a dequeue from scanning the whole
+     * queue when the filter rejects most of the messages.
+     */
+    public static final int MAX_SKIPPED_MESSAGES = 64;
+
     private final String name;
 
     private final boolean durable;
 
     private final boolean autoDelete;
 
+    private final FieldTable arguments;
+
     private QueueHandler queueHandler;
 
     public Queue(String name, boolean durable, boolean autoDelete) {
+        this(name, durable, autoDelete, FieldTable.EMPTY_TABLE);
+    }
+
+    public Queue(String name, boolean durable, boolean autoDelete, FieldTable arguments) {
         this.name = name;
         this.durable = durable;
         this.autoDelete = autoDelete;
+        this.arguments = arguments;
     }
 
     public String getName() {
@@ -55,6 +74,10 @@ public abstract class Queue {
         return autoDelete;
     }
 
+    public FieldTable getArguments() {
+        return arguments;
+    }
+
     public QueueHandler getQueueHandler() {
         return queueHandler;
     }
@@ -63,6 +86,27 @@ public abstract class Queue {
         this.queueHandler = queueHandler;
     }
 
+    /**
+     * Retrieve the queue a message is stored in. A partitioned queue returns the partition of the message.
+     *
+     * @param message message of the queue
+     * @return queue holding the message
+     */
+    public Queue getPartition(Message message) {
+        return this;
+    }
+
+    /**
+     * Notify the queue handler that messages became deliverable outside an enqueue or requeue call. For instance
+     * when message data read from the store becomes available.
+     */
+    protected void notifyDeliverable() {
+        QueueHandler handler = queueHandler;
+        if (handler != null) {
+            handler.signalDelivery();
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -98,5 +142,81 @@ public abstract class Queue {
 
     public abstract Message dequeue();
 
+    /**
+     * Retrieve the next message without waiting for the message store to accept a read of message data. Used when
+     * delivering on an I/O thread.
+     *
+     * @return next message, or null if the queue has no message that can be dequeued without waiting
+     */
+    public Message dequeueWithoutBlocking() {
+        return dequeue();
+    }
+
+    /**
+     * Retrieve the first message accepted by the filter. Messages rejected by the filter are left in the queue in
+     * their position. Gives up after skipping {@link #MAX_SKIPPED_MESSAGES} messages.
+     * <p>
+     * The default implementation only looks at the head of the queue, which is put back if the filter rejects it.
+     *
+     * @param filter returns true for messages that can be dequeued
+     * @return first accepted message, or null if no accepted message was found
+     */
+    public Message dequeue(Predicate<Message> filter) {
+        Message message = dequeue();
+        if (message != null && !filter.test(message)) {
+            requeue(message);
+            return null;
+        }
+        return message;
+    }
+
+    /**
+     * Retrieve the first message accepted by the filter like {@link #dequeue(Predicate)}, without waiting for the
+     * message store like {@link #dequeueWithoutBlocking()}.
+     *
+     * @param filter returns true for messages that can be dequeued
+     * @return first accepted message, or null if no accepted message can be dequeued without waiting
+     */
+    public Message dequeueWithoutBlocking(Predicate<Message> filter) {
+        return dequeue(filter);
+    }
+
+    /**
+     * Put a delivered message back to the queue for redelivery. Redelivered messages are dequeued ahead of the
+     * undelivered messages in their original order.
+     *
+     * @param message message to redeliver
+     * @return true if the message was requeued, false if the queue no longer tracks the message
+     */
+    public abstract boolean requeue(Message message);
+
+    /**
+     * Put a batch of delivered messages back to the queue for redelivery, keeping their order.
+     *
+     * @param messages messages to redeliver
+     * @return messages the queue no longer tracks
+     */
+    public List<Message> requeue(List<Message> messages) {
+        List<Message> untrackedMessages = new ArrayList<>(0);
+        for (Message message : messages) {
+            if (!requeue(message)) {
+                untrackedMessages.add(message);
+            }
+        }
+        return untrackedMessages;
+    }
+
     public abstract void detach(Message message) throws BrokerException;
+
+    /**
+     * Detach a batch of acknowledged messages from the queue.
+     *
+     * @param messages acknowledged messages
+     * @throws BrokerException if a message cannot be detached
+     */
+    public void detach(List<Message> messages) throws BrokerException {
+        for (Message message : messages) {
+            detach(message);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
+import io.ballerina.messaging.broker.common.data.types.LongInt;
+import io.ballerina.messaging.broker.common.data.types.LongLongInt;
+import io.ballerina.messaging.broker.common.data.types.ShortShortInt;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+
+import java.util.Objects;
+
+/**
+ * Queue declaration arguments understood by the broker.
+ */
+public final class QueueArguments {
+
+    /**
+     * Number of internal partitions backing the queue.
+     */
+    public static final ShortString PARTITIONS = ShortString.parseString("x-partitions");
+
+    /**
+     * Name of the logical queue an internal partition belongs to. Set by the broker on partition queues.
+     */
+    public static final ShortString PARTITION_OF = ShortString.parseString("x-partition-of");
+
+    /**
+     * If true all messages of the queue are delivered to a single active consumer.
+     */
+    public static final ShortString SINGLE_ACTIVE_CONSUMER = ShortString.parseString("x-single-active-consumer");
+
+    /**
+     * Share of the delivery threads the queue gets relative to other queues when queues compete for them.
+     */
+    public static final ShortString DELIVERY_WEIGHT = ShortString.parseString("x-delivery-weight");
+
+    private QueueArguments() {
+    }
+
+    /**
+     * Read an integer argument.
+     *
+     * @param arguments    queue arguments
+     * @param name         argument name
+     * @param defaultValue value to return if the argument is not set
+     * @return argument value
+     * @throws BrokerException if the argument is not an integer
+     */
+    public static int getInt(FieldTable arguments, ShortString name, int defaultValue) throws BrokerException {
+        FieldValue value = arguments.getValue(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+
+        switch (value.getType()) {
+            case SHORT_SHORT_INT:
+                return ((ShortShortInt) value.getValue()).getByte();
+            case LONG_INT:
+                return ((LongInt) value.getValue()).getInt();
+            case LONG_LONG_INT:
+                return (int) ((LongLongInt) value.getValue()).getLong();
+            case SHORT_STRING:
+            case LONG_STRING:
+                try {
+                    return Integer.parseInt(value.getValue().toString());
+                } catch (NumberFormatException e) {
+                    throw new BrokerException("Invalid value for queue argument " + name + ": " + value, e);
+                }
+            default:
+                throw new BrokerException("Invalid type for queue argument " + name + ": " + value.getType());
+        }
+    }
+
+    /**
+     * Read a boolean argument.
+     *
+     * @param arguments    queue arguments
+     * @param name         argument name
+     * @param defaultValue value to return if the argument is not set
+     * @return argument value
+     * @throws BrokerException if the argument is not a boolean
+     */
+    public static boolean getBoolean(FieldTable arguments, ShortString name, boolean defaultValue)
+            throws BrokerException {
+        FieldValue value = arguments.getValue(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+
+        switch (value.getType()) {
+            case BOOLEAN:
+                return "true".equals(value.getValue().toString());
+            case SHORT_STRING:
+            case LONG_STRING:
+                String stringValue = value.getValue().toString();
+                if ("true".equalsIgnoreCase(stringValue)) {
+                    return true;
+                } else if ("false".equalsIgnoreCase(stringValue)) {
+                    return false;
+                }
+                throw new BrokerException("Invalid value for queue argument " + name + ": " + value);
+            default:
+                return getInt(arguments, name, 0) != 0;
+        }
+    }
+
+    /**
+     * Check whether the arguments belong to an internal partition of a partitioned queue.
+     *
+     * @param arguments queue arguments
+     * @return true if the queue is a partition
+     */
+    public static boolean isPartition(FieldTable arguments) {
+        return Objects.nonNull(arguments.getValue(PARTITION_OF));
+    }
+}
@@ -19,21 +19,30 @@
 
 package io.ballerina.messaging.broker.core;
 
-import com.google.common.collect.Iterables;
+import io.ballerina.messaging.broker.common.data.types.EncodableData;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
 import io.ballerina.messaging.broker.common.util.function.ThrowingConsumer;
 import io.ballerina.messaging.broker.core.metrics.BrokerMetricManager;
-import io.ballerina.messaging.broker.core.queue.MemQueueImpl;
 import io.ballerina.messaging.broker.core.queue.UnmodifiableQueueWrapper;
+import io.ballerina.messaging.broker.core.task.Task;
 import io.ballerina.messaging.broker.core.util.MessageTracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 
 /**
  * Represents the queue of the broker. Contains a bounded queue to store messages. Subscriptions for the queue
@@ -43,36 +52,142 @@ public final class QueueHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueueHandler.class);
 
+    /**
+     * Message header used to group messages. All messages of a group are delivered to the same consumer.
+     */
+    public static final ShortString MESSAGE_GROUP_HEADER = ShortString.parseString("JMSXGroupID");
+
+    /**
+     * Initial capacity of the list returned by a batched pull, so that large limits do not allocate up front.
+     */
+    private static final int DEQUEUE_BATCH_HINT = 64;
+
     private Queue queue;
 
-    private final CyclicConsumerIterator consumerIterator;
+    /**
+     * Strategy used to select the consumer for the next message.
+     */
+    private volatile ConsumerSelector consumerSelector;
+
+    private final boolean singleActiveConsumer;
 
-    private final Queue redeliveryQueue;
+    /**
+     * Scheduling weight of the delivery task of the queue.
+     */
+    private final int deliveryWeight;
 
     /**
      * Used to send metric signals related to queue handler.
      */
     private final BrokerMetricManager metricManager;
 
-    private final Set<Consumer> consumers;
+    private final ConsumerSet consumers;
 
     private final Queue unmodifiableQueueView;
 
     private final Map<Binding, ThrowingConsumer<Binding, BrokerException>> bindingChangeListenersMap;
 
+    /**
+     * Active message groups by the value of the group header. A group is active while it has messages in flight.
+     * Shared with the partitions of a partitioned queue so that a group is pinned to one consumer across all
+     * partitions.
+     */
+    private final Map<EncodableData, MessageGroup> messageGroups;
+
+    /**
+     * Handlers of the internal partitions of a partitioned queue. Empty for a regular queue.
+     */
+    private final List<QueueHandler> partitions;
+
+    /**
+     * Task delivering messages of this queue. Signalled whenever there can be new work for the task.
+     */
+    private final AtomicReference<Task> deliveryTask;
+
+    /**
+     * Accepts messages that can be pulled, leaving messages of pinned groups for their consumers.
+     */
+    private final Predicate<Message> pullFilter = this::isPullable;
+
     QueueHandler(Queue queue, BrokerMetricManager metricManager) {
+        this(queue, metricManager, false);
+    }
+
+    /**
+     * Create a queue handler.
+     *
+     * @param queue                queue to deliver messages from
+     * @param metricManager        metric manager
+     * @param singleActiveConsumer if true all messages are delivered to a single active consumer
+     */
+    QueueHandler(Queue queue, BrokerMetricManager metricManager, boolean singleActiveConsumer) {
+        this(queue, metricManager, singleActiveConsumer, Task.DEFAULT_WEIGHT);
+    }
+
+    /**
+     * Create a queue handler.
+     *
+     * @param queue                queue to deliver messages from
+     * @param metricManager        metric manager
+     * @param singleActiveConsumer if true all messages are delivered to a single active consumer
+     * @param deliveryWeight       scheduling weight of the delivery task
+     */
+    QueueHandler(Queue queue, BrokerMetricManager metricManager, boolean singleActiveConsumer, int deliveryWeight) {
+        this(queue, metricManager, new ConsumerSet(), new ConcurrentHashMap<>(), singleActiveConsumer,
+             deliveryWeight);
+    }
+
+    private QueueHandler(Queue queue, BrokerMetricManager metricManager, ConsumerSet consumers,
+                         Map<EncodableData, MessageGroup> messageGroups, boolean singleActiveConsumer,
+                         int deliveryWeight) {
         this.queue = queue;
         queue.setQueueHandler(this);
         unmodifiableQueueView = new UnmodifiableQueueWrapper(queue);
-        // TODO: take message count from queue configuration
-        // We create an unbounded redelivery queue since we keep the messages which are already in memory which does
-        // not increase memory usage. When loading data to memory we should consider messages in both queue and
-        // redelivery queue data structures.
-        this.redeliveryQueue = new MemQueueImpl(queue.getName(), false);
         this.metricManager = metricManager;
-        this.consumers = ConcurrentHashMap.newKeySet();
-        consumerIterator = new CyclicConsumerIterator();
+        this.consumers = consumers;
+        this.singleActiveConsumer = singleActiveConsumer;
+        this.deliveryWeight = deliveryWeight;
+        if (singleActiveConsumer) {
+            consumerSelector = new SingleActiveConsumerSelector(consumers);
+        } else {
+            consumerSelector = new RoundRobinConsumerSelector(consumers);
+        }
         bindingChangeListenersMap = new ConcurrentHashMap<>();
+        this.messageGroups = messageGroups;
+        partitions = new ArrayList<>();
+        deliveryTask = new AtomicReference<>();
+    }
+
+    /**
+     * Add an internal partition to this queue. The partition shares the consumers and the message groups of this
+     * queue and is delivered by its own delivery task.
+     *
+     * @param partition partition queue
+     */
+    void addPartition(Queue partition) {
+        partitions.add(new QueueHandler(partition, metricManager, consumers, messageGroups, singleActiveConsumer,
+                                        deliveryWeight));
+    }
+
+    /**
+     * Retrieve the handlers of the internal partitions.
+     *
+     * @return partition handlers, empty if the queue is not partitioned
+     */
+    List<QueueHandler> getPartitions() {
+        return Collections.unmodifiableList(partitions);
+    }
+
+    /**
+     * Retrieve the handlers that need a delivery task. A partitioned queue is delivered by one task per partition.
+     *
+     * @return handlers to deliver messages from
+     */
+    List<QueueHandler> getDeliveryHandlers() {
+        if (partitions.isEmpty()) {
+            return Collections.singletonList(this);
+        }
+        return getPartitions();
     }
 
     public Queue getQueue() {
@@ -95,7 +210,26 @@ public final class QueueHandler {
      * @return true if {@link Consumer} was successfully added.
      */
     boolean addConsumer(Consumer consumer) {
-        return consumers.add(consumer);
+        if (consumer.getPriority() != Consumer.DEFAULT_PRIORITY) {
+            enableConsumerPriorities();
+            for (QueueHandler partition : partitions) {
+                partition.enableConsumerPriorities();
+            }
+        }
+        consumer.setQueueHandler(this);
+        boolean added = consumers.add(consumer);
+        notifyConsumerReady();
+        return added;
+    }
+
+    /**
+     * Switch from round robin delivery to priority based delivery. Has no effect on a single active consumer queue
+     * since all messages go to the active consumer regardless of priority.
+     */
+    private void enableConsumerPriorities() {
+        if (consumerSelector instanceof RoundRobinConsumerSelector) {
+            consumerSelector = new PriorityConsumerSelector(consumers);
+        }
     }
 
     /**
@@ -106,7 +240,163 @@ public final class QueueHandler {
      * @return True if the {@link Consumer} is removed.
      */
     boolean removeConsumer(Consumer consumer) {
-        return consumers.remove(consumer);
+        releaseMessageGroups(consumer);
+        boolean removed = consumers.remove(consumer);
+        if (removed) {
+            consumer.setQueueHandler(null);
+            // Released message groups and a new single active consumer can be served by the remaining consumers
+            notifyConsumerReady();
+        }
+        return removed;
+    }
+
+    /**
+     * Resume delivery after a consumer of the queue became ready.
+     */
+    void notifyConsumerReady() {
+        for (QueueHandler deliveryHandler : getDeliveryHandlers()) {
+            deliveryHandler.signalDelivery();
+        }
+    }
+
+    /**
+     * Set the task delivering messages of this queue.
+     *
+     * @param task delivery task
+     */
+    void setDeliveryTask(Task task) {
+        deliveryTask.set(task);
+    }
+
+    /**
+     * Clear the delivery task if it is still the given task.
+     *
+     * @param task delivery task that was removed
+     */
+    void clearDeliveryTask(Task task) {
+        deliveryTask.compareAndSet(task, null);
+    }
+
+    /**
+     * Getter for deliveryWeight.
+     */
+    int getDeliveryWeight() {
+        return deliveryWeight;
+    }
+
+    /**
+     * Wake up the delivery task of this queue if it is idle.
+     */
+    void signalDelivery() {
+        Task task = deliveryTask.get();
+        if (task != null) {
+            task.signal();
+        }
+    }
+
+    /**
+     * Unpin the message groups of a consumer. The next message of each group is pinned to whichever consumer
+     * receives it.
+     */
+    private void releaseMessageGroups(Consumer consumer) {
+        messageGroups.values().removeIf(messageGroup -> messageGroup.owner.equals(consumer));
+    }
+
+    /**
+     * Get the message group of a message.
+     *
+     * @param message message
+     * @return value of the group header of the message, or null if the message does not belong to a group
+     */
+    static EncodableData getMessageGroupId(Message message) {
+        Metadata metadata = message.getMetadata();
+        FieldValue groupId = Objects.nonNull(metadata) ? metadata.getHeader(MESSAGE_GROUP_HEADER) : null;
+        return Objects.nonNull(groupId) ? groupId.getValue() : null;
+    }
+
+    /**
+     * Select the consumer a message should be delivered to. Messages without a group go to the given consumer.
+     * Messages of a group go to the consumer the group is pinned to. A new group is pinned to the given consumer.
+     * The message is counted as in flight for its group until it is released.
+     *
+     * @param message  message to deliver
+     * @param consumer consumer selected for the next delivery
+     * @return consumer the message should be delivered to
+     */
+    Consumer selectConsumer(Message message, Consumer consumer) {
+        EncodableData groupId = getMessageGroupId(message);
+        if (Objects.isNull(groupId)) {
+            return consumer;
+        }
+        return selectConsumer(groupId, message, consumer);
+    }
+
+    /**
+     * Select the consumer a message of the given group should be delivered to.
+     *
+     * @param groupId  group of the message
+     * @param message  message to deliver
+     * @param consumer consumer selected for the next delivery
+     * @return consumer the group is pinned to
+     */
+    Consumer selectConsumer(EncodableData groupId, Message message, Consumer consumer) {
+        MessageGroup messageGroup = messageGroups.compute(groupId, (id, current) -> {
+            if (Objects.isNull(current) || !consumers.contains(current.owner)) {
+                // New group, or the owner was removed while this delivery was in progress
+                current = new MessageGroup(id, consumer);
+            }
+            current.inFlightCount++;
+            return current;
+        });
+        message.setMessageGroup(messageGroup);
+        return messageGroup.owner;
+    }
+
+    /**
+     * Release a message from its message group once it is acknowledged, rejected, requeued or not delivered. A group
+     * without messages in flight is removed so that its next message can go to any consumer. Has no effect on a
+     * message that is not counted in a group, for instance a pulled message.
+     *
+     * @param message message selected for a consumer earlier
+     */
+    void releaseMessageGroup(Message message) {
+        MessageGroup messageGroup = message.getMessageGroup();
+        if (Objects.nonNull(messageGroup)) {
+            message.setMessageGroup(null);
+            // The group may have been replaced after its owner was removed. Then there is nothing to release
+            messageGroups.computeIfPresent(messageGroup.id, (id, current) -> {
+                if (current == messageGroup) {
+                    current.inFlightCount--;
+                }
+                return current.inFlightCount == 0 ? null : current;
+            });
+        }
+    }
+
+    /**
+     * Check whether the consumer a message group is pinned to can take messages.
+     *
+     * @param groupId  group of the message
+     * @param consumer consumer selected for the next delivery, credit for the message is already acquired
+     * @return false if the group is pinned to another consumer that is not ready, true otherwise
+     */
+    boolean isMessageGroupReady(EncodableData groupId, Consumer consumer) {
+        MessageGroup messageGroup = messageGroups.get(groupId);
+        return Objects.isNull(messageGroup) || messageGroup.owner == consumer || messageGroup.owner.isReady();
+    }
+
+    /**
+     * Put back a dequeued message that could not be delivered. The message keeps its position in the queue.
+     *
+     * @param message dequeued message
+     */
+    void putBack(Message message) {
+        if (!queue.requeue(message)) {
+            LOGGER.warn("Dropping message since it is no longer tracked by queue {}. message:{}",
+                        queue.getName(),
+                        message);
+            message.release();
+        }
     }
 
     /**
@@ -122,6 +412,7 @@ public final class QueueHandler {
         if (success) {
             metricManager.addInMemoryMessage();
             MessageTracer.trace(message, this, MessageTracer.PUBLISH_SUCCESSFUL);
+            queue.getPartition(message).getQueueHandler().signalDelivery();
         } else {
             message.release();
             MessageTracer.trace(message, this, MessageTracer.PUBLISH_FAILURE);
@@ -135,43 +426,181 @@ public final class QueueHandler {
      * @return Message
      */
     Message dequeue() {
-        Message message = redeliveryQueue.dequeue();
-        if (message == null) {
-            message = queue.dequeue();
-            MessageTracer.trace(message, this, MessageTracer.RETRIEVE_FOR_DELIVERY);
-        } else {
+        return traceDequeue(queue.dequeue());
+    }
+
+    /**
+     * Retrieves and removes the head of this queue without waiting for the message store. Used when delivering on
+     * an I/O thread.
+     *
+     * @return Message, or null if no message can be dequeued without waiting
+     */
+    Message dequeueWithoutBlocking() {
+        return traceDequeue(queue.dequeueWithoutBlocking());
+    }
+
+    /**
+     * Retrieves and removes the first message accepted by the filter. Messages rejected by the filter keep their
+     * position in the queue.
+     *
+     * @param filter returns true for messages that can be delivered
+     * @return Message, or null if no accepted message was found
+     */
+    Message dequeue(Predicate<Message> filter) {
+        return traceDequeue(queue.dequeue(filter));
+    }
+
+    /**
+     * Retrieves and removes the first message accepted by the filter without waiting for the message store.
+     *
+     * @param filter returns true for messages that can be delivered
+     * @return Message, or null if no accepted message can be dequeued without waiting
+     */
+    Message dequeueWithoutBlocking(Predicate<Message> filter) {
+        return traceDequeue(queue.dequeueWithoutBlocking(filter));
+    }
+
+    private Message traceDequeue(Message message) {
+        if (message != null && message.isRedelivered()) {
             MessageTracer.trace(message, this, MessageTracer.RETRIEVE_FOR_REDELIVERY);
+        } else {
+            MessageTracer.trace(message, this, MessageTracer.RETRIEVE_FOR_DELIVERY);
         }
 
         return message;
     }
 
+    /**
+     * Dequeue messages for a pull request. Messages are handed to the caller directly without going through a
+     * consumer or the delivery task.
+     * <p>
+     * Messages of a group that is pinned to a consumer are skipped and left for that consumer, so that pulling does
+     * not break the order of the group. Messages of other groups are pulled without pinning the group, therefore a
+     * consumer may receive later messages of the group while pulled messages are not yet acknowledged.
+     *
+     * @param maxMessages maximum number of messages to dequeue
+     * @return dequeued messages in queue order. Empty if the queue has no deliverable messages
+     */
+    List<Message> dequeue(int maxMessages) {
+        List<Message> messages = new ArrayList<>(Math.min(maxMessages, DEQUEUE_BATCH_HINT));
+        while (messages.size() < maxMessages) {
+            // Messages of pinned groups are skipped in place
+            Message message = dequeue(pullFilter);
+            if (message == null) {
+                break;
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private boolean isPullable(Message message) {
+        EncodableData groupId = getMessageGroupId(message);
+        return Objects.isNull(groupId) || !messageGroups.containsKey(groupId);
+    }
+
     void acknowledge(Message message) throws BrokerException {
+        releaseMessageGroup(message);
         queue.detach(message);
         metricManager.removeInMemoryMessage();
         MessageTracer.trace(message, this, MessageTracer.ACKNOWLEDGE);
     }
 
+    void acknowledge(List<Message> messages) throws BrokerException {
+        for (Message message : messages) {
+            releaseMessageGroup(message);
+        }
+        queue.detach(messages);
+        for (Message message : messages) {
+            metricManager.removeInMemoryMessage();
+            MessageTracer.trace(message, this, MessageTracer.ACKNOWLEDGE);
+        }
+    }
+
     public void requeue(Message message) throws BrokerException {
-        boolean success = redeliveryQueue.enqueue(message);
-        if (!success) {
-            LOGGER.warn("Enqueuing message since redelivery queue for {} is full. message:{}",
+        releaseMessageGroup(message);
+        boolean success = queue.requeue(message);
+        if (success) {
+            MessageTracer.trace(message, this, MessageTracer.REQUEUE);
+            queue.getPartition(message).getQueueHandler().signalDelivery();
+        } else {
+            LOGGER.warn("Dropping requeued message since it is no longer tracked by queue {}. message:{}",
                         queue.getName(),
                         message);
-            enqueue(message);
+            message.release();
+        }
+    }
+
+    /**
+     * Requeue a batch of messages with a single queue operation. The messages keep their relative order.
+     *
+     * @param messages messages to requeue
+     */
+    public void requeue(List<Message> messages) {
+        for (Message message : messages) {
+            releaseMessageGroup(message);
+        }
+        List<Message> untrackedMessages = queue.requeue(messages);
+        if (MessageTracer.isTraceEnabled()) {
+            for (Message message : messages) {
+                if (!untrackedMessages.contains(message)) {
+                    MessageTracer.trace(message, this, MessageTracer.REQUEUE);
+                }
+            }
+        }
+        for (Message message : untrackedMessages) {
+            LOGGER.warn("Dropping requeued message since it is no longer tracked by queue {}. message:{}",
+                        queue.getName(),
+                        message);
+            message.release();
+        }
+
+        Set<QueueHandler> signalledHandlers = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Message message : messages) {
+            QueueHandler partitionHandler = queue.getPartition(message).getQueueHandler();
+            if (signalledHandlers.add(partitionHandler)) {
+                partitionHandler.signalDelivery();
+            }
         }
-        MessageTracer.trace(message, this, MessageTracer.REQUEUE);
     }
 
     /**
-     * Get the current consumer list iterator for the queue. This is a snapshot of the consumers at the time
-     * when the when this method is invoked.
+     * Get the consumer selector of the queue, reset to the current set of consumers.
      *
-     * @return CyclicConsumerIterator
+     * @return ConsumerSelector
      */
-    CyclicConsumerIterator getCyclicConsumerIterator() {
-        consumerIterator.setIterator(Iterables.cycle(consumers).iterator());
-        return consumerIterator;
+    ConsumerSelector getConsumerSelector() {
+        ConsumerSelector selector = consumerSelector;
+        selector.reset();
+        return selector;
+    }
+
+    /**
+     * Flush the messages sent to the consumers of the queue.
+     */
+    void flushConsumers() {
+        for (Consumer consumer : consumers.snapshot()) {
+            consumer.flush();
+        }
+    }
+
+    /**
+     * Get the delivery executor shared by all the consumers of the queue.
+     *
+     * @return delivery executor, or null if there are no consumers or consumers do not share a delivery executor
+     */
+    Executor getDeliveryExecutor() {
+        Consumer[] snapshot = consumers.snapshot();
+        if (snapshot.length == 0) {
+            return null;
+        }
+        Executor executor = snapshot[0].getDeliveryExecutor();
+        for (int i = 1; i < snapshot.length && executor != null; i++) {
+            if (snapshot[i].getDeliveryExecutor() != executor) {
+                executor = null;
+            }
+        }
+        return executor;
     }
 
     /**
@@ -236,4 +665,25 @@ public final class QueueHandler {
     public void removeBinding(Binding binding) {
         bindingChangeListenersMap.remove(binding);
     }
+
+    /**
+     * A message group pinned to a consumer. The in flight count is only accessed while holding the map entry of the
+     * group.
+     */
+    static final class MessageGroup {
+
+        private final EncodableData id;
+
+        private final Consumer owner;
+
+        /**
+         * Number of messages of the group that are selected for a consumer and not yet released.
+         */
+        private int inFlightCount;
+
+        private MessageGroup(EncodableData id, Consumer owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+    }
 }
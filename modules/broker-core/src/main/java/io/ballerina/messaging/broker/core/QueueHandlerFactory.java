@@ -19,12 +19,19 @@
 
 package io.ballerina.messaging.broker.core;
 
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
 import io.ballerina.messaging.broker.core.configuration.BrokerConfiguration;
 import io.ballerina.messaging.broker.core.metrics.BrokerMetricManager;
 import io.ballerina.messaging.broker.core.queue.DbBackedQueueImpl;
 import io.ballerina.messaging.broker.core.queue.MemQueueImpl;
+import io.ballerina.messaging.broker.core.queue.PartitionedQueueImpl;
 import io.ballerina.messaging.broker.core.queue.QueueBufferFactory;
 import io.ballerina.messaging.broker.core.store.SharedMessageStore;
+import io.ballerina.messaging.broker.core.task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Factory for creating queue handler objects.
@@ -50,8 +57,39 @@ public class QueueHandlerFactory {
      * @throws BrokerException if cannot create queue handler
      */
     QueueHandler createDurableQueueHandler(String queueName, boolean autoDelete) throws BrokerException {
-        Queue queue = new DbBackedQueueImpl(queueName, autoDelete, sharedMessageStore, queueBufferFactory);
-        return new QueueHandler(queue, metricManager);
+        return createDurableQueueHandler(queueName, autoDelete, FieldTable.EMPTY_TABLE);
+    }
+
+    /**
+     * Create a durable queue handler with the give arguments. A partitioned queue handler is created if the
+     * {@link QueueArguments#PARTITIONS} argument is greater than one.
+     *
+     * @param queueName  name of the queue
+     * @param autoDelete true if auto deletable
+     * @param arguments  queue arguments
+     * @return QueueHandler object
+     * @throws BrokerException if cannot create queue handler
+     */
+    QueueHandler createDurableQueueHandler(String queueName, boolean autoDelete,
+                                           FieldTable arguments) throws BrokerException {
+        int partitionCount = getPartitionCount(arguments);
+        boolean singleActiveConsumer = isSingleActiveConsumer(arguments);
+        int deliveryWeight = getDeliveryWeight(arguments);
+        if (partitionCount == 1) {
+            Queue queue = new DbBackedQueueImpl(queueName, autoDelete, arguments,
+                                                sharedMessageStore, queueBufferFactory);
+            return new QueueHandler(queue, metricManager, singleActiveConsumer, deliveryWeight);
+        }
+
+        FieldTable partitionArguments = createPartitionArguments(queueName);
+        List<Queue> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new DbBackedQueueImpl(PartitionedQueueImpl.getPartitionName(queueName, i), autoDelete,
+                                                 partitionArguments, sharedMessageStore, queueBufferFactory));
+        }
+        return createPartitionedQueueHandler(new PartitionedQueueImpl(queueName, true, autoDelete, arguments,
+                                                                      partitions), singleActiveConsumer,
+                                             deliveryWeight);
     }
 
     /**
@@ -67,4 +105,72 @@ public class QueueHandlerFactory {
         return new QueueHandler(queue, metricManager);
     }
 
+    /**
+     * Create a non durable queue handler with the give arguments. A partitioned queue handler is created if the
+     * {@link QueueArguments#PARTITIONS} argument is greater than one. Each partition gets the given capacity.
+     *
+     * @param queueName  name of the queue
+     * @param capacity   max capacity
+     * @param autoDelete true if auto deletable
+     * @param arguments  queue arguments
+     * @return QueueHandler object
+     * @throws BrokerException if the queue arguments are invalid
+     */
+    QueueHandler createNonDurableQueueHandler(String queueName, int capacity, boolean autoDelete,
+                                              FieldTable arguments) throws BrokerException {
+        int partitionCount = getPartitionCount(arguments);
+        boolean singleActiveConsumer = isSingleActiveConsumer(arguments);
+        int deliveryWeight = getDeliveryWeight(arguments);
+        if (partitionCount == 1) {
+            Queue queue = new MemQueueImpl(queueName, capacity, autoDelete);
+            return new QueueHandler(queue, metricManager, singleActiveConsumer, deliveryWeight);
+        }
+
+        List<Queue> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new MemQueueImpl(PartitionedQueueImpl.getPartitionName(queueName, i), capacity,
+                                            autoDelete));
+        }
+        return createPartitionedQueueHandler(new PartitionedQueueImpl(queueName, false, autoDelete, arguments,
+                                                                      partitions), singleActiveConsumer,
+                                             deliveryWeight);
+    }
+
+    private QueueHandler createPartitionedQueueHandler(PartitionedQueueImpl queue, boolean singleActiveConsumer,
+                                                       int deliveryWeight) {
+        QueueHandler queueHandler = new QueueHandler(queue, metricManager, singleActiveConsumer, deliveryWeight);
+        for (Queue partition : queue.getPartitions()) {
+            queueHandler.addPartition(partition);
+        }
+        return queueHandler;
+    }
+
+    private static int getPartitionCount(FieldTable arguments) throws BrokerException {
+        int partitionCount = QueueArguments.getInt(arguments, QueueArguments.PARTITIONS, 1);
+        if (partitionCount < 1) {
+            throw new BrokerException("Invalid partition count " + partitionCount + ". Partition count should be "
+                                              + "a positive integer.");
+        }
+        return partitionCount;
+    }
+
+    private static boolean isSingleActiveConsumer(FieldTable arguments) throws BrokerException {
+        return QueueArguments.getBoolean(arguments, QueueArguments.SINGLE_ACTIVE_CONSUMER, false);
+    }
+
+    private static int getDeliveryWeight(FieldTable arguments) throws BrokerException {
+        int deliveryWeight = QueueArguments.getInt(arguments, QueueArguments.DELIVERY_WEIGHT, Task.DEFAULT_WEIGHT);
+        if (deliveryWeight < 1) {
+            throw new BrokerException("Invalid delivery weight " + deliveryWeight + ". Delivery weight should be "
+                                              + "a positive integer.");
+        }
+        return deliveryWeight;
+    }
+
+    private static FieldTable createPartitionArguments(String queueName) {
+        FieldTable partitionArguments = new FieldTable();
+        partitionArguments.add(QueueArguments.PARTITION_OF, FieldValue.parseLongString(queueName));
+        return partitionArguments;
+    }
+
 }
@@ -21,6 +21,7 @@ package io.ballerina.messaging.broker.core;
 
 import io.ballerina.messaging.broker.common.ResourceNotFoundException;
 import io.ballerina.messaging.broker.common.ValidationException;
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
 import io.ballerina.messaging.broker.core.store.dao.QueueDao;
 
 import java.util.Collection;
@@ -51,6 +52,11 @@ public final class QueueRegistry {
     }
 
     boolean addQueue(String queueName, boolean passive, boolean durable, boolean autoDelete) throws BrokerException {
+        return addQueue(queueName, passive, durable, autoDelete, FieldTable.EMPTY_TABLE);
+    }
+
+    boolean addQueue(String queueName, boolean passive, boolean durable, boolean autoDelete,
+                     FieldTable arguments) throws BrokerException {
         QueueHandler queueHandler = queueHandlerMap.get(queueName);
 
         if (passive) {
@@ -63,10 +69,14 @@ public final class QueueRegistry {
         } else {
             if (Objects.isNull(queueHandler)) {
                 if (durable) {
-                    queueHandler = queueHandlerFactory.createDurableQueueHandler(queueName, autoDelete);
+                    queueHandler = queueHandlerFactory.createDurableQueueHandler(queueName, autoDelete, arguments);
                     queueDao.persist(queueHandler.getQueue());
+                    for (QueueHandler partition : queueHandler.getPartitions()) {
+                        queueDao.persist(partition.getQueue());
+                    }
                 } else {
-                    queueHandler = queueHandlerFactory.createNonDurableQueueHandler(queueName, 1000, autoDelete);
+                    queueHandler = queueHandlerFactory.createNonDurableQueueHandler(queueName, 1000, autoDelete,
+                                                                                    arguments);
                 }
                 queueHandlerMap.put(queueName, queueHandler);
                 return true;
@@ -97,15 +107,21 @@ public final class QueueRegistry {
         } else {
             queueHandlerMap.remove(queueName);
             queueHandler.releaseResources();
+            for (QueueHandler partition : queueHandler.getPartitions()) {
+                queueDao.delete(partition.getQueue());
+            }
             queueDao.delete(queueHandler.getQueue());
             return queueHandler.size();
         }
     }
 
     private void retrieveQueuesFromDao() throws BrokerException {
-            queueDao.retrieveAll((name) -> {
-                QueueHandler handler = queueHandlerFactory.createDurableQueueHandler(name, false);
-                queueHandlerMap.putIfAbsent(name, handler);
+            queueDao.retrieveAll((name, arguments) -> {
+                // Partitions are recreated by the logical queue they belong to
+                if (!QueueArguments.isPartition(arguments)) {
+                    QueueHandler handler = queueHandlerFactory.createDurableQueueHandler(name, false, arguments);
+                    queueHandlerMap.putIfAbsent(name, handler);
+                }
             });
     }
 
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+/**
+ * Selects consumers in a round robin manner, skipping consumers that are not ready. The position is kept across
+ * delivery runs so that each run continues from the consumer after the last selected one.
+ */
+final class RoundRobinConsumerSelector implements ConsumerSelector {
+
+    private final ConsumerSet consumers;
+
+    /**
+     * Consumers of the current delivery run.
+     */
+    private Consumer[] snapshot;
+
+    /**
+     * Index of the next consumer to try, modulo the number of consumers.
+     */
+    private int position;
+
+    RoundRobinConsumerSelector(ConsumerSet consumers) {
+        this.consumers = consumers;
+        this.snapshot = consumers.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        snapshot = consumers.snapshot();
+    }
+
+    @Override
+    public Consumer next() {
+        int consumerCount = snapshot.length;
+        for (int i = 0; i < consumerCount; i++) {
+            Consumer consumer = snapshot[Math.floorMod(position + i, consumerCount)];
+            if (consumer.isReady()) {
+                position = Math.floorMod(position + i + 1, consumerCount);
+                return consumer;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import java.util.Collection;
+
+/**
+ * Delivers all messages of a queue to a single active consumer. The oldest consumer of the queue is the active
+ * consumer. When it is removed the next oldest consumer takes over from the next delivery run.
+ */
+final class SingleActiveConsumerSelector implements ConsumerSelector {
+
+    private final Collection<Consumer> consumers;
+
+    private Consumer activeConsumer;
+
+    SingleActiveConsumerSelector(Collection<Consumer> consumers) {
+        this.consumers = consumers;
+    }
+
+    @Override
+    public void reset() {
+        activeConsumer = null;
+        for (Consumer consumer : consumers) {
+            // Consumer ids are assigned in the creation order
+            if (activeConsumer == null || consumer.getId() < activeConsumer.getId()) {
+                activeConsumer = consumer;
+            }
+        }
+    }
+
+    @Override
+    public Consumer next() {
+        if (activeConsumer != null && activeConsumer.isReady()) {
+            return activeConsumer;
+        }
+        return null;
+    }
+}
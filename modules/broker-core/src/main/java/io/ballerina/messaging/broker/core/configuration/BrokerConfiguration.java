@@ -40,6 +40,10 @@ public class BrokerConfiguration {
 
     private String queueInMemoryCacheLimit = "10000";
 
+    private boolean useVirtualThreads = false;
+
+    private boolean eventLoopAffinity = false;
+
     private DataSourceConfiguration dataSource;
 
     /**
@@ -53,6 +57,28 @@ public class BrokerConfiguration {
         this.queueInMemoryCacheLimit = queueInMemoryCacheLimit;
     }
 
+    /**
+     * Getter for useVirtualThreads.
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * Getter for eventLoopAffinity.
+     */
+    public boolean isEventLoopAffinity() {
+        return eventLoopAffinity;
+    }
+
+    public void setEventLoopAffinity(boolean eventLoopAffinity) {
+        this.eventLoopAffinity = eventLoopAffinity;
+    }
+
     public DataSourceConfiguration getDataSource() {
         return dataSource;
     }
@@ -38,4 +38,18 @@ public interface BrokerMetricManager {
     Context startMessageDeleteTimer();
 
     Context startMessageReadTimer();
+
+    /**
+     * Record the batch size used by a message delivery task invocation.
+     *
+     * @param batchSize maximum number of messages the invocation could deliver
+     */
+    void updateDeliveryBatchSize(int batchSize);
+
+    /**
+     * Record the time taken by a message delivery task invocation.
+     *
+     * @param durationNanos duration in nanoseconds
+     */
+    void updateDeliverySliceTime(long durationNanos);
 }
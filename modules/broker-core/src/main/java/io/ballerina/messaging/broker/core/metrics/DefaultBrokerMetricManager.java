@@ -21,12 +21,15 @@ package io.ballerina.messaging.broker.core.metrics;
 
 import io.ballerina.messaging.broker.core.Broker;
 import org.wso2.carbon.metrics.core.Counter;
+import org.wso2.carbon.metrics.core.Histogram;
 import org.wso2.carbon.metrics.core.Level;
 import org.wso2.carbon.metrics.core.Meter;
 import org.wso2.carbon.metrics.core.MetricService;
 import org.wso2.carbon.metrics.core.Timer;
 import org.wso2.carbon.metrics.core.Timer.Context;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Default implementation of {@link BrokerMetricManager}.
  */
@@ -37,6 +40,8 @@ public class DefaultBrokerMetricManager implements BrokerMetricManager {
     private final Timer messageWriteTimer;
     private final Timer messageDeleteTimer;
     private final Timer messageReadTimer;
+    private final Histogram deliveryBatchSizeHistogram;
+    private final Timer deliverySliceTimer;
 
     public DefaultBrokerMetricManager(MetricService metrics) {
         totalPublishedCounter = metrics.meter(MetricService.name(Broker.class, "node", "totalPublished"), Level.INFO);
@@ -46,6 +51,9 @@ public class DefaultBrokerMetricManager implements BrokerMetricManager {
         messageWriteTimer = metrics.timer(MetricService.name(Broker.class, "node", "messageWrite"), Level.INFO);
         messageDeleteTimer = metrics.timer(MetricService.name(Broker.class, "node", "messageDelete"), Level.INFO);
         messageReadTimer = metrics.timer(MetricService.name(Broker.class, "node", "messageRead"), Level.INFO);
+        deliveryBatchSizeHistogram = metrics.histogram(MetricService.name(Broker.class, "node", "deliveryBatchSize"),
+                                                       Level.INFO);
+        deliverySliceTimer = metrics.timer(MetricService.name(Broker.class, "node", "deliverySlice"), Level.INFO);
     }
 
     @Override
@@ -82,4 +90,14 @@ public class DefaultBrokerMetricManager implements BrokerMetricManager {
     public Context startMessageReadTimer() {
         return messageReadTimer.start();
     }
+
+    @Override
+    public void updateDeliveryBatchSize(int batchSize) {
+        deliveryBatchSizeHistogram.update(batchSize);
+    }
+
+    @Override
+    public void updateDeliverySliceTime(long durationNanos) {
+        deliverySliceTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+    }
 }
@@ -62,6 +62,16 @@ public class NullBrokerMetricManager implements BrokerMetricManager {
         return nullContext;
     }
 
+    @Override
+    public void updateDeliveryBatchSize(int batchSize) {
+        // do nothing
+    }
+
+    @Override
+    public void updateDeliverySliceTime(long durationNanos) {
+        // do nothing
+    }
+
     /**
      * Null object representation for Timer context.
      */
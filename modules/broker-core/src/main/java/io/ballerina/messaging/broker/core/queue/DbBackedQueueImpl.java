@@ -19,6 +19,7 @@
 
 package io.ballerina.messaging.broker.core.queue;
 
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
 import io.ballerina.messaging.broker.core.BrokerException;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.Metadata;
@@ -28,6 +29,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Database backed queue implementation.
@@ -42,11 +45,19 @@ public class DbBackedQueueImpl extends Queue {
 
     private final QueueBuffer buffer;
 
+    private final QueueBufferFactory queueBufferFactory;
+
     public DbBackedQueueImpl(String queueName, boolean autoDelete,
             SharedMessageStore sharedMessageStore, QueueBufferFactory queueBufferFactory) throws BrokerException {
-        super(queueName, true, autoDelete);
+        this(queueName, autoDelete, FieldTable.EMPTY_TABLE, sharedMessageStore, queueBufferFactory);
+    }
+
+    public DbBackedQueueImpl(String queueName, boolean autoDelete, FieldTable arguments,
+            SharedMessageStore sharedMessageStore, QueueBufferFactory queueBufferFactory) throws BrokerException {
+        super(queueName, true, autoDelete, arguments);
         this.sharedMessageStore = sharedMessageStore;
-        buffer = queueBufferFactory.createBuffer(sharedMessageStore::readData);
+        this.queueBufferFactory = queueBufferFactory;
+        buffer = queueBufferFactory.createBuffer(new StoreMessageReader());
 
         LOGGER.debug("Recovering messages for queue {}", queueName);
 
@@ -82,9 +93,73 @@ public class DbBackedQueueImpl extends Queue {
         return buffer.getFirstDeliverable();
     }
 
+    @Override
+    public Message dequeueWithoutBlocking() {
+        return buffer.getFirstDeliverable(false);
+    }
+
+    @Override
+    public Message dequeue(Predicate<Message> filter) {
+        return buffer.getFirstDeliverable(filter, true);
+    }
+
+    @Override
+    public Message dequeueWithoutBlocking(Predicate<Message> filter) {
+        return buffer.getFirstDeliverable(filter, false);
+    }
+
+    @Override
+    public boolean requeue(Message message) {
+        return buffer.requeue(message);
+    }
+
+    @Override
+    public List<Message> requeue(List<Message> messages) {
+        return buffer.requeue(messages);
+    }
+
     @Override
     public void detach(Message message) {
         buffer.remove(message);
         sharedMessageStore.detach(getName(), message);
     }
+
+    @Override
+    public void detach(List<Message> messages) {
+        for (Message message : messages) {
+            buffer.remove(message);
+        }
+        sharedMessageStore.detach(getName(), messages);
+    }
+
+    /**
+     * Reads message data of this queue from the {@link SharedMessageStore}.
+     */
+    private class StoreMessageReader implements QueueBuffer.MessageReader {
+
+        @Override
+        public void fill(QueueBuffer buffer, Message message) {
+            sharedMessageStore.readData(buffer, message);
+        }
+
+        @Override
+        public void fill(QueueBuffer buffer, List<Message> messages) {
+            sharedMessageStore.readData(getName(), buffer, messages);
+        }
+
+        @Override
+        public boolean tryFill(QueueBuffer buffer, List<Message> messages) {
+            return sharedMessageStore.tryReadData(getName(), buffer, messages);
+        }
+
+        @Override
+        public void onMessageFilled() {
+            notifyDeliverable();
+        }
+
+        @Override
+        public void scheduleRetry(Runnable retry, long delayMillis) {
+            queueBufferFactory.scheduleReadRetry(retry, delayMillis);
+        }
+    }
 }
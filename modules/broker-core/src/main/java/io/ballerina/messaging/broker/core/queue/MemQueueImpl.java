@@ -22,7 +22,12 @@ package io.ballerina.messaging.broker.core.queue;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.Queue;
 
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * In memory queue implementation for non durable queues.
@@ -31,12 +36,24 @@ public class MemQueueImpl extends Queue {
 
     private final int capacity;
 
-    private final java.util.Queue<Message> queue;
+    private final LinkedBlockingDeque<Message> queue;
+
+    /**
+     * Requeued messages ordered by the original message sequence. These messages were already in memory before
+     * delivery. Therefore they are not counted against the capacity.
+     */
+    private final NavigableSet<Message> redeliveryQueue;
+
+    /**
+     * Number of messages in the {@link #redeliveryQueue}, which does not count its messages in constant time.
+     */
+    private final AtomicInteger redeliveryCount = new AtomicInteger();
 
     public MemQueueImpl(String name, int capacity, boolean autoDelete) {
         super(name, false, autoDelete);
         this.capacity = capacity;
         queue = new LinkedBlockingDeque<>(capacity);
+        redeliveryQueue = new ConcurrentSkipListSet<>(Comparator.comparingLong(Message::getInternalId));
     }
 
     /**
@@ -56,7 +73,7 @@ public class MemQueueImpl extends Queue {
 
     @Override
     public int size() {
-        return queue.size();
+        return queue.size() + redeliveryCount.get();
     }
 
     @Override
@@ -66,7 +83,51 @@ public class MemQueueImpl extends Queue {
 
     @Override
     public Message dequeue() {
-        return queue.poll();
+        Message message = redeliveryQueue.pollFirst();
+        if (message == null) {
+            message = queue.poll();
+        } else {
+            redeliveryCount.decrementAndGet();
+        }
+        return message;
+    }
+
+    @Override
+    public Message dequeue(Predicate<Message> filter) {
+        int skippedCount = 0;
+        for (Message message : redeliveryQueue) {
+            if (!filter.test(message)) {
+                if (++skippedCount == MAX_SKIPPED_MESSAGES) {
+                    return null;
+                }
+            } else if (redeliveryQueue.remove(message)) {
+                redeliveryCount.decrementAndGet();
+                return message;
+            }
+        }
+        for (Message message : queue) {
+            if (!filter.test(message)) {
+                if (++skippedCount == MAX_SKIPPED_MESSAGES) {
+                    return null;
+                }
+            } else if (queue.removeFirstOccurrence(message)) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Message dequeueWithoutBlocking(Predicate<Message> filter) {
+        return dequeue(filter);
+    }
+
+    @Override
+    public boolean requeue(Message message) {
+        if (redeliveryQueue.add(message)) {
+            redeliveryCount.incrementAndGet();
+        }
+        return true;
     }
 
     @Override
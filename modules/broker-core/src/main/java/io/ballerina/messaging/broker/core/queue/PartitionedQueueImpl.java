@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.queue;
+
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
+import io.ballerina.messaging.broker.common.data.types.ShortString;
+import io.ballerina.messaging.broker.core.BrokerException;
+import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.Metadata;
+import io.ballerina.messaging.broker.core.Queue;
+import io.ballerina.messaging.broker.core.QueueHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Logical queue backed by a fixed set of partition queues. Messages are spread across partitions using the
+ * partition key header, the message group header when there is no partition key, or the message id when neither is
+ * set. Messages with the same partition key, or of the same message group, always go to the same partition.
+ * Therefore their relative order is kept.
+ */
+public class PartitionedQueueImpl extends Queue {
+
+    /**
+     * Message header used to select the partition of a message.
+     */
+    public static final ShortString PARTITION_KEY_HEADER = ShortString.parseString("x-partition-key");
+
+    private final List<Queue> partitions;
+
+    /**
+     * Partition to start looking from in the next {@link #dequeue()} call.
+     */
+    private final AtomicInteger dequeueIndex = new AtomicInteger(0);
+
+    public PartitionedQueueImpl(String name, boolean durable, boolean autoDelete, FieldTable arguments,
+                                List<Queue> partitions) {
+        super(name, durable, autoDelete, arguments);
+        this.partitions = Collections.unmodifiableList(partitions);
+    }
+
+    /**
+     * Create the name of a partition queue.
+     *
+     * @param queueName      name of the logical queue
+     * @param partitionIndex index of the partition
+     * @return partition queue name
+     */
+    public static String getPartitionName(String queueName, int partitionIndex) {
+        return queueName + ".partition-" + partitionIndex;
+    }
+
+    public List<Queue> getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public int capacity() {
+        long capacity = 0;
+        for (Queue partition : partitions) {
+            capacity += partition.capacity();
+        }
+        return (int) Math.min(capacity, Queue.UNBOUNDED);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Queue partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean enqueue(Message message) throws BrokerException {
+        return getPartition(message).enqueue(message);
+    }
+
+    @Override
+    public Message dequeue() {
+        int start = Math.floorMod(dequeueIndex.getAndIncrement(), partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Message message = partitions.get((start + i) % partitions.size()).dequeue();
+            if (Objects.nonNull(message)) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Message dequeue(Predicate<Message> filter) {
+        int start = Math.floorMod(dequeueIndex.getAndIncrement(), partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            Message message = partitions.get((start + i) % partitions.size()).dequeue(filter);
+            if (Objects.nonNull(message)) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean requeue(Message message) {
+        return getPartition(message).requeue(message);
+    }
+
+    @Override
+    public List<Message> requeue(List<Message> messages) {
+        List<Message> untrackedMessages = new ArrayList<>(0);
+        for (Map.Entry<Queue, List<Message>> entry : groupByPartition(messages).entrySet()) {
+            untrackedMessages.addAll(entry.getKey().requeue(entry.getValue()));
+        }
+        return untrackedMessages;
+    }
+
+    @Override
+    public void detach(Message message) throws BrokerException {
+        getPartition(message).detach(message);
+    }
+
+    @Override
+    public void detach(List<Message> messages) throws BrokerException {
+        for (Map.Entry<Queue, List<Message>> entry : groupByPartition(messages).entrySet()) {
+            entry.getKey().detach(entry.getValue());
+        }
+    }
+
+    /**
+     * Group messages by partition. Messages keep their relative order within each partition.
+     */
+    private Map<Queue, List<Message>> groupByPartition(List<Message> messages) {
+        Map<Queue, List<Message>> partitionMessages = new LinkedHashMap<>();
+        for (Message message : messages) {
+            partitionMessages.computeIfAbsent(getPartition(message), partition -> new ArrayList<>()).add(message);
+        }
+        return partitionMessages;
+    }
+
+    @Override
+    public Queue getPartition(Message message) {
+        Metadata metadata = message.getMetadata();
+        FieldValue partitionKey = Objects.nonNull(metadata) ? metadata.getHeader(PARTITION_KEY_HEADER) : null;
+        if (Objects.isNull(partitionKey) && Objects.nonNull(metadata)) {
+            partitionKey = metadata.getHeader(QueueHandler.MESSAGE_GROUP_HEADER);
+        }
+
+        int hash;
+        if (Objects.nonNull(partitionKey)) {
+            hash = partitionKey.getValue().toString().hashCode();
+        } else {
+            hash = Long.hashCode(message.getInternalId());
+        }
+        return partitions.get(Math.floorMod(hash, partitions.size()));
+    }
+}
@@ -20,18 +20,50 @@
 package io.ballerina.messaging.broker.core.queue;
 
 import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.Metadata;
+import io.ballerina.messaging.broker.core.Queue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Used to track messages for the queue.
  */
 public class QueueBuffer {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueueBuffer.class);
+
+    /**
+     * Smallest number of bare messages requested from the database in a single read.
+     */
+    private static final int MIN_READ_AHEAD_WINDOW = 128;
+
+    /**
+     * Number of failed reads after which a message is dropped from the buffer. The message is still in the database
+     * and is loaded again when the broker restarts.
+     */
+    static final int MAX_READ_ATTEMPTS = 10;
+
+    /**
+     * Delay before reading messages of a failed read again. Doubled with each failed read of a message.
+     */
+    static final long INITIAL_READ_RETRY_DELAY_MILLIS = 100;
+
+    static final long MAX_READ_RETRY_DELAY_MILLIS = 30_000;
+
+    private static final Predicate<Message> ALL_MESSAGES = message -> true;
+
     /**
      * Maximum number of messages held in memory.
      */
@@ -42,6 +74,11 @@ public class QueueBuffer {
      */
     private final MessageReader messageReader;
 
+    /**
+     * Decides the number of bare messages read in a single range read.
+     */
+    private final ReadAheadController readAheadController;
+
     /**
      * Size of the queue. i.e. in memory messages + DB messages.
      */
@@ -62,6 +99,34 @@ public class QueueBuffer {
      */
     private Node firstUndeliverable;
 
+    /**
+     * Pointer to the first node that is not yet submitted for a read.
+     */
+    private Node readCursor;
+
+    /**
+     * Number of messages submitted for reading but not yet filled.
+     */
+    private AtomicInteger inFlightReadCount = new AtomicInteger(0);
+
+    /**
+     * Set when failed reads are retried. The read cursor has already passed the messages of a failed read. Therefore
+     * the next read scans again from the first undeliverable node.
+     */
+    private volatile boolean rescanRequired = false;
+
+    /**
+     * True while messages of a failed read wait for the retry delay. They are not read again until then.
+     */
+    private final AtomicBoolean readRetryPending = new AtomicBoolean(false);
+
+    /**
+     * Requeued nodes waiting for redelivery, ordered by the original message sequence. These nodes are already in the
+     * list at their original position. Therefore redelivery does not add new entries to the buffer. Nodes skipped by
+     * a filtered dequeue wait here as well.
+     */
+    private final TreeMap<Long, Node> redeliveryNodes = new TreeMap<>();
+
     /**
      * Pointer to last node.
      */
@@ -75,6 +140,7 @@ public class QueueBuffer {
     QueueBuffer(int inMemoryLimit, MessageReader messageReader) {
         this.inMemoryLimit = inMemoryLimit;
         this.messageReader = messageReader;
+        this.readAheadController = new ReadAheadController(MIN_READ_AHEAD_WINDOW, inMemoryLimit);
     }
 
     /**
@@ -138,6 +204,9 @@ public class QueueBuffer {
             if (Objects.isNull(firstUndeliverable)) {
                 firstUndeliverable = newNode;
             }
+            if (Objects.isNull(readCursor)) {
+                readCursor = newNode;
+            }
 
             newNode.item.clearData();
         } else {
@@ -161,6 +230,9 @@ public class QueueBuffer {
         if (Objects.isNull(firstDeliverableCandidate)) {
             firstDeliverableCandidate = newNode;
         }
+        if (Objects.isNull(readCursor)) {
+            readCursor = newNode;
+        }
     }
 
     /**
@@ -183,6 +255,11 @@ public class QueueBuffer {
         final Node next = node.next;
         final Node prev = node.prev;
 
+        if (node == readCursor) {
+            readCursor = next;
+        }
+        redeliveryNodes.remove(node.item.getInternalId());
+
         // if prev is null we are removing the first element
         if (Objects.nonNull(prev)) {
             prev.next = next;
@@ -200,7 +277,62 @@ public class QueueBuffer {
         node.item = null;
         size.decrementAndGet();
         deliverableMessageCount.decrementAndGet();
-        submitMessageReads();
+        readAheadController.recordDrain();
+        submitMessageReads(true);
+    }
+
+    /**
+     * Mark a delivered message for redelivery. The message keeps its original position in the buffer and is
+     * delivered ahead of the undelivered messages, in the original order. Once more than a read ahead window of
+     * messages are waiting for redelivery, the data of further persistent messages is cleared and read again from
+     * the database when their turn comes.
+     *
+     * @param message requeued message
+     * @return true if the message was tracked by the buffer, false otherwise
+     */
+    public synchronized boolean requeue(Message message) {
+        return requeue(message, readAheadController.windowSize());
+    }
+
+    /**
+     * Mark a batch of delivered messages for redelivery while holding the buffer monitor once.
+     *
+     * @param messages requeued messages
+     * @return messages that are not tracked by the buffer
+     */
+    public synchronized List<Message> requeue(List<Message> messages) {
+        int windowSize = readAheadController.windowSize();
+        List<Message> untrackedMessages = new ArrayList<>(0);
+        for (Message message : messages) {
+            if (!requeue(message, windowSize)) {
+                untrackedMessages.add(message);
+            }
+        }
+        return untrackedMessages;
+    }
+
+    private boolean requeue(Message message, int windowSize) {
+        Node node = keyMap.get(message.getInternalId());
+        if (Objects.isNull(node)) {
+            return false;
+        }
+
+        node.item = message;
+        redeliveryNodes.put(message.getInternalId(), node);
+
+        if (redeliveryNodes.size() > windowSize && isEvictable(node)) {
+            message.clearData();
+            deliverableMessageCount.decrementAndGet();
+        }
+        return true;
+    }
+
+    private boolean isEvictable(Node node) {
+        Metadata metadata = node.item.getMetadata();
+        return Objects.nonNull(metadata)
+                && Objects.nonNull(metadata.getProperty(Metadata.DELIVERY_MODE))
+                && metadata.getByteProperty(Metadata.DELIVERY_MODE) == Metadata.PERSISTENT_MESSAGE
+                && node.state.compareAndSet(Node.FULL_MESSAGE, Node.BARE_MESSAGE);
     }
 
     /**
@@ -217,9 +349,75 @@ public class QueueBuffer {
      *
      * @return the next deliverable message in queue
      */
-    public synchronized Message getFirstDeliverable() {
+    public Message getFirstDeliverable() {
+        return getFirstDeliverable(true);
+    }
+
+    /**
+     * Return the first deliverable message if one is available.
+     *
+     * @param blockingReads if false, reads are submitted only if the message reader accepts them without waiting
+     *                      and requeued messages are not read
+     * @return the next deliverable message in queue
+     */
+    public Message getFirstDeliverable(boolean blockingReads) {
+        return getFirstDeliverable(ALL_MESSAGES, blockingReads);
+    }
+
+    /**
+     * Return the first deliverable message accepted by the filter. Skipped messages keep their turn ahead of later
+     * messages, and are not read again from the database. Gives up after skipping
+     * {@link Queue#MAX_SKIPPED_MESSAGES} messages.
+     *
+     * @param filter        returns true for messages that can be delivered
+     * @param blockingReads if false, reads are submitted only if the message reader accepts them without waiting
+     *                      and requeued messages are not read
+     * @return the next deliverable message accepted by the filter
+     */
+    public synchronized Message getFirstDeliverable(Predicate<Message> filter, boolean blockingReads) {
+        Node unreadableNode = getFirstUnreadable();
+        while (Objects.nonNull(unreadableNode)) {
+            drop(unreadableNode);
+            unreadableNode = getFirstUnreadable();
+        }
+
+        int skippedCount = 0;
+        Iterator<Node> redeliveryIterator = redeliveryNodes.values().iterator();
+        while (redeliveryIterator.hasNext()) {
+            Node node = redeliveryIterator.next();
+            if (blockingReads && node.state.get() == Node.BARE_MESSAGE && inFlightReadCount.get() == 0
+                    && !readRetryPending.get()) {
+                submitRedeliveryReads();
+            }
+
+            if (node.state.get() != Node.FULL_MESSAGE) {
+                // Evicted messages are read back by message ID. Later messages are held back until then to preserve
+                // the original order
+                return null;
+            } else if (filter.test(node.item)) {
+                redeliveryIterator.remove();
+                return node.item;
+            } else if (++skippedCount == Queue.MAX_SKIPPED_MESSAGES) {
+                return null;
+            }
+        }
+
+        submitMessageReads(blockingReads);
+        Node node = takeFirstUndelivered();
+        while (Objects.nonNull(node) && !filter.test(node.item)) {
+            redeliveryNodes.put(node.item.getInternalId(), node);
+            if (++skippedCount == Queue.MAX_SKIPPED_MESSAGES) {
+                return null;
+            }
+            node = takeFirstUndelivered();
+        }
+        return Objects.nonNull(node) ? node.item : null;
+    }
 
-        submitMessageReads();
+    /**
+     * Take the first message that was not delivered yet if its data is available.
+     */
+    private Node takeFirstUndelivered() {
         Node deliverableCandidate = firstDeliverableCandidate;
 
         if (deliverableCandidate != firstUndeliverable) {
@@ -229,18 +427,68 @@ public class QueueBuffer {
             }
 
             firstDeliverableCandidate = deliverableCandidate.next;
-            return deliverableCandidate.item;
+            return deliverableCandidate;
         } else if (firstUndeliverable != null && firstUndeliverable.state.get() == Node.FULL_MESSAGE) {
             Node newDeliverable = firstUndeliverable;
             firstDeliverableCandidate = firstUndeliverable.next;
             pushFirstUndeliverableCursor();
 
-            return newDeliverable.item;
+            return newDeliverable;
         } else {
             return null;
         }
     }
 
+    /**
+     * Get the node at the head of the buffer if its message could not be read.
+     */
+    private Node getFirstUnreadable() {
+        Node node = redeliveryNodes.isEmpty() ? firstUndeliverable : redeliveryNodes.firstEntry().getValue();
+        if (Objects.nonNull(node) && node.state.get() == Node.UNREADABLE) {
+            return node;
+        }
+        return null;
+    }
+
+    /**
+     * Drop a message that could not be read from the buffer. The message is not deleted from the database.
+     */
+    private void drop(Node node) {
+        LOGGER.warn("Dropping message {} from the queue buffer since its data could not be read after {} attempts",
+                    node.item.getInternalId(), node.failedReadCount);
+        if (node == firstDeliverableCandidate) {
+            firstDeliverableCandidate = node.next;
+        }
+        if (node == firstUndeliverable) {
+            pushFirstUndeliverableCursor();
+        }
+        keyMap.remove(node.item.getInternalId());
+        unlink(node);
+        // The message was not counted as deliverable
+        deliverableMessageCount.incrementAndGet();
+    }
+
+    private void submitRedeliveryReads() {
+        int windowSize = readAheadController.windowSize();
+        List<Message> bareMessages = new ArrayList<>(windowSize);
+
+        for (Node node : redeliveryNodes.values()) {
+            if (bareMessages.size() == windowSize) {
+                break;
+            }
+            if (node.state.compareAndSet(Node.BARE_MESSAGE, Node.SUBMITTED_FOR_FILLING)) {
+                bareMessages.add(node.item);
+            }
+        }
+
+        inFlightReadCount.addAndGet(bareMessages.size());
+        // Requeued messages are not contiguous in the queue. Reading them as a range would scan every message in
+        // between. Individual reads are batched by the store into a single read on the message IDs instead.
+        for (Message message : bareMessages) {
+            messageReader.fill(this, message);
+        }
+    }
+
     private void pushFirstUndeliverableCursor() {
         firstUndeliverable = firstUndeliverable.next;
 
@@ -249,27 +497,109 @@ public class QueueBuffer {
         }
     }
 
-    private void submitMessageReads() {
-        int fillableMessageCount = inMemoryLimit - deliverableMessageCount.get();
+    /**
+     * Submit a range read for the contiguous bare messages starting from the read cursor. Only one range read is in
+     * flight at a time. A read is submitted once there is room for half a read ahead window so that consumers keep
+     * the other half while the read is in flight. If the consumers have already drained every message that is in
+     * memory, a read is submitted for whatever room is left.
+     *
+     * @param blockingReads if false, the read is dropped when the message reader cannot accept it without waiting
+     */
+    private void submitMessageReads(boolean blockingReads) {
+        if (inFlightReadCount.get() > 0) {
+            return;
+        }
+
+        if (rescanRequired) {
+            rescanRequired = false;
+            readCursor = firstUndeliverable;
+        }
 
-        Node undeliverableNode = this.firstUndeliverable;
-        while (fillableMessageCount-- > 0 && undeliverableNode != null) {
-            if (undeliverableNode.state.compareAndSet(Node.BARE_MESSAGE, Node.SUBMITTED_FOR_FILLING)) {
-                Message message = undeliverableNode.item;
-                messageReader.fill(this, message);
-            } else {
+        if (Objects.isNull(readCursor)) {
+            return;
+        }
+
+        int windowSize = readAheadController.windowSize();
+        int fillableMessageCount = Math.min(inMemoryLimit - deliverableMessageCount.get(), windowSize);
+        boolean drained = firstDeliverableCandidate == firstUndeliverable;
+        if (fillableMessageCount <= 0 || (fillableMessageCount < windowSize / 2 && !drained)) {
+            return;
+        }
+
+        List<Message> bareMessages = new ArrayList<>(fillableMessageCount);
+        Node firstNode = readCursor;
+        Node node = readCursor;
+        while (fillableMessageCount > 0 && node != null) {
+            if (node.state.compareAndSet(Node.BARE_MESSAGE, Node.SUBMITTED_FOR_FILLING)) {
+                bareMessages.add(node.item);
+                fillableMessageCount--;
+            } else if (!bareMessages.isEmpty()) {
+                // Keep the range contiguous. Reading over in-memory messages would fetch their data again.
                 break;
             }
 
-            undeliverableNode = undeliverableNode.next;
+            node = node.next;
+        }
+        readCursor = node;
+
+        if (bareMessages.isEmpty()) {
+            return;
+        }
+        inFlightReadCount.addAndGet(bareMessages.size());
+        if (blockingReads) {
+            messageReader.fill(this, bareMessages);
+        } else if (!messageReader.tryFill(this, bareMessages)) {
+            // Read again from the same position by a later blocking read
+            for (Message message : bareMessages) {
+                keyMap.get(message.getInternalId()).state.set(Node.BARE_MESSAGE);
+            }
+            inFlightReadCount.addAndGet(-bareMessages.size());
+            readCursor = firstNode;
         }
     }
 
+    /**
+     * Mark a message submitted for reading as filled. A message without data, for instance due to a failed database
+     * read, is marked bare again and read again after a delay that grows with each failed read. After
+     * {@link #MAX_READ_ATTEMPTS} failed reads the message is dropped from the buffer.
+     *
+     * @param message message submitted for reading
+     */
     public void markMessageFilled(Message message) {
         Node node = keyMap.get(message.getInternalId());
         if (Objects.nonNull(node)) {
-           node.state.set(Node.FULL_MESSAGE);
-           deliverableMessageCount.incrementAndGet();
+            if (Objects.nonNull(message.getMetadata())) {
+                node.failedReadCount = 0;
+                node.state.set(Node.FULL_MESSAGE);
+                deliverableMessageCount.incrementAndGet();
+            } else {
+                node.failedReadCount++;
+                if (node.failedReadCount >= MAX_READ_ATTEMPTS) {
+                    node.state.set(Node.UNREADABLE);
+                } else {
+                    node.state.set(Node.BARE_MESSAGE);
+                    scheduleReadRetry(node.failedReadCount);
+                }
+            }
+        }
+        inFlightReadCount.decrementAndGet();
+        messageReader.onMessageFilled();
+    }
+
+    /**
+     * Schedule a read of the messages of failed reads unless one is already scheduled.
+     *
+     * @param failedReadCount number of failed reads of the message that failed
+     */
+    private void scheduleReadRetry(int failedReadCount) {
+        if (readRetryPending.compareAndSet(false, true)) {
+            long delay = Math.min(INITIAL_READ_RETRY_DELAY_MILLIS << (failedReadCount - 1),
+                                  MAX_READ_RETRY_DELAY_MILLIS);
+            messageReader.scheduleRetry(() -> {
+                rescanRequired = true;
+                readRetryPending.set(false);
+                messageReader.onMessageFilled();
+            }, delay);
         }
     }
 
@@ -277,11 +607,17 @@ public class QueueBuffer {
         private static final int BARE_MESSAGE = 0;
         private static final int SUBMITTED_FOR_FILLING = 1;
         private static final int FULL_MESSAGE = 2;
+        private static final int UNREADABLE = 3;
         private Message item;
         private Node next;
         private Node prev;
         private AtomicInteger state = new AtomicInteger(BARE_MESSAGE);
 
+        /**
+         * Number of reads in a row that did not fill the message. Only updated by the thread completing reads.
+         */
+        private int failedReadCount;
+
         Node(Node prev, Message element, Node next) {
             this.item = element;
             this.next = next;
@@ -297,5 +633,50 @@ public class QueueBuffer {
     public interface MessageReader {
 
         void fill(QueueBuffer buffer, Message message);
+
+        /**
+         * Fill data of a range of bare messages. Messages are given in queue order. Implementations are expected
+         * to read the range in a single operation and call
+         * {@link QueueBuffer#markMessageFilled(Message)} for each message once the data is available.
+         *
+         * @param buffer   buffer the messages belong to
+         * @param messages bare messages in queue order
+         */
+        default void fill(QueueBuffer buffer, List<Message> messages) {
+            for (Message message : messages) {
+                fill(buffer, message);
+            }
+        }
+
+        /**
+         * Fill data of a range of bare messages like {@link #fill(QueueBuffer, List)}, unless the read cannot be
+         * submitted without waiting.
+         *
+         * @param buffer   buffer the messages belong to
+         * @param messages bare messages in queue order
+         * @return true if the read is submitted, false if it was not submitted
+         */
+        default boolean tryFill(QueueBuffer buffer, List<Message> messages) {
+            fill(buffer, messages);
+            return true;
+        }
+
+        /**
+         * Invoked after {@link QueueBuffer#markMessageFilled(Message)} so that the owner of the buffer can resume
+         * delivery.
+         */
+        default void onMessageFilled() {
+        }
+
+        /**
+         * Run a retry of failed reads after the given delay. Implementations reading from a database are expected to
+         * delay the retry so that a failing database is not queried in a tight loop.
+         *
+         * @param retry       retry to run
+         * @param delayMillis delay before the retry in milliseconds
+         */
+        default void scheduleRetry(Runnable retry, long delayMillis) {
+            retry.run();
+        }
     }
 }
@@ -19,18 +19,41 @@
 
 package io.ballerina.messaging.broker.core.queue;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.ballerina.messaging.broker.core.configuration.BrokerConfiguration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Factory class for {@link QueueBuffer}.
  */
 public class QueueBufferFactory {
     private int inMemoryCacheLimit;
 
+    /**
+     * Runs the delayed retries of failed message data reads of all queue buffers.
+     */
+    private final ScheduledExecutorService readRetryExecutor;
+
     public QueueBufferFactory(BrokerConfiguration configuration) {
         inMemoryCacheLimit = Integer.parseInt(configuration.getQueueInMemoryCacheLimit());
+        readRetryExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("QueueBufferReadRetry-%d").setDaemon(true).build());
     }
 
     public QueueBuffer createBuffer(QueueBuffer.MessageReader messageReader) {
         return new QueueBuffer(inMemoryCacheLimit, messageReader);
     }
+
+    /**
+     * Run a retry of failed message data reads after a delay.
+     *
+     * @param retry       retry to run
+     * @param delayMillis delay before the retry in milliseconds
+     */
+    public void scheduleReadRetry(Runnable retry, long delayMillis) {
+        readRetryExecutor.schedule(retry, delayMillis, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.queue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how many bare messages the {@link QueueBuffer} should read from the database in a single range read. The
+ * window follows the measured drain rate of the queue so that fast consumers get large sequential reads while idle
+ * queues do not pull unnecessary data into memory.
+ * <p>
+ * This class is not thread safe. Callers are expected to hold the {@link QueueBuffer} monitor.
+ */
+final class ReadAheadController {
+
+    /**
+     * Minimum time between two drain rate calculations.
+     */
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Weight given to the latest sample when smoothing the drain rate.
+     */
+    private static final double SMOOTHING_FACTOR = 0.5;
+
+    /**
+     * Amount of consumption, in seconds, a single read ahead should cover.
+     */
+    private static final double READ_AHEAD_SECONDS = 1.0;
+
+    /**
+     * Smallest number of messages requested in a single read.
+     */
+    private final int minWindowSize;
+
+    /**
+     * Largest number of messages requested in a single read.
+     */
+    private final int maxWindowSize;
+
+    /**
+     * Messages removed from the buffer since the current sample started.
+     */
+    private long drainedInSample;
+
+    /**
+     * Start time of the current sample.
+     */
+    private long sampleStartNanos;
+
+    /**
+     * Smoothed drain rate in messages per second.
+     */
+    private double drainRate;
+
+    ReadAheadController(int minWindowSize, int maxWindowSize) {
+        this.minWindowSize = Math.min(minWindowSize, maxWindowSize);
+        this.maxWindowSize = maxWindowSize;
+        this.sampleStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Record that a message left the buffer.
+     */
+    void recordDrain() {
+        drainedInSample++;
+    }
+
+    /**
+     * Calculate the number of messages that should be read in the next range read.
+     *
+     * @return read ahead window size
+     */
+    int windowSize() {
+        updateDrainRate(System.nanoTime());
+        long window = (long) (drainRate * READ_AHEAD_SECONDS);
+
+        if (window < minWindowSize) {
+            return minWindowSize;
+        } else if (window > maxWindowSize) {
+            return maxWindowSize;
+        }
+        return (int) window;
+    }
+
+    private void updateDrainRate(long now) {
+        long elapsed = now - sampleStartNanos;
+        if (elapsed < SAMPLE_INTERVAL_NANOS) {
+            return;
+        }
+
+        double sampleRate = drainedInSample * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        drainRate = SMOOTHING_FACTOR * sampleRate + (1 - SMOOTHING_FACTOR) * drainRate;
+        drainedInSample = 0;
+        sampleStartNanos = now;
+    }
+}
@@ -31,7 +31,7 @@ public class UnmodifiableQueueWrapper extends Queue {
     private final Queue queue;
 
     public UnmodifiableQueueWrapper(Queue queue) {
-        super(queue.getName(), queue.isDurable(), queue.isAutoDelete());
+        super(queue.getName(), queue.isDurable(), queue.isAutoDelete(), queue.getArguments());
         this.queue = queue;
     }
 
@@ -60,6 +60,11 @@ public class UnmodifiableQueueWrapper extends Queue {
         throw new UnsupportedOperationException("Queue " + queue.getName() + " is unmodifiable");
     }
 
+    @Override
+    public boolean requeue(Message message) {
+        throw new UnsupportedOperationException("Queue " + queue.getName() + " is unmodifiable");
+    }
+
     @Override
     public void detach(Message message) {
         throw new UnsupportedOperationException("Queue " + queue.getName() + " is unmodifiable");
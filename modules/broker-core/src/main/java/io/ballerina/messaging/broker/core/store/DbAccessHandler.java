@@ -20,6 +20,7 @@
 package io.ballerina.messaging.broker.core.store;
 
 import com.lmax.disruptor.EventHandler;
+import io.ballerina.messaging.broker.core.BrokerException;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.store.dao.MessageDao;
 import org.slf4j.Logger;
@@ -50,6 +51,11 @@ public class DbAccessHandler implements EventHandler<DbOperation> {
 
     private final Map<Long, Message> readList;
 
+    /**
+     * Pending range reads. Copied out of the events since the events are cleared and reused once a read fails.
+     */
+    private final List<RangeRead> rangeReadList;
+
     public DbAccessHandler(MessageDao messageDao, int maxBatchSize) {
         this.messageDao = messageDao;
         this.maxBatchSize = maxBatchSize;
@@ -57,6 +63,7 @@ public class DbAccessHandler implements EventHandler<DbOperation> {
         deleteList = new ArrayList<>(maxBatchSize);
         detachMap = new HashMap<>(maxBatchSize);
         readList = new HashMap<>(maxBatchSize);
+        rangeReadList = new ArrayList<>();
     }
 
     @Override
@@ -84,6 +91,9 @@ public class DbAccessHandler implements EventHandler<DbOperation> {
             case READ_MSG_DATA:
                 readList.put(event.getBareMessage().getInternalId(), event.getBareMessage());
                 break;
+            case READ_MSG_DATA_RANGE:
+                rangeReadList.add(new RangeRead(event.getQueueName(), event.getBareMessages()));
+                break;
             case NO_OP:
                 break;
             default:
@@ -111,9 +121,47 @@ public class DbAccessHandler implements EventHandler<DbOperation> {
             messageDao.read(readList);
             readList.clear();
         }
+
+        if (isBatchReady(endOfBatch, rangeReadList)) {
+            try {
+                readRanges();
+            } finally {
+                rangeReadList.clear();
+            }
+        }
+    }
+
+    /**
+     * Read the pending ranges. A failed range read does not stop the remaining reads. Messages of a failed read stay
+     * bare and are read again by the queue buffer once {@link FinalEventHandler} hands them back.
+     */
+    private void readRanges() {
+        for (RangeRead rangeRead : rangeReadList) {
+            try {
+                messageDao.readRange(rangeRead.queueName, rangeRead.messages);
+            } catch (BrokerException | RuntimeException e) {
+                LOGGER.error("Error while reading data of {} messages of queue {}", rangeRead.messages.size(),
+                             rangeRead.queueName, e);
+            }
+        }
     }
 
     private boolean isBatchReady(boolean endOfBatch, Collection collection) {
         return !collection.isEmpty() && (collection.size() >= maxBatchSize || endOfBatch);
     }
+
+    /**
+     * A range read taken from a {@link DbOperation}.
+     */
+    private static final class RangeRead {
+
+        private final String queueName;
+
+        private final List<Message> messages;
+
+        private RangeRead(String queueName, List<Message> messages) {
+            this.queueName = queueName;
+            this.messages = messages;
+        }
+    }
 }
@@ -73,6 +73,7 @@ public class DbEventMatcher implements EventHandler<DbOperation> {
                          .add(event);
                 break;
             case READ_MSG_DATA:
+            case READ_MSG_DATA_RANGE:
             case NO_OP:
                 break;
             default:
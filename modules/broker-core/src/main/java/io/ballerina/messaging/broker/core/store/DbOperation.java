@@ -23,6 +23,7 @@ import com.lmax.disruptor.EventFactory;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.queue.QueueBuffer;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -40,6 +41,7 @@ public class DbOperation {
         DETACH_MSG_FROM_QUEUE,
         DELETE_MESSAGE,
         READ_MSG_DATA,
+        READ_MSG_DATA_RANGE,
         NO_OP;
     }
 
@@ -77,6 +79,8 @@ public class DbOperation {
 
     private Message bareMessage;
 
+    private List<Message> bareMessages;
+
     private DbOperation() {
         type = DbOpType.NO_OP;
         this.state = new AtomicInteger(AVAILABLE);
@@ -117,6 +121,13 @@ public class DbOperation {
         this.queueBuffer = queueBuffer;
     }
 
+    public void readMessageDataRange(String queueName, QueueBuffer queueBuffer, List<Message> messages) {
+        type = DbOpType.READ_MSG_DATA_RANGE;
+        this.queueName = queueName;
+        this.bareMessages = messages;
+        this.queueBuffer = queueBuffer;
+    }
+
     /**
      * Getter for bareMessage
      */
@@ -124,6 +135,13 @@ public class DbOperation {
         return bareMessage;
     }
 
+    /**
+     * Getter for bareMessages
+     */
+    public List<Message> getBareMessages() {
+        return bareMessages;
+    }
+
     /**
      * Getter for queueBuffer
      */
@@ -153,6 +171,7 @@ public class DbOperation {
             message = null;
         }
         bareMessage = null;
+        bareMessages = null;
         queueBuffer = null;
         messageId = -1;
         queueName = null;
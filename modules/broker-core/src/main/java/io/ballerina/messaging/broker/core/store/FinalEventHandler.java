@@ -20,6 +20,8 @@
 package io.ballerina.messaging.broker.core.store;
 
 import com.lmax.disruptor.EventHandler;
+import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.queue.QueueBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +39,12 @@ public class FinalEventHandler implements EventHandler<DbOperation> {
                 case READ_MSG_DATA:
                     event.getQueueBuffer().markMessageFilled(event.getBareMessage());
                     break;
+                case READ_MSG_DATA_RANGE:
+                    QueueBuffer queueBuffer = event.getQueueBuffer();
+                    for (Message message : event.getBareMessages()) {
+                        queueBuffer.markMessageFilled(message);
+                    }
+                    break;
                 case INSERT_MESSAGE:
                 case DELETE_MESSAGE:
                 case DETACH_MSG_FROM_QUEUE:
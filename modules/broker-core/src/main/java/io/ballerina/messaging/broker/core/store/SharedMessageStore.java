@@ -21,7 +21,9 @@ package io.ballerina.messaging.broker.core.store;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.EventTranslatorThreeArg;
 import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import io.ballerina.messaging.broker.core.BrokerException;
@@ -30,7 +32,10 @@ import io.ballerina.messaging.broker.core.queue.QueueBuffer;
 import io.ballerina.messaging.broker.core.store.dao.MessageDao;
 import io.ballerina.messaging.broker.core.store.disruptor.SleepingBlockingWaitStrategy;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
@@ -60,8 +65,17 @@ public class SharedMessageStore {
     private static final EventTranslatorTwoArg<DbOperation, QueueBuffer, Message> READ_MESSAGE_DATA =
             (event, sequence, queueBuffer, message) -> event.readMessageData(queueBuffer, message);
 
+    private static final EventTranslatorThreeArg<DbOperation, String, QueueBuffer, List<Message>>
+            READ_MESSAGE_DATA_RANGE = (event, sequence, queueName, queueBuffer, messages) ->
+            event.readMessageDataRange(queueName, queueBuffer, messages);
+
     private final MessageDao messageDao;
 
+    /**
+     * Size of the disruptor ring buffer. Batches of operations are published in chunks of at most this size.
+     */
+    private final int bufferSize;
+
     @SuppressWarnings("unchecked")
     SharedMessageStore(MessageDao messageDao, int bufferSize, int maxDbBatchSize) {
 
@@ -79,6 +93,7 @@ public class SharedMessageStore {
                  .then(new FinalEventHandler());
         disruptor.start();
         this.messageDao = messageDao;
+        this.bufferSize = bufferSize;
     }
 
     public void add(Message message) {
@@ -107,10 +122,70 @@ public class SharedMessageStore {
         }
     }
 
+    /**
+     * Detach a batch of messages from a queue. The database operations of the batch are claimed from the disruptor
+     * together instead of one at a time.
+     *
+     * @param queueName name of the queue
+     * @param messages  messages to detach
+     */
+    public void detach(String queueName, List<Message> messages) {
+        List<Long> deletedIds = new ArrayList<>(messages.size());
+        List<Long> detachedIds = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            message.removeAttachedQueue(queueName);
+            if (!message.hasAttachedQueues()) {
+                deletedIds.add(message.getInternalId());
+            } else {
+                detachedIds.add(message.getInternalId());
+            }
+        }
+
+        RingBuffer<DbOperation> ringBuffer = disruptor.getRingBuffer();
+        for (int start = 0; start < deletedIds.size(); start += bufferSize) {
+            Long[] messageIds = toArray(deletedIds, start);
+            ringBuffer.publishEvents(DELETE_MESSAGE, messageIds);
+        }
+        for (int start = 0; start < detachedIds.size(); start += bufferSize) {
+            Long[] messageIds = toArray(detachedIds, start);
+            String[] queueNames = new String[messageIds.length];
+            Arrays.fill(queueNames, queueName);
+            ringBuffer.publishEvents(DETACH_FROM_QUEUE, queueNames, messageIds);
+        }
+    }
+
+    private Long[] toArray(List<Long> messageIds, int start) {
+        int end = Math.min(messageIds.size(), start + bufferSize);
+        return messageIds.subList(start, end).toArray(new Long[end - start]);
+    }
+
     public void readData(QueueBuffer queueBuffer, Message message) {
         disruptor.publishEvent(READ_MESSAGE_DATA, queueBuffer, message);
     }
 
+    /**
+     * Read data of a contiguous range of bare messages of a queue with a single database read.
+     *
+     * @param queueName   name of the queue the messages belong to
+     * @param queueBuffer buffer to notify once the messages are filled
+     * @param messages    bare messages in queue order
+     */
+    public void readData(String queueName, QueueBuffer queueBuffer, List<Message> messages) {
+        disruptor.publishEvent(READ_MESSAGE_DATA_RANGE, queueName, queueBuffer, messages);
+    }
+
+    /**
+     * Read data of a contiguous range of bare messages of a queue unless the operation buffer is full.
+     *
+     * @param queueName   name of the queue the messages belong to
+     * @param queueBuffer buffer to notify once the messages are filled
+     * @param messages    bare messages in queue order
+     * @return true if the read is submitted, false if the operation buffer has no room
+     */
+    public boolean tryReadData(String queueName, QueueBuffer queueBuffer, List<Message> messages) {
+        return disruptor.getRingBuffer().tryPublishEvent(READ_MESSAGE_DATA_RANGE, queueName, queueBuffer, messages);
+    }
+
     public void flush(long internalMessageId) {
         Message message = pendingMessages.remove(internalMessageId);
         if (message != null) {
@@ -127,6 +202,16 @@ public class SharedMessageStore {
         return messageDao.readAll(queueName);
     }
 
+    /**
+     * Get the fraction of the operation buffer taken by operations that are not yet written to the database. The
+     * publishers block once the buffer is full.
+     *
+     * @return backlog as a value between 0 and 1
+     */
+    public double getBacklog() {
+        return (double) (bufferSize - disruptor.getRingBuffer().remainingCapacity()) / bufferSize;
+    }
+
     /**
      * Method to clear all pending messages.
      */
@@ -24,6 +24,7 @@ import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.store.DbOperation;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -66,4 +67,13 @@ public interface MessageDao {
      * @param readList list of messages.
      */
     Collection<Message> read(Map<Long, Message> readList) throws BrokerException;
+
+    /**
+     * Read message data for a contiguous range of messages of a queue. Only the given messages are filled even if
+     * the range contains other messages of the queue.
+     *
+     * @param queueName name of the queue.
+     * @param messages  messages ordered by message id.
+     */
+    void readRange(String queueName, List<Message> messages) throws BrokerException;
 }
@@ -36,7 +36,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import javax.sql.DataSource;
@@ -209,6 +211,101 @@ class MessageCrudOperationsDao extends BaseDao {
         }
     }
 
+    /**
+     * Read metadata and content of a contiguous range of messages of a queue. The range is bounded by the first and
+     * the last message of the list so the database can serve it with an index range scan.
+     */
+    public List<Message> readRange(Connection connection, String queueName,
+                                   List<Message> messages) throws BrokerException {
+
+        if (messages.isEmpty()) {
+            return messages;
+        }
+
+        Map<Long, Message> messageMap = new HashMap<>(messages.size());
+        for (Message message : messages) {
+            messageMap.put(message.getInternalId(), message);
+        }
+        long firstId = messages.get(0).getInternalId();
+        long lastId = messages.get(messages.size() - 1).getInternalId();
+
+        try (Context ignored = metricManager.startMessageReadTimer()) {
+            populateMetadataRange(connection, queueName, firstId, lastId, messageMap);
+            populateContentRange(connection, queueName, firstId, lastId, messageMap);
+            return messages;
+        } catch (SQLException e) {
+            throw new BrokerException("Error occurred while reading messages of queue " + queueName, e);
+        }
+    }
+
+    private void populateMetadataRange(Connection connection, String queueName, long firstId, long lastId,
+                                       Map<Long, Message> messageMap) throws SQLException, BrokerException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            statement = connection.prepareStatement(RDBMSConstants.PS_SELECT_METADATA_RANGE_FOR_QUEUE);
+            statement.setString(1, queueName);
+            statement.setLong(2, firstId);
+            statement.setLong(3, lastId);
+
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                Message message = messageMap.get(resultSet.getLong(1));
+                if (Objects.nonNull(message)) {
+                    message.setMetadata(parseMetadata(resultSet));
+                }
+            }
+        } finally {
+            close(resultSet);
+            close(statement);
+        }
+    }
+
+    private void populateContentRange(Connection connection, String queueName, long firstId, long lastId,
+                                      Map<Long, Message> messageMap) throws SQLException {
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+
+        try {
+            statement = connection.prepareStatement(RDBMSConstants.PS_SELECT_CONTENT_RANGE_FOR_QUEUE);
+            statement.setString(1, queueName);
+            statement.setLong(2, firstId);
+            statement.setLong(3, lastId);
+
+            resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                Message message = messageMap.get(resultSet.getLong(1));
+                if (Objects.nonNull(message)) {
+                    int offset = resultSet.getInt(2);
+                    byte[] bytes = resultSet.getBytes(3);
+                    message.addChunk(new ContentChunk(offset, Unpooled.copiedBuffer(bytes)));
+                }
+            }
+        } finally {
+            close(resultSet);
+            close(statement);
+        }
+    }
+
+    private Metadata parseMetadata(ResultSet resultSet) throws SQLException, BrokerException {
+        String exchangeName = resultSet.getString(2);
+        String routingKey = resultSet.getString(3);
+        long contentLength = resultSet.getLong(4);
+        byte[] bytes = resultSet.getBytes(5);
+        ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
+        try {
+            Metadata metadata = new Metadata(routingKey, exchangeName, contentLength);
+            metadata.setProperties(FieldTable.parse(buffer));
+            metadata.setHeaders(FieldTable.parse(buffer));
+            return metadata;
+        } catch (Exception e) {
+            throw new BrokerException("Error occurred while parsing metadata properties", e);
+        } finally {
+            buffer.release();
+        }
+    }
+
     private String getSQLFormattedIdList(int size) {
         StringBuilder paramList = new StringBuilder();
         paramList.append("?");
@@ -240,27 +337,14 @@ class MessageCrudOperationsDao extends BaseDao {
             metadataResultSet = selectMetadata.executeQuery();
             while (metadataResultSet.next()) {
                 long messageId = metadataResultSet.getLong(1);
-                String exchangeName = metadataResultSet.getString(2);
-                String routingKey = metadataResultSet.getString(3);
-                long contentLength = metadataResultSet.getLong(4);
-                byte[] bytes = metadataResultSet.getBytes(5);
-                ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
-                try {
-                    Metadata metadata = new Metadata(routingKey, exchangeName, contentLength);
-                    metadata.setProperties(FieldTable.parse(buffer));
-                    metadata.setHeaders(FieldTable.parse(buffer));
-
-                    Message message = messageMap.get(messageId);
-                    if (Objects.nonNull(message)) {
-                        message.setMetadata(metadata);
-                    } else {
-                        message = new Message(messageId, metadata);
-                        messageMap.put(messageId, message);
-                    }
-                } catch (Exception e) {
-                    throw new BrokerException("Error occurred while parsing metadata properties", e);
-                } finally {
-                    buffer.release();
+                Metadata metadata = parseMetadata(metadataResultSet);
+
+                Message message = messageMap.get(messageId);
+                if (Objects.nonNull(message)) {
+                    message.setMetadata(metadata);
+                } else {
+                    message = new Message(messageId, metadata);
+                    messageMap.put(messageId, message);
                 }
             }
         } finally {
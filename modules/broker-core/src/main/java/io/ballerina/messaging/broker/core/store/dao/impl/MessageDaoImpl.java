@@ -25,6 +25,7 @@ import io.ballerina.messaging.broker.core.store.DbOperation;
 import io.ballerina.messaging.broker.core.store.dao.MessageDao;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -69,4 +70,10 @@ class MessageDaoImpl implements MessageDao {
         return crudOperationsDao.selectOperation(connection -> crudOperationsDao.read(connection, readList),
                                                  "retrieving messages for delivery");
     }
+
+    @Override
+    public void readRange(String queueName, List<Message> messages) throws BrokerException {
+        crudOperationsDao.selectOperation(connection -> crudOperationsDao.readRange(connection, queueName, messages),
+                                          "retrieving message range for queue " + queueName);
+    }
 }
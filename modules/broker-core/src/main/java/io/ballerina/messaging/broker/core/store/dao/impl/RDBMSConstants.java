@@ -75,4 +75,18 @@ final class RDBMSConstants {
                     + "INNER JOIN MB_QUEUE_MAPPING "
                     + "ON QUEUE_MESSAGES.MESSAGE_ID=MB_QUEUE_MAPPING.MESSAGE_ID "
                     + "ORDER BY QUEUE_MESSAGES.MESSAGE_ID";
+
+    public static final String PS_SELECT_METADATA_RANGE_FOR_QUEUE =
+            "SELECT MB_METADATA.MESSAGE_ID, EXCHANGE_NAME, ROUTING_KEY, CONTENT_LENGTH, MESSAGE_METADATA "
+                    + "FROM MB_METADATA INNER JOIN MB_QUEUE_MAPPING "
+                    + "ON MB_METADATA.MESSAGE_ID=MB_QUEUE_MAPPING.MESSAGE_ID "
+                    + "WHERE QUEUE_NAME=? AND MB_QUEUE_MAPPING.MESSAGE_ID BETWEEN ? AND ? "
+                    + "ORDER BY MB_METADATA.MESSAGE_ID";
+
+    public static final String PS_SELECT_CONTENT_RANGE_FOR_QUEUE =
+            "SELECT MB_CONTENT.MESSAGE_ID, CONTENT_OFFSET, MESSAGE_CONTENT "
+                    + "FROM MB_CONTENT INNER JOIN MB_QUEUE_MAPPING "
+                    + "ON MB_CONTENT.MESSAGE_ID=MB_QUEUE_MAPPING.MESSAGE_ID "
+                    + "WHERE QUEUE_NAME=? AND MB_QUEUE_MAPPING.MESSAGE_ID BETWEEN ? AND ? "
+                    + "ORDER BY MB_CONTENT.MESSAGE_ID, CONTENT_OFFSET";
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+/**
+ * {@link TaskScheduler} that hands out the scheduled {@link TaskHolder}s to a fixed set of {@link TaskProcessor}s.
+ * Each processor is identified by a worker index in the range [0, worker count).
+ */
+interface PullTaskScheduler extends TaskScheduler {
+
+    /**
+     * Schedule a task again after it was processed by the given worker.
+     *
+     * @param taskHolder  processed task
+     * @param workerIndex index of the worker that processed the task
+     */
+    void reschedule(TaskHolder taskHolder, int workerIndex);
+
+    /**
+     * Retrieve the next task for the given worker, waiting if no task is scheduled.
+     *
+     * @param workerIndex index of the worker
+     * @return next task to process
+     * @throws InterruptedException if interrupted while waiting
+     */
+    TaskHolder take(int workerIndex) throws InterruptedException;
+}
@@ -23,9 +23,20 @@ import java.util.concurrent.Callable;
 
 /**
  * This task will be processed by {@link TaskExecutorService} using {@link TaskProcessor} in a round robin manner.
+ * A task that returns {@link TaskHint#IDLE} is parked until it is woken up using {@link #signal()}.
  */
 public abstract class Task implements Callable<Task.TaskHint> {
 
+    /**
+     * Scheduling weight of a task that does not override {@link #getWeight()}.
+     */
+    public static final int DEFAULT_WEIGHT = 1;
+
+    /**
+     * Holder of the task while the task is registered in a {@link TaskExecutorService}.
+     */
+    private volatile TaskHolder<?> taskHolder;
+
     /**
      * Hint for the {@link TaskProcessor} about the task execution.
      */
@@ -36,7 +47,7 @@ public abstract class Task implements Callable<Task.TaskHint> {
         ACTIVE,
 
         /**
-         * Task didn't do any productive work, hence can be delayed for the next iteration.
+         * Task didn't do any productive work, hence will not be processed until it is signalled.
          */
         IDLE
     }
@@ -52,6 +63,45 @@ public abstract class Task implements Callable<Task.TaskHint> {
      */
     public abstract void onRemove();
 
+    /**
+     * Notify that the task has work to do. A parked task is scheduled for processing. If the task is already
+     * scheduled this has no effect. If the task is being processed it is processed once more afterwards.
+     */
+    public final void signal() {
+        TaskHolder<?> holder = taskHolder;
+        if (holder != null) {
+            holder.signal();
+        }
+    }
+
+    /**
+     * Scheduling weight of the task. When tasks compete for the {@link TaskProcessor}s each task gets a share of the
+     * processing cost, reported through {@link #recordCost(long)}, proportional to its weight.
+     *
+     * @return a positive weight
+     */
+    public int getWeight() {
+        return DEFAULT_WEIGHT;
+    }
+
+    /**
+     * Report the cost of the current invocation, for instance the number of bytes delivered. A task that used up
+     * its share skips turns until the other tasks got theirs. Tasks that do not report a cost are processed in a
+     * plain round robin manner.
+     *
+     * @param cost cost of the invocation
+     */
+    protected final void recordCost(long cost) {
+        TaskHolder<?> holder = taskHolder;
+        if (holder != null) {
+            holder.recordCost(cost);
+        }
+    }
+
+    void setTaskHolder(TaskHolder<?> taskHolder) {
+        this.taskHolder = taskHolder;
+    }
+
     /**
      * Unique id for the Task. If the id is not unique and there is an existing {@link Task}
      * in {@link TaskExecutorService} this {@link Task} won't be processed.
@@ -27,14 +27,13 @@ import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Manage processing of {@link Task}. Holds the {@link TaskHolder} ring and the {@link TaskProcessor} list that
+ * Manage processing of {@link Task}. Holds the {@link TaskScheduler} and the {@link TaskProcessor} list that
  * process the {@link Task}.
  *
  * @param <T> Implementation of the {@link Task} interface.
@@ -47,9 +46,16 @@ public final class TaskExecutorService<T extends Task> {
     private static Logger log = LoggerFactory.getLogger(TaskExecutorService.class);
 
     /**
-     * {@link DelayQueue} used by processors to schedule tasks. Idle task will be processed after a delay.
+     * Scheduler holding the tasks until they are processed. Idle tasks are not kept in the scheduler. They are
+     * scheduled again when signalled.
      */
-    private final DelayQueue<TaskHolder> taskHolderDelayQueue;
+    private final TaskScheduler scheduler;
+
+    /**
+     * Scheduler handing out tasks to the {@link TaskProcessor}s. Null when each task is processed on a thread of its
+     * own.
+     */
+    private final PullTaskScheduler processorScheduler;
 
     /**
      * Mapping of registered tasks with its task id.
@@ -82,28 +88,50 @@ public final class TaskExecutorService<T extends Task> {
     private TaskExceptionHandler taskExceptionHandler;
 
     /**
-     * Delay for processing IDLE tasks in the next iteration.
+     * Create a Task manager with a given number of threads to process the tasks.
+     *
+     * @param workerCount   maximum number of threads spawned to process the tasks.
+     * @param threadFactory thread factory to be used for processing the tasks.
      */
-    private long idleTaskDelayMillis;
+    public TaskExecutorService(int workerCount, ThreadFactory threadFactory) {
+        this(workerCount, threadFactory, new WorkStealingTaskScheduler(workerCount));
+    }
 
     /**
-     * Create a Task manager with a given number of threads to process the tasks.
+     * Create a Task manager with a given scheduler.
      *
-     * @param workerCount         maximum number of threads spawned to process the tasks.
-     * @param idleTaskDelayMillis delay set for processing a task with IDLE
-     *                            {@link io.ballerina.messaging.broker.core.task.Task.TaskHint}.
-     * @param threadFactory       thread factory to be used for processing the tasks.
+     * @param workerCount   maximum number of threads spawned to process the tasks.
+     * @param threadFactory thread factory to be used for processing the tasks.
+     * @param scheduler     scheduler supporting the given number of workers.
      */
-    public TaskExecutorService(int workerCount, long idleTaskDelayMillis, ThreadFactory threadFactory) {
+    TaskExecutorService(int workerCount, ThreadFactory threadFactory, PullTaskScheduler scheduler) {
 
         taskExecutorPool = Executors.newFixedThreadPool(workerCount, threadFactory);
         this.workerCount = workerCount;
         taskProcessorQueue = new ArrayDeque<>(workerCount);
         taskUpdateExecutorService = Executors.newSingleThreadExecutor(threadFactory);
         taskExceptionHandler = new DefaultExceptionHandler();
-        taskHolderDelayQueue = new DelayQueue<>();
+        this.scheduler = scheduler;
+        this.processorScheduler = scheduler;
+        taskHolderRegistry = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Create a Task manager that processes each task on a thread of its own instead of a fixed number of
+     * {@link TaskProcessor}s. Meant to be used with a virtual thread factory so that tasks blocked on I/O do not
+     * hold platform threads.
+     *
+     * @param taskThreadFactory thread factory used to create a thread per task.
+     */
+    public TaskExecutorService(ThreadFactory taskThreadFactory) {
+        taskExecutorPool = Executors.newCachedThreadPool(taskThreadFactory);
+        this.workerCount = 0;
+        taskProcessorQueue = new ArrayDeque<>();
+        taskUpdateExecutorService = Executors.newSingleThreadExecutor(taskThreadFactory);
+        taskExceptionHandler = new DefaultExceptionHandler();
+        this.scheduler = new ThreadPerTaskScheduler(taskExecutorPool, this::handleTaskException);
+        this.processorScheduler = null;
         taskHolderRegistry = new ConcurrentHashMap<>();
-        this.idleTaskDelayMillis = idleTaskDelayMillis;
     }
 
     /**
@@ -156,11 +184,12 @@ public final class TaskExecutorService<T extends Task> {
      * Stop processing the tasks.
      */
     public synchronized void stop() {
-        log.info("Stopping task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Stopping task manager. Task count " + taskHolderRegistry.size());
         for (TaskProcessor taskProcessor : taskProcessorQueue) {
             taskProcessor.deactivate();
         }
         taskProcessorQueue.clear();
+        scheduler.stop();
     }
 
     /**
@@ -195,14 +224,14 @@ public final class TaskExecutorService<T extends Task> {
             value = "RV_RETURN_VALUE_IGNORED_BAD_PRACTICE",
             justification = "Return future ignored since the execution needs be done asynchronously.")
     public synchronized void start() {
-        log.info("Starting task manager. Task count " + taskHolderDelayQueue.size());
+        log.info("Starting task manager. Task count " + taskHolderRegistry.size());
 
         for (int i = 0; i < workerCount; i++) {
-            TaskProcessor taskProcessor =
-                    new TaskProcessor(taskHolderDelayQueue, taskExceptionHandler, idleTaskDelayMillis);
+            TaskProcessor taskProcessor = new TaskProcessor(processorScheduler, i, taskExceptionHandler);
             taskProcessorQueue.add(taskProcessor);
             taskExecutorPool.submit(taskProcessor);
         }
+        scheduler.start();
     }
 
     /**
@@ -214,6 +243,14 @@ public final class TaskExecutorService<T extends Task> {
         this.taskExceptionHandler = exceptionHandler;
     }
 
+    /**
+     * Handle exceptions of tasks processed outside the {@link TaskProcessor}s. The handler is resolved on each
+     * exception since it can be replaced after the service is created.
+     */
+    private void handleTaskException(Throwable throwable, String taskId) {
+        taskExceptionHandler.handleException(throwable, taskId);
+    }
+
     /**
      * Task add request.
      */
@@ -231,13 +268,14 @@ public final class TaskExecutorService<T extends Task> {
                 if (taskHolderRegistry.containsKey(task.getId())) {
                     return;
                 }
-                TaskHolder<T> taskHolder = new TaskHolder<>(task);
-                task.onAdd(); // Invoke task callback before adding the task to the taskHolderDelayQueue
+                TaskHolder<T> taskHolder = new TaskHolder<>(task, scheduler);
+                task.setTaskHolder(taskHolder);
+                task.onAdd(); // Invoke task callback before adding the task to the scheduler
                 // to be processed
                 taskHolderRegistry.put(task.getId(), taskHolder);
-                taskHolderDelayQueue.add(taskHolder);
+                scheduler.schedule(taskHolder);
                 if (log.isDebugEnabled()) {
-                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task added. ID " + task.getId() + " Total Tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while adding Task " + task, e);
@@ -261,8 +299,11 @@ public final class TaskExecutorService<T extends Task> {
             try {
                 TaskHolder taskHolder = taskHolderRegistry.remove(id);
                 taskHolder.disableProcessing(); // disable processors from processing the task
+                taskHolder.getTask().setTaskHolder(null);
+                // A parked task needs to go through a processor once more to get removed
+                taskHolder.signal();
                 if (log.isDebugEnabled()) {
-                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderDelayQueue.size());
+                    log.debug("Task removed. ID " + taskHolder.getId() + " Total tasks " + taskHolderRegistry.size());
                 }
             } catch (Throwable e) {
                 log.error("Error occurred while removing task. Task id " + id, e);
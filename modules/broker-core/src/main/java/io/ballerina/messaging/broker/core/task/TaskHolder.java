@@ -19,21 +19,55 @@
 
 package io.ballerina.messaging.broker.core.task;
 
-import java.util.concurrent.Delayed;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Holds a single {@link Task}. Has references to the next and previous {@link TaskHolder} of the {@link TaskHolder}
- * ring.
+ * Holds a single {@link Task} and tracks whether the task is scheduled, being processed or parked. Turns of the task
+ * are granted in a deficit round robin manner using the cost reported by the task.
  */
-final class TaskHolder<T extends Task> implements Delayed {
+final class TaskHolder<T extends Task> {
+
+    /**
+     * Cost a task of weight one can spend per turn.
+     */
+    static final long COST_QUANTUM = 64 * 1024;
+
+    /**
+     * Maximum debt of a task in quanta. Bounds the number of turns a task skips after an expensive invocation.
+     */
+    static final int MAX_DEBT_QUANTA = 4;
+
+    /**
+     * Task is in the task queue waiting to be processed.
+     */
+    private static final int SCHEDULED = 0;
+
+    /**
+     * Task is being processed.
+     */
+    private static final int RUNNING = 1;
+
+    /**
+     * Task is being processed and was signalled during processing.
+     */
+    private static final int SIGNALLED = 2;
+
+    /**
+     * Task is idle and is not in the task queue.
+     */
+    private static final int PARKED = 3;
 
     /**
      * {@link Task} implementation related to this {@link TaskHolder}.
      */
     private final T task;
 
+    /**
+     * Scheduler the task is added to when it is signalled while parked.
+     */
+    private final TaskScheduler scheduler;
+
     /**
      * Whether the task execution is disabled or not. True if disabled.
      */
@@ -45,21 +79,55 @@ final class TaskHolder<T extends Task> implements Delayed {
     private AtomicBoolean isProcessing;
 
     /**
-     * Task expiry time in milliseconds. Expired messages will be picked from the
-     * {@link java.util.concurrent.DelayQueue} by the {@link TaskProcessor}s.
+     * Scheduling state of the task.
      */
-    private long expiryTime;
+    private final AtomicInteger state;
+
+    /**
+     * Cost the task can spend before it has to skip turns. Only accessed by the processor holding the task.
+     */
+    private long deficit;
 
     /**
      * Create a {@link TaskHolder} instance with a {@link Task} implementation.
      *
-     * @param task {@link Task} implementation.
+     * @param task      {@link Task} implementation.
+     * @param scheduler scheduler used by the {@link TaskProcessor}s
      */
-    TaskHolder(T task) {
+    TaskHolder(T task, TaskScheduler scheduler) {
         this.task = task;
+        this.scheduler = scheduler;
         this.isDisabled = new AtomicBoolean(false);
         this.isProcessing = new AtomicBoolean(false);
-        expiryTime = System.currentTimeMillis();
+        this.state = new AtomicInteger(SCHEDULED);
+        this.deficit = quantum();
+    }
+
+    private long quantum() {
+        return COST_QUANTUM * Math.max(task.getWeight(), 1);
+    }
+
+    /**
+     * Decide whether the task can be processed in this turn. A task that overspent its share in previous turns
+     * gets a quantum proportional to its weight and skips the turn if it is still in deficit.
+     *
+     * @return true if the task should be processed
+     */
+    boolean acquireTurn() {
+        if (deficit > 0) {
+            return true;
+        }
+        deficit += quantum();
+        return deficit > 0;
+    }
+
+    /**
+     * Charge the cost of the current invocation.
+     *
+     * @param cost cost reported by the task
+     */
+    void recordCost(long cost) {
+        deficit = Math.max(deficit - cost, -MAX_DEBT_QUANTA * quantum());
     }
 
     /**
@@ -72,6 +140,7 @@ final class TaskHolder<T extends Task> implements Delayed {
     final T.TaskHint executeTask() throws Exception {
         T.TaskHint hint = Task.TaskHint.IDLE;
         if (isProcessing.compareAndSet(false, true)) {
+            state.set(RUNNING);
             try {
                 if (!isDisabled.get()) {
                     hint = task.call();
@@ -84,6 +153,51 @@ final class TaskHolder<T extends Task> implements Delayed {
         return hint;
     }
 
+    /**
+     * Park the task after an idle run. The task is not parked if it was signalled while it was being processed.
+     *
+     * @return true if the task is parked, false if the task needs to be processed again
+     */
+    boolean park() {
+        // An idle task does not compete for processors. Hence the overspent cost is forgiven
+        if (deficit < 0) {
+            deficit = 0;
+        }
+        if (state.compareAndSet(RUNNING, PARKED)) {
+            return true;
+        }
+        state.set(SCHEDULED);
+        return false;
+    }
+
+    /**
+     * Mark the task as scheduled before handing it back to the scheduler.
+     */
+    void reschedule() {
+        state.set(SCHEDULED);
+    }
+
+    /**
+     * Wake up the task. A parked task is scheduled. A running task is marked to be processed again.
+     */
+    void signal() {
+        while (true) {
+            int currentState = state.get();
+            if (currentState == PARKED) {
+                if (state.compareAndSet(PARKED, SCHEDULED)) {
+                    scheduler.schedule(this);
+                    return;
+                }
+            } else if (currentState == RUNNING) {
+                if (state.compareAndSet(RUNNING, SIGNALLED)) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
     /**
      * Underlying {@link Task} implementation.
      *
@@ -135,53 +249,6 @@ final class TaskHolder<T extends Task> implements Delayed {
      * {@inheritDoc}
      */
     @Override
-    public long getDelay(TimeUnit unit) {
-        return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-    }
-
-    /**
-     * Set the expiry time for the {@link Delayed}.
-     *
-     * @param delay    delay
-     * @param timeUnit {@link TimeUnit}
-     */
-    void setDelay(long delay, TimeUnit timeUnit) {
-        this.expiryTime = System.currentTimeMillis() + TimeUnit.MILLISECONDS.convert(delay, timeUnit);
-    }
-
-    /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
-     * <p>
-     * {@inheritDoc}
-     */
-    @Override
-    public int compareTo(Delayed delayedObject) {
-
-        int order = Long.compare(expiryTime, ((TaskHolder) delayedObject).expiryTime); // order by expiryTime
-        if (order == 0) {
-            order = getId().compareTo(((TaskHolder) delayedObject).getId()); // order by string id
-        }
-        return order;
-    }
-
-    /**
-     * <p>
-     * Note: this class has a natural ordering that is inconsistent with equals.
-     * </p>
-     * <p>
-     * For the Delayed queue we need the ordering according to the delay. But to remove {@link TaskHolder} from the
-     * queue we need to have the equals method according to the id of the {@link Task}
-     * </p>
-     * <p>
-     * {@inheritDoc}
-     */
-    @Override
     public boolean equals(Object obj) {
 
         if (this == obj) {
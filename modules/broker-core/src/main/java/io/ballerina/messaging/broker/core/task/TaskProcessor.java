@@ -23,12 +23,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Process {@link Task} by going through each {@link TaskHolder} in the {@link TaskHolder} ring.
+ * Process {@link Task} by taking scheduled {@link TaskHolder}s from the {@link PullTaskScheduler}. Idle tasks are
+ * parked until they are signalled.
  */
 final class TaskProcessor implements Callable<Boolean> {
 
@@ -38,9 +37,14 @@ final class TaskProcessor implements Callable<Boolean> {
     private static Logger log = LoggerFactory.getLogger(TaskProcessor.class);
 
     /**
-     * Reference to {@link TaskHolder} queue.
+     * Scheduler handing out the {@link TaskHolder}s.
      */
-    private DelayQueue<TaskHolder> taskHolderQueue;
+    private final PullTaskScheduler scheduler;
+
+    /**
+     * Index of this processor in the {@link PullTaskScheduler}.
+     */
+    private final int workerIndex;
 
     /**
      * Whether the processor is active or not.
@@ -52,16 +56,11 @@ final class TaskProcessor implements Callable<Boolean> {
      */
     private TaskExceptionHandler taskExceptionHandler;
 
-    /**
-     * Delay to be set for the IDLE tasks.
-     */
-    private final long idleWaitTimeMillis;
-
-    TaskProcessor(DelayQueue<TaskHolder> taskQueue, TaskExceptionHandler exceptionHandler, long idleWaitTimeMillis) {
+    TaskProcessor(PullTaskScheduler scheduler, int workerIndex, TaskExceptionHandler exceptionHandler) {
         isActive = new AtomicBoolean(false);
         this.taskExceptionHandler = exceptionHandler;
-        this.taskHolderQueue = taskQueue;
-        this.idleWaitTimeMillis = idleWaitTimeMillis;
+        this.scheduler = scheduler;
+        this.workerIndex = workerIndex;
     }
 
     /**
@@ -80,12 +79,14 @@ final class TaskProcessor implements Callable<Boolean> {
             }
             while (isActive.get()) {
                 TaskHolder taskHolder = null;
-                long delay = 0; // No delay
+                boolean idle = false;
                 try {
-                    taskHolder = taskHolderQueue.take(); // Wait if queue is empty
-                    Task.TaskHint hint = taskHolder.executeTask();
-                    if (hint == Task.TaskHint.IDLE) {
-                        delay = idleWaitTimeMillis;
+                    taskHolder = scheduler.take(workerIndex); // Wait if no task is scheduled
+                    // Tasks that overspent their share skip the turn and are scheduled again, unless no other task
+                    // is waiting for a turn
+                    if (taskHolder.acquireTurn() || scheduler.size() == 0) {
+                        Task.TaskHint hint = taskHolder.executeTask();
+                        idle = hint == Task.TaskHint.IDLE;
                     }
                 } catch (InterruptedException e) {
                     if (isActive.get()) {
@@ -101,20 +102,18 @@ final class TaskProcessor implements Callable<Boolean> {
                     taskExceptionHandler.handleException(throwable, id);
                 } finally {
                     // Disabled Tasks will get removed from the queue
-                    // Put to map if not disabled
+                    // Idle tasks are parked until signalled. Other tasks are scheduled again
                     if (null != taskHolder) {
                         if (taskHolder.isDisabled()) {
                             taskHolder.onRemoveTask();
-                        } else {
-                            // Add a delay when adding back to the queue. This ensures the TaskHolder is added to the
-                            // end of the queue. If not TaskHolder will be added to front of the queue
-                            taskHolder.setDelay(delay, TimeUnit.MILLISECONDS);
-                            taskHolderQueue.put(taskHolder);
+                        } else if (!idle || !taskHolder.park()) {
+                            taskHolder.reschedule();
+                            scheduler.reschedule(taskHolder, workerIndex);
                         }
                     }
                 }
             }
-            log.info("Task processor stopped. Task queue size " + taskHolderQueue.size());
+            log.info("Task processor stopped. Scheduled task count " + scheduler.size());
         } else {
             log.error("Task processor is already running ");
             throw new IllegalStateException("Task processor is already running");
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+/**
+ * Holds the scheduled {@link TaskHolder}s until they are processed. A task is handed to the scheduler when it is
+ * added and each time it is signalled while parked.
+ */
+interface TaskScheduler {
+
+    /**
+     * Schedule a task that is not currently being processed. Invoked when a task is added or signalled.
+     *
+     * @param taskHolder task to schedule
+     */
+    void schedule(TaskHolder taskHolder);
+
+    /**
+     * Number of tasks currently scheduled.
+     *
+     * @return scheduled task count
+     */
+    int size();
+
+    /**
+     * Invoked when the {@link TaskExecutorService} starts processing tasks.
+     */
+    default void start() {
+        // Nothing to start
+    }
+
+    /**
+     * Invoked when the {@link TaskExecutorService} stops processing tasks.
+     */
+    default void stop() {
+        // Nothing to stop
+    }
+}
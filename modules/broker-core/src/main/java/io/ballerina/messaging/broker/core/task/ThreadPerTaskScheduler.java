@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link TaskScheduler} that processes each task on a thread of its own instead of handing tasks out to a fixed set
+ * of {@link TaskProcessor}s. Meant to be used with virtual threads, where a task blocked on back pressure or on the
+ * database does not hold a platform thread. A parked task waits on its own thread until it is signalled.
+ */
+final class ThreadPerTaskScheduler implements TaskScheduler {
+
+    /**
+     * Executor starting a new thread for each task.
+     */
+    private final Executor executor;
+
+    private final TaskExceptionHandler exceptionHandler;
+
+    /**
+     * Runner of each task that has a thread.
+     */
+    private final Map<TaskHolder, TaskRunner> runners = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the active state. Uses a lock instead of a monitor since waiting inside a monitor pins a virtual thread
+     * to its carrier thread.
+     */
+    private final Lock activeLock = new ReentrantLock();
+
+    private final Condition activated = activeLock.newCondition();
+
+    private volatile boolean active;
+
+    ThreadPerTaskScheduler(Executor executor, TaskExceptionHandler exceptionHandler) {
+        this.executor = executor;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    @Override
+    public void schedule(TaskHolder taskHolder) {
+        TaskRunner runner = runners.get(taskHolder);
+        // A task re-added with the same id gets a new runner
+        if (runner == null || runner.taskHolder != taskHolder) {
+            runner = new TaskRunner(taskHolder);
+            runners.put(taskHolder, runner);
+            try {
+                executor.execute(runner);
+            } catch (RejectedExecutionException e) {
+                // Executor is shut down. Task is not processed anymore
+                runners.remove(taskHolder, runner);
+                return;
+            }
+        }
+        runner.wakeUp();
+    }
+
+    /**
+     * Number of tasks that have a thread, including parked tasks.
+     *
+     * @return task count
+     */
+    @Override
+    public int size() {
+        return runners.size();
+    }
+
+    @Override
+    public void start() {
+        activeLock.lock();
+        try {
+            active = true;
+            activated.signalAll();
+        } finally {
+            activeLock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        activeLock.lock();
+        try {
+            active = false;
+        } finally {
+            activeLock.unlock();
+        }
+    }
+
+    private void awaitActive() throws InterruptedException {
+        if (active) {
+            return;
+        }
+
+        activeLock.lock();
+        try {
+            while (!active) {
+                activated.await();
+            }
+        } finally {
+            activeLock.unlock();
+        }
+    }
+
+    /**
+     * Processes a single task until the task is removed.
+     */
+    private final class TaskRunner implements Runnable {
+
+        private final TaskHolder taskHolder;
+
+        /**
+         * Released when the task is scheduled. The task is scheduled once when added and once each time it is
+         * signalled while parked.
+         */
+        private final Semaphore scheduled = new Semaphore(0);
+
+        TaskRunner(TaskHolder taskHolder) {
+            this.taskHolder = taskHolder;
+        }
+
+        void wakeUp() {
+            scheduled.release();
+        }
+
+        @Override
+        public void run() {
+            try {
+                do {
+                    scheduled.acquire();
+                } while (process());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                runners.remove(taskHolder, this);
+            }
+        }
+
+        /**
+         * Process the task until it is parked.
+         *
+         * @return false if the task is removed
+         */
+        private boolean process() throws InterruptedException {
+            while (true) {
+                awaitActive();
+                boolean idle = false;
+                try {
+                    idle = taskHolder.executeTask() == Task.TaskHint.IDLE;
+                } catch (InterruptedException e) {
+                    // Executor is shut down
+                    throw e;
+                } catch (Throwable throwable) {
+                    exceptionHandler.handleException(throwable, taskHolder.getId());
+                }
+
+                if (taskHolder.isDisabled()) {
+                    taskHolder.onRemoveTask();
+                    return false;
+                } else if (idle && taskHolder.park()) {
+                    return true;
+                }
+                taskHolder.reschedule();
+                // Virtual threads are not preempted. Let other tasks run between two active invocations
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link PullTaskScheduler} with a task deque per worker. A task is scheduled on its home worker, selected by the
+ * task id, so that the same worker keeps processing the same tasks. A worker that runs out of tasks steals from a
+ * random worker before going idle.
+ */
+final class WorkStealingTaskScheduler implements PullTaskScheduler {
+
+    /**
+     * Upper bound for an idle worker to wait before checking the other workers again. Bounds the time a task waits
+     * on a busy worker when the idle worker woken up for it picked another task.
+     */
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Worker[] workers;
+
+    /**
+     * Number of workers waiting for tasks.
+     */
+    private final AtomicInteger idleWorkerCount = new AtomicInteger(0);
+
+    WorkStealingTaskScheduler(int workerCount) {
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    @Override
+    public void schedule(TaskHolder taskHolder) {
+        Worker home = workers[Math.floorMod(taskHolder.hashCode(), workers.length)];
+        home.addLast(taskHolder);
+        if (!home.wakeUp() && idleWorkerCount.get() > 0) {
+            // Home worker is busy. Let an idle worker steal the task
+            for (Worker worker : workers) {
+                if (worker.wakeUp()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reschedule(TaskHolder taskHolder, int workerIndex) {
+        workers[workerIndex].addLast(taskHolder);
+    }
+
+    @Override
+    public TaskHolder take(int workerIndex) throws InterruptedException {
+        Worker worker = workers[workerIndex];
+        while (true) {
+            TaskHolder taskHolder = poll(workerIndex);
+            if (taskHolder != null) {
+                return taskHolder;
+            }
+
+            worker.thread = Thread.currentThread();
+            worker.idle = true;
+            idleWorkerCount.incrementAndGet();
+            try {
+                // Check again after publishing the idle state so that a task scheduled meanwhile is not missed
+                taskHolder = poll(workerIndex);
+                if (taskHolder != null) {
+                    return taskHolder;
+                }
+                LockSupport.parkNanos(this, MAX_IDLE_WAIT_NANOS);
+            } finally {
+                worker.idle = false;
+                idleWorkerCount.decrementAndGet();
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Worker worker : workers) {
+            size += worker.size();
+        }
+        return size;
+    }
+
+    /**
+     * Take a task from the worker's own deque or steal one from another worker.
+     */
+    private TaskHolder poll(int workerIndex) {
+        TaskHolder taskHolder = workers[workerIndex].pollFirst();
+        if (taskHolder != null || workers.length == 1) {
+            return taskHolder;
+        }
+
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            int victim = (start + i) % workers.length;
+            if (victim != workerIndex) {
+                taskHolder = workers[victim].pollLast();
+                if (taskHolder != null) {
+                    return taskHolder;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scheduling state of a single worker. The deque is guarded by the worker monitor, which is rarely contended
+     * since only stealing workers and task signals access the deque of another worker.
+     */
+    private static final class Worker {
+
+        private final Deque<TaskHolder> tasks = new ArrayDeque<>();
+
+        private volatile boolean idle;
+
+        private volatile Thread thread;
+
+        synchronized void addLast(TaskHolder taskHolder) {
+            tasks.addLast(taskHolder);
+        }
+
+        synchronized TaskHolder pollFirst() {
+            return tasks.pollFirst();
+        }
+
+        synchronized TaskHolder pollLast() {
+            return tasks.pollLast();
+        }
+
+        synchronized int size() {
+            return tasks.size();
+        }
+
+        /**
+         * Wake up the worker if it is waiting for tasks.
+         *
+         * @return true if the worker was idle
+         */
+        boolean wakeUp() {
+            if (idle) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import io.ballerina.messaging.broker.core.metrics.NullBrokerMetricManager;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for {@link DeliveryBatchController}.
+ */
+public class DeliveryBatchControllerTest {
+
+    private DeliveryBatchController controller;
+
+    @BeforeMethod
+    public void setUp() {
+        controller = new DeliveryBatchController(new NullBrokerMetricManager());
+    }
+
+    @Test
+    public void testBatchGrowsForFastDeliveries() {
+        int batchSize = controller.batchSize();
+        // Deliver the whole batch in a tenth of the target slice
+        controller.recordSlice(batchSize, DeliveryBatchController.TARGET_SLICE_NANOS / 10, true);
+
+        Assert.assertTrue(controller.batchSize() > batchSize, "Batch should grow when deliveries are fast");
+        Assert.assertTrue(controller.batchSize() <= DeliveryBatchController.MAX_BATCH_SIZE);
+    }
+
+    @Test
+    public void testBatchShrinksForSlowDeliveries() {
+        int batchSize = controller.batchSize();
+        controller.recordSlice(batchSize, TimeUnit.MILLISECONDS.toNanos(100), true);
+
+        Assert.assertTrue(controller.batchSize() < batchSize, "Batch should shrink when deliveries are slow");
+        Assert.assertTrue(controller.batchSize() >= DeliveryBatchController.MIN_BATCH_SIZE);
+    }
+
+    @Test
+    public void testBatchDoesNotGrowWhenLimitIsNotReached() {
+        int batchSize = controller.batchSize();
+        controller.recordSlice(10, DeliveryBatchController.TARGET_SLICE_NANOS / 1000, false);
+
+        Assert.assertEquals(controller.batchSize(), batchSize,
+                            "Batch should not grow when the queue or the consumers ran dry before the limit");
+    }
+
+    @Test
+    public void testIdleInvocationIsIgnored() {
+        int batchSize = controller.batchSize();
+        controller.recordSlice(0, TimeUnit.SECONDS.toNanos(1), false);
+
+        Assert.assertEquals(controller.batchSize(), batchSize);
+    }
+}
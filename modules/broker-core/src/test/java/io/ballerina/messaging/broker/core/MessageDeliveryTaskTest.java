@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.core.metrics.NullBrokerMetricManager;
+import io.ballerina.messaging.broker.core.queue.MemQueueImpl;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * Test class for {@link MessageDeliveryTask}.
+ */
+public class MessageDeliveryTaskTest {
+
+    private static final String QUEUE_NAME = "TestQueue";
+
+    private QueueHandler queueHandler;
+
+    private MessageDeliveryTask deliveryTask;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        queueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false), new NullBrokerMetricManager());
+        deliveryTask = new MessageDeliveryTask(queueHandler, new NullBrokerMetricManager());
+        for (int i = 0; i < 10; i++) {
+            queueHandler.enqueue(new Message(i + 1, new Metadata(QUEUE_NAME, "amq.direct", 0)));
+        }
+    }
+
+    @Test
+    public void testDeliveryIsLimitedByConsumerCredit() throws Exception {
+        CreditConsumer consumer = new CreditConsumer(3);
+        queueHandler.addConsumer(consumer);
+
+        deliveryTask.call();
+
+        Assert.assertEquals(consumer.receivedMessages.size(), 3, "Consumer should receive messages up to its credit");
+        Assert.assertEquals(queueHandler.size(), 7);
+        Assert.assertEquals(consumer.credit, 0);
+    }
+
+    @Test
+    public void testUnusedCreditIsReleased() throws Exception {
+        CreditConsumer consumer = new CreditConsumer(25);
+        queueHandler.addConsumer(consumer);
+
+        deliveryTask.call();
+
+        Assert.assertEquals(consumer.receivedMessages.size(), 10);
+        Assert.assertEquals(consumer.credit, 15, "Credit not used for sending should be returned");
+    }
+
+    @Test
+    public void testCreditIsUsedInOneGo() throws Exception {
+        CreditConsumer firstConsumer = new CreditConsumer(4);
+        CreditConsumer secondConsumer = new CreditConsumer(4);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        deliveryTask.call();
+
+        Assert.assertEquals(firstConsumer.receivedMessages.size(), 4);
+        Assert.assertEquals(secondConsumer.receivedMessages.size(), 4);
+        for (CreditConsumer consumer : new CreditConsumer[]{firstConsumer, secondConsumer}) {
+            List<Message> messages = consumer.receivedMessages;
+            for (int i = 1; i < messages.size(); i++) {
+                Assert.assertEquals(messages.get(i).getInternalId(), messages.get(i - 1).getInternalId() + 1,
+                                    "Granted credit should be filled with consecutive messages");
+            }
+        }
+    }
+
+    @Test
+    public void testNoCreditIsAcquiredForEmptyQueue() throws Exception {
+        CreditConsumer consumer = new CreditConsumer(25);
+        queueHandler.addConsumer(consumer);
+
+        deliveryTask.call();
+        deliveryTask.call();
+
+        Assert.assertEquals(consumer.receivedMessages.size(), 10);
+        Assert.assertEquals(consumer.acquireCount, 1, "Credit should not be acquired when there are no messages");
+    }
+
+    @Test
+    public void testConsumersAreFlushedOncePerBatch() throws Exception {
+        CreditConsumer firstConsumer = new CreditConsumer(25);
+        CreditConsumer secondConsumer = new CreditConsumer(25);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        deliveryTask.call();
+        deliveryTask.call();
+
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 10);
+        Assert.assertEquals(firstConsumer.flushCount, 1, "Messages of a batch should be flushed once");
+        Assert.assertEquals(secondConsumer.flushCount, 1, "Messages of a batch should be flushed once");
+    }
+
+    @Test
+    public void testDeliveryIsHandedOverToSharedDeliveryExecutor() throws Exception {
+        List<Runnable> pendingRuns = new ArrayList<>();
+        CreditConsumer firstConsumer = new CreditConsumer(25, pendingRuns::add);
+        CreditConsumer secondConsumer = new CreditConsumer(25, firstConsumer.deliveryExecutor);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        MessageDeliveryTask affinityTask = new MessageDeliveryTask(queueHandler, new NullBrokerMetricManager(), true);
+
+        affinityTask.call();
+        affinityTask.call();
+
+        Assert.assertEquals(pendingRuns.size(), 1, "Only one batch should be handed over at a time");
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 0,
+                            "Messages should not be delivered by the task processor");
+
+        pendingRuns.get(0).run();
+
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 10);
+    }
+
+    @Test
+    public void testDeliveryIsNotHandedOverWithoutSharedDeliveryExecutor() throws Exception {
+        List<Runnable> pendingRuns = new ArrayList<>();
+        CreditConsumer firstConsumer = new CreditConsumer(25, pendingRuns::add);
+        CreditConsumer secondConsumer = new CreditConsumer(25, pendingRuns::add);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        MessageDeliveryTask affinityTask = new MessageDeliveryTask(queueHandler, new NullBrokerMetricManager(), true);
+
+        affinityTask.call();
+
+        Assert.assertTrue(pendingRuns.isEmpty());
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 10);
+    }
+
+    @Test
+    public void testDeliveryFollowsConsumersMovingBetweenDeliveryExecutors() throws Exception {
+        List<Runnable> firstExecutorRuns = new ArrayList<>();
+        List<Runnable> secondExecutorRuns = new ArrayList<>();
+        Executor firstExecutor = firstExecutorRuns::add;
+        Executor secondExecutor = secondExecutorRuns::add;
+        CreditConsumer firstConsumer = new CreditConsumer(2, firstExecutor);
+        CreditConsumer secondConsumer = new CreditConsumer(2, firstExecutor);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        MessageDeliveryTask affinityTask = new MessageDeliveryTask(queueHandler, new NullBrokerMetricManager(), true);
+
+        affinityTask.call();
+        secondConsumer.deliveryExecutor = secondExecutor;
+        firstExecutorRuns.remove(0).run();
+
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 4,
+                            "Batch handed over before the consumer moved should be delivered");
+
+        firstConsumer.releaseCredit(2);
+        secondConsumer.releaseCredit(2);
+        affinityTask.call();
+
+        Assert.assertTrue(firstExecutorRuns.isEmpty() && secondExecutorRuns.isEmpty(),
+                          "Consumers on different executors should be delivered by the task processor");
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 8);
+
+        firstConsumer.deliveryExecutor = secondExecutor;
+        firstConsumer.releaseCredit(2);
+        affinityTask.call();
+
+        Assert.assertTrue(firstExecutorRuns.isEmpty());
+        Assert.assertEquals(secondExecutorRuns.size(), 1, "Delivery should move to the new shared executor");
+        secondExecutorRuns.remove(0).run();
+        Assert.assertEquals(firstConsumer.receivedMessages.size() + secondConsumer.receivedMessages.size(), 10);
+    }
+
+    @Test
+    public void testMessagesNeedingBlockingReadsAreDeliveredByTaskProcessor() throws Exception {
+        QueueHandler storeQueueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false) {
+            @Override
+            public Message dequeueWithoutBlocking(Predicate<Message> filter) {
+                // Message data is not in memory
+                return null;
+            }
+        }, new NullBrokerMetricManager());
+        for (int i = 0; i < 10; i++) {
+            storeQueueHandler.enqueue(new Message(i + 1, new Metadata(QUEUE_NAME, "amq.direct", 0)));
+        }
+        List<Runnable> pendingRuns = new ArrayList<>();
+        CreditConsumer consumer = new CreditConsumer(25, pendingRuns::add);
+        storeQueueHandler.addConsumer(consumer);
+        MessageDeliveryTask affinityTask = new MessageDeliveryTask(storeQueueHandler, new NullBrokerMetricManager(),
+                                                                   true);
+
+        affinityTask.call();
+        pendingRuns.remove(0).run();
+        Assert.assertTrue(consumer.receivedMessages.isEmpty(), "Delivery executor should not wait for message data");
+
+        affinityTask.call();
+        Assert.assertTrue(pendingRuns.isEmpty(), "Next batch should not be handed over");
+        Assert.assertEquals(consumer.receivedMessages.size(), 10, "Task processor should deliver the messages");
+
+        affinityTask.call();
+        Assert.assertEquals(pendingRuns.size(), 1, "Later batches should be handed over again");
+    }
+
+    @Test
+    public void testOtherMessagesAreDeliveredWhileGroupConsumerHasNoCredit() throws Exception {
+        QueueHandler groupQueueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false),
+                                                          new NullBrokerMetricManager());
+        MessageDeliveryTask groupDeliveryTask = new MessageDeliveryTask(groupQueueHandler,
+                                                                        new NullBrokerMetricManager());
+        String[] groups = {"group-1", "group-1", null, "group-1", null};
+        for (int i = 0; i < groups.length; i++) {
+            groupQueueHandler.enqueue(createMessage(i + 1, groups[i]));
+        }
+        CreditConsumer groupConsumer = new CreditConsumer(1);
+        CreditConsumer otherConsumer = new CreditConsumer(25);
+        groupQueueHandler.addConsumer(groupConsumer);
+        groupQueueHandler.addConsumer(otherConsumer);
+
+        groupDeliveryTask.call();
+
+        assertMessageIds(groupConsumer.receivedMessages, 1);
+        assertMessageIds(otherConsumer.receivedMessages, 3, 5);
+        Assert.assertEquals(groupQueueHandler.size(), 2, "Messages of the group should stay in the queue");
+
+        groupConsumer.releaseCredit(5);
+        groupDeliveryTask.call();
+
+        assertMessageIds(groupConsumer.receivedMessages, 1, 2, 4);
+        assertMessageIds(otherConsumer.receivedMessages, 3, 5);
+    }
+
+    @Test
+    public void testMessagesOfGroupWithoutCreditAreNotDequeued() throws Exception {
+        List<Message> requeuedMessages = new ArrayList<>();
+        QueueHandler groupQueueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false) {
+            @Override
+            public boolean requeue(Message message) {
+                requeuedMessages.add(message);
+                return super.requeue(message);
+            }
+        }, new NullBrokerMetricManager());
+        MessageDeliveryTask groupDeliveryTask = new MessageDeliveryTask(groupQueueHandler,
+                                                                        new NullBrokerMetricManager());
+        String[] groups = {"group-1", "group-1", null, "group-1", null};
+        for (int i = 0; i < groups.length; i++) {
+            groupQueueHandler.enqueue(createMessage(i + 1, groups[i]));
+        }
+        CreditConsumer groupConsumer = new CreditConsumer(1);
+        CreditConsumer otherConsumer = new CreditConsumer(25);
+        groupQueueHandler.addConsumer(groupConsumer);
+        groupQueueHandler.addConsumer(otherConsumer);
+
+        groupDeliveryTask.call();
+        groupDeliveryTask.call();
+
+        assertMessageIds(groupConsumer.receivedMessages, 1);
+        assertMessageIds(otherConsumer.receivedMessages, 3, 5);
+        Assert.assertTrue(requeuedMessages.isEmpty(),
+                          "Messages of a group whose consumer has no credit should be skipped without dequeuing them");
+    }
+
+    private static Message createMessage(long id, String group) {
+        Metadata metadata = new Metadata(QUEUE_NAME, "amq.direct", 0);
+        if (group != null) {
+            metadata.setHeaders(new FieldTable());
+            metadata.addHeader(QueueHandler.MESSAGE_GROUP_HEADER.toString(), group);
+        }
+        return new Message(id, metadata);
+    }
+
+    private static void assertMessageIds(List<Message> messages, long... expectedIds) {
+        Assert.assertEquals(messages.size(), expectedIds.length);
+        for (int i = 0; i < expectedIds.length; i++) {
+            Assert.assertEquals(messages.get(i).getInternalId(), expectedIds[i]);
+        }
+    }
+
+    /**
+     * Consumer with a fixed credit that is not returned.
+     */
+    private static class CreditConsumer extends Consumer {
+
+        private final List<Message> receivedMessages = new ArrayList<>();
+
+        private int credit;
+
+        private int acquireCount;
+
+        private int flushCount;
+
+        private Executor deliveryExecutor;
+
+        CreditConsumer(int credit) {
+            this(credit, null);
+        }
+
+        CreditConsumer(int credit, Executor deliveryExecutor) {
+            this.credit = credit;
+            this.deliveryExecutor = deliveryExecutor;
+        }
+
+        @Override
+        protected void send(Message message) {
+            receivedMessages.add(message);
+        }
+
+        @Override
+        public String getQueueName() {
+            return QUEUE_NAME;
+        }
+
+        @Override
+        protected void close() {
+            // Do nothing
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return credit > 0;
+        }
+
+        @Override
+        public int acquireCredit(int maxCount) {
+            acquireCount++;
+            int granted = Math.min(credit, maxCount);
+            credit -= granted;
+            return granted;
+        }
+
+        @Override
+        public void releaseCredit(int count) {
+            credit += count;
+        }
+
+        @Override
+        protected void flush() {
+            flushCount++;
+        }
+
+        @Override
+        public Executor getDeliveryExecutor() {
+            return deliveryExecutor;
+        }
+    }
+}
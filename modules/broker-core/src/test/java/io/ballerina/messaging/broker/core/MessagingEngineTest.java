@@ -25,12 +25,14 @@ import io.ballerina.messaging.broker.common.data.types.FieldTable;
 import io.ballerina.messaging.broker.core.configuration.BrokerConfiguration;
 import io.ballerina.messaging.broker.core.metrics.NullBrokerMetricManager;
 import io.ballerina.messaging.broker.core.store.StoreFactory;
+import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.List;
 import javax.sql.DataSource;
 
 /**
@@ -114,6 +116,28 @@ public class MessagingEngineTest {
         messagingEngine.deleteExchange(exchangeName, false);
     }
 
+    @Test (description = "Test pulling messages from a queue without a consumer")
+    public void testGetMessages() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Metadata metadata = new Metadata(DEFAULT_ROUTING_KEY, DEFAULT_EXCHANGE_NAME, 0);
+            messagingEngine.publish(new Message(messagingEngine.getNextMessageId(), metadata));
+        }
+
+        List<Message> messages = messagingEngine.get(DEFAULT_QUEUE_NAME, 2);
+        Assert.assertEquals(messages.size(), 2, "Batched get should return up to the requested count");
+        Assert.assertTrue(messages.get(0).getInternalId() < messages.get(1).getInternalId(),
+                          "Messages should be returned in queue order");
+        Assert.assertNotNull(messagingEngine.get(DEFAULT_QUEUE_NAME));
+        Assert.assertNull(messagingEngine.get(DEFAULT_QUEUE_NAME), "Get should return null for an empty queue");
+        Assert.assertTrue(messagingEngine.get(DEFAULT_QUEUE_NAME, 2).isEmpty());
+    }
+
+    @Test (dataProvider = "nonExistingQueues", description = "Test get from non existing queues",
+           expectedExceptions = BrokerException.class)
+    public void testNegativeGetWithNonExistingQueue(String queueName) throws Exception {
+        messagingEngine.get(queueName);
+    }
+
     @DataProvider(name = "nonExistingExchanges")
     public Object[] nonExistingExchanges() {
         return new Object[]{ "myExchange", "testExchange" };
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core;
+
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.core.metrics.NullBrokerMetricManager;
+import io.ballerina.messaging.broker.core.queue.MemQueueImpl;
+import io.ballerina.messaging.broker.core.queue.PartitionedQueueImpl;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Test class for Queue Handler.
+ */
+public class QueueHandlerTest {
+
+    private static final String QUEUE_NAME = "TestQueue";
+
+    private QueueHandler queueHandler;
+
+    @BeforeMethod
+    public void setUp() {
+        queueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false), new NullBrokerMetricManager());
+    }
+
+    @Test
+    public void testUngroupedMessageGoesToSelectedConsumer() {
+        TestConsumer consumer = new TestConsumer();
+        queueHandler.addConsumer(consumer);
+
+        Message message = new Message(1, new Metadata(QUEUE_NAME, "amq.direct", 0));
+        Assert.assertSame(queueHandler.selectConsumer(message, consumer), consumer);
+    }
+
+    @Test
+    public void testMessageGroupIsPinnedToConsumer() {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(1, "group-1"), firstConsumer),
+                          firstConsumer);
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(2, "group-1"), secondConsumer),
+                          firstConsumer, "Messages of a group should go to the consumer the group is pinned to");
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(3, "group-2"), secondConsumer),
+                          secondConsumer, "A new group should be pinned to the selected consumer");
+    }
+
+    @Test
+    public void testMessageGroupIsReassignedWhenConsumerIsRemoved() {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        queueHandler.selectConsumer(createGroupMessage(1, "group-1"), firstConsumer);
+        queueHandler.removeConsumer(firstConsumer);
+
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(2, "group-1"), secondConsumer),
+                          secondConsumer, "Group should move to another consumer once its consumer is removed");
+    }
+
+    @Test
+    public void testIdleMessageGroupIsReleased() throws Exception {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        Message firstMessage = createGroupMessage(1, "group-1");
+        Message secondMessage = createGroupMessage(2, "group-1");
+
+        Message thirdMessage = createGroupMessage(3, "group-1");
+
+        queueHandler.selectConsumer(firstMessage, firstConsumer);
+        queueHandler.selectConsumer(secondMessage, firstConsumer);
+        queueHandler.acknowledge(firstMessage);
+        Assert.assertSame(queueHandler.selectConsumer(thirdMessage, secondConsumer),
+                          firstConsumer, "Group should stay pinned while it has messages in flight");
+
+        queueHandler.acknowledge(secondMessage);
+        queueHandler.releaseMessageGroup(thirdMessage);
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(4, "group-1"), secondConsumer),
+                          secondConsumer, "Group without messages in flight should be released");
+    }
+
+    @Test
+    public void testMessagesNotCountedInGroupDoNotReleaseIt() throws Exception {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        Message deliveredMessage = createGroupMessage(1, "group-1");
+        Message pulledMessage = createGroupMessage(2, "group-1");
+
+        queueHandler.selectConsumer(deliveredMessage, firstConsumer);
+        queueHandler.acknowledge(pulledMessage);
+        queueHandler.releaseMessageGroup(deliveredMessage);
+        queueHandler.releaseMessageGroup(deliveredMessage);
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(3, "group-1"), secondConsumer),
+                          secondConsumer, "Released group should be pinned to the next consumer");
+        Assert.assertSame(queueHandler.selectConsumer(createGroupMessage(4, "group-1"), firstConsumer),
+                          secondConsumer, "Releasing a message again should not release the group");
+    }
+
+    @Test
+    public void testPullSkipsMessagesOfPinnedGroups() throws Exception {
+        TestConsumer consumer = new TestConsumer();
+        queueHandler.addConsumer(consumer);
+        queueHandler.enqueue(createGroupMessage(1, "group-1"));
+        queueHandler.enqueue(createGroupMessage(2, "group-1"));
+        queueHandler.enqueue(new Message(3, new Metadata(QUEUE_NAME, "amq.direct", 0)));
+        queueHandler.enqueue(createGroupMessage(4, "group-2"));
+
+        Message deliveredMessage = queueHandler.dequeue();
+        queueHandler.selectConsumer(deliveredMessage, consumer);
+        List<Message> pulledMessages = queueHandler.dequeue(10);
+
+        Assert.assertEquals(pulledMessages.size(), 2);
+        Assert.assertEquals(pulledMessages.get(0).getInternalId(), 3);
+        Assert.assertEquals(pulledMessages.get(1).getInternalId(), 4, "Messages of unpinned groups can be pulled");
+        Assert.assertEquals(queueHandler.dequeue().getInternalId(), 2,
+                            "Messages of a pinned group should be left for its consumer");
+
+        queueHandler.acknowledge(deliveredMessage);
+        queueHandler.requeue(createGroupMessage(2, "group-1"));
+        Assert.assertEquals(queueHandler.dequeue(10).size(), 1, "Messages of a released group can be pulled");
+    }
+
+    @Test
+    public void testPullCostStaysFlatWhilePinnedGroupHoldsHead() throws Exception {
+        AtomicInteger inspectedCount = new AtomicInteger();
+        AtomicInteger requeueCount = new AtomicInteger();
+        QueueHandler pullQueueHandler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false) {
+            @Override
+            public Message dequeue(Predicate<Message> filter) {
+                return super.dequeue(message -> {
+                    inspectedCount.incrementAndGet();
+                    return filter.test(message);
+                });
+            }
+
+            @Override
+            public boolean requeue(Message message) {
+                requeueCount.incrementAndGet();
+                return super.requeue(message);
+            }
+        }, new NullBrokerMetricManager());
+        TestConsumer consumer = new TestConsumer();
+        pullQueueHandler.addConsumer(consumer);
+        for (int i = 0; i < 10; i++) {
+            pullQueueHandler.enqueue(createGroupMessage(i + 1, "group-1"));
+        }
+        for (int i = 10; i < 30; i++) {
+            pullQueueHandler.enqueue(new Message(i + 1, new Metadata(QUEUE_NAME, "amq.direct", 0)));
+        }
+        pullQueueHandler.selectConsumer(pullQueueHandler.dequeue(), consumer);
+
+        for (int i = 0; i < 20; i++) {
+            inspectedCount.set(0);
+            List<Message> pulledMessages = pullQueueHandler.dequeue(1);
+
+            Assert.assertEquals(pulledMessages.get(0).getInternalId(), i + 11);
+            Assert.assertEquals(inspectedCount.get(), 10, "Each pull should only inspect the messages of the pinned "
+                    + "group ahead of the pulled message");
+        }
+        Assert.assertEquals(requeueCount.get(), 0, "Messages of the pinned group should not be dequeued");
+        Assert.assertEquals(pullQueueHandler.size(), 9, "Messages of the pinned group should stay in the queue");
+    }
+
+    @Test
+    public void testMessageGroupIsPinnedAcrossPartitions() {
+        List<Queue> partitionQueues = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            partitionQueues.add(new MemQueueImpl(PartitionedQueueImpl.getPartitionName(QUEUE_NAME, i), false));
+        }
+        QueueHandler handler = new QueueHandler(new PartitionedQueueImpl(QUEUE_NAME, false, false,
+                                                                         FieldTable.EMPTY_TABLE, partitionQueues),
+                                                new NullBrokerMetricManager());
+        for (Queue partitionQueue : partitionQueues) {
+            handler.addPartition(partitionQueue);
+        }
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        handler.addConsumer(firstConsumer);
+        handler.addConsumer(secondConsumer);
+
+        List<QueueHandler> partitions = handler.getPartitions();
+        Assert.assertSame(partitions.get(0).selectConsumer(createGroupMessage(1, "group-1"), firstConsumer),
+                          firstConsumer);
+        Assert.assertSame(partitions.get(1).selectConsumer(createGroupMessage(2, "group-1"), secondConsumer),
+                          firstConsumer, "A message group should be pinned to one consumer across partitions");
+
+        handler.removeConsumer(firstConsumer);
+        Assert.assertSame(partitions.get(1).selectConsumer(createGroupMessage(3, "group-1"), secondConsumer),
+                          secondConsumer, "Group should move to another consumer once its consumer is removed");
+    }
+
+    @Test
+    public void testHigherPriorityConsumerIsSelectedFirst() {
+        TestConsumer lowPriorityConsumer = new TestConsumer(Consumer.DEFAULT_PRIORITY);
+        TestConsumer highPriorityConsumer = new TestConsumer(10);
+        queueHandler.addConsumer(lowPriorityConsumer);
+        queueHandler.addConsumer(highPriorityConsumer);
+
+        ConsumerSelector selector = queueHandler.getConsumerSelector();
+        Assert.assertSame(selector.next(), highPriorityConsumer);
+        Assert.assertSame(selector.next(), highPriorityConsumer);
+
+        highPriorityConsumer.ready = false;
+        Assert.assertSame(selector.next(), lowPriorityConsumer,
+                          "Lower priority consumer should be used while higher priority consumer is not ready");
+    }
+
+    @Test
+    public void testConsumersWithSamePriorityAreSelectedInTurn() {
+        TestConsumer firstConsumer = new TestConsumer(5);
+        TestConsumer secondConsumer = new TestConsumer(5);
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        ConsumerSelector selector = queueHandler.getConsumerSelector();
+        Consumer first = selector.next();
+        Consumer second = selector.next();
+        Assert.assertNotSame(first, second);
+        Assert.assertSame(selector.next(), first);
+    }
+
+    @Test
+    public void testPriorityOrderFollowsConsumerChanges() {
+        TestConsumer lowPriorityConsumer = new TestConsumer(Consumer.DEFAULT_PRIORITY);
+        TestConsumer highPriorityConsumer = new TestConsumer(10);
+        queueHandler.addConsumer(lowPriorityConsumer);
+        queueHandler.addConsumer(new TestConsumer(5));
+
+        ConsumerSelector selector = queueHandler.getConsumerSelector();
+        Assert.assertSame(queueHandler.getConsumerSelector(), selector);
+        Assert.assertNotSame(selector.next(), lowPriorityConsumer);
+
+        queueHandler.addConsumer(highPriorityConsumer);
+        Assert.assertSame(queueHandler.getConsumerSelector().next(), highPriorityConsumer,
+                          "Consumers added after the last delivery run should be sorted by priority");
+
+        queueHandler.removeConsumer(highPriorityConsumer);
+        Assert.assertNotSame(queueHandler.getConsumerSelector().next(), highPriorityConsumer,
+                             "Removed consumers should not be selected");
+    }
+
+    @Test
+    public void testRoundRobinContinuesAcrossDeliveryRuns() {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        TestConsumer thirdConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+        queueHandler.addConsumer(thirdConsumer);
+
+        Consumer first = queueHandler.getConsumerSelector().next();
+        Consumer second = queueHandler.getConsumerSelector().next();
+        Consumer third = queueHandler.getConsumerSelector().next();
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(second, third);
+        Assert.assertNotSame(first, third);
+        Assert.assertSame(queueHandler.getConsumerSelector().next(), first);
+    }
+
+    @Test
+    public void testRoundRobinSkipsRemovedConsumer() {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        queueHandler.removeConsumer(firstConsumer);
+        ConsumerSelector selector = queueHandler.getConsumerSelector();
+        Assert.assertSame(selector.next(), secondConsumer);
+        Assert.assertSame(selector.next(), secondConsumer);
+    }
+
+    @Test
+    public void testNoConsumerSelectedWhenNoneIsReady() {
+        TestConsumer firstConsumer = new TestConsumer();
+        TestConsumer secondConsumer = new TestConsumer();
+        firstConsumer.ready = false;
+        secondConsumer.ready = false;
+        queueHandler.addConsumer(firstConsumer);
+        queueHandler.addConsumer(secondConsumer);
+
+        Assert.assertNull(queueHandler.getConsumerSelector().next());
+    }
+
+    @Test
+    public void testSingleActiveConsumerFailover() {
+        QueueHandler handler = new QueueHandler(new MemQueueImpl(QUEUE_NAME, false),
+                                                new NullBrokerMetricManager(), true);
+        TestConsumer activeConsumer = new TestConsumer();
+        TestConsumer standbyConsumer = new TestConsumer(10);
+        handler.addConsumer(activeConsumer);
+        handler.addConsumer(standbyConsumer);
+
+        ConsumerSelector selector = handler.getConsumerSelector();
+        Assert.assertSame(selector.next(), activeConsumer);
+        Assert.assertSame(selector.next(), activeConsumer);
+
+        activeConsumer.ready = false;
+        Assert.assertNull(selector.next(), "Standby consumer should not receive messages while the active "
+                + "consumer is registered");
+
+        handler.removeConsumer(activeConsumer);
+        Assert.assertSame(handler.getConsumerSelector().next(), standbyConsumer,
+                          "Next consumer should take over once the active consumer is removed");
+    }
+
+    private Message createGroupMessage(long id, String groupId) {
+        Metadata metadata = new Metadata(QUEUE_NAME, "amq.direct", 0);
+        metadata.setHeaders(new FieldTable());
+        metadata.addHeader(QueueHandler.MESSAGE_GROUP_HEADER.toString(), groupId);
+        return new Message(id, metadata);
+    }
+
+    /**
+     * Consumer implementation used for testing.
+     */
+    private static class TestConsumer extends Consumer {
+
+        private final int priority;
+
+        private boolean ready = true;
+
+        TestConsumer() {
+            this(DEFAULT_PRIORITY);
+        }
+
+        TestConsumer(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        protected void send(Message message) {
+            // Do nothing
+        }
+
+        @Override
+        public String getQueueName() {
+            return QUEUE_NAME;
+        }
+
+        @Override
+        protected void close() {
+            // Do nothing
+        }
+
+        @Override
+        public boolean isExclusive() {
+            return false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+}
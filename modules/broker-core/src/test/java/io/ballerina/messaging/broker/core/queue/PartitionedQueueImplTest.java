@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.queue;
+
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.Metadata;
+import io.ballerina.messaging.broker.core.Queue;
+import io.ballerina.messaging.broker.core.QueueHandler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PartitionedQueueImplTest {
+
+    private static final int PARTITION_COUNT = 4;
+
+    @Test
+    public void testSamePartitionKeyKeepsOrder() throws Exception {
+        List<Queue> partitions = createPartitions();
+        PartitionedQueueImpl queue = new PartitionedQueueImpl("queue1", false, false, FieldTable.EMPTY_TABLE,
+                                                              partitions);
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(createMessage(i + 1, "customer-1"));
+        }
+
+        Queue selectedPartition = null;
+        for (Queue partition : partitions) {
+            if (partition.size() > 0) {
+                Assert.assertNull(selectedPartition, "Messages with the same key should go to a single partition");
+                selectedPartition = partition;
+            }
+        }
+
+        Assert.assertNotNull(selectedPartition);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(selectedPartition.dequeue().getInternalId(), i + 1,
+                                "Messages with the same key should be kept in order");
+        }
+    }
+
+    @Test
+    public void testSameMessageGroupGoesToOnePartition() throws Exception {
+        List<Queue> partitions = createPartitions();
+        PartitionedQueueImpl queue = new PartitionedQueueImpl("queue1", false, false, FieldTable.EMPTY_TABLE,
+                                                              partitions);
+        for (int i = 0; i < 10; i++) {
+            Metadata metadata = new Metadata("queue1", "amq.direct", 0);
+            metadata.setHeaders(new FieldTable());
+            metadata.addHeader(QueueHandler.MESSAGE_GROUP_HEADER.toString(), "group-1");
+            queue.enqueue(new Message(i + 1, metadata));
+        }
+
+        int usedPartitions = 0;
+        for (Queue partition : partitions) {
+            if (partition.size() > 0) {
+                usedPartitions++;
+            }
+        }
+        Assert.assertEquals(usedPartitions, 1, "Messages of a group without a partition key should go to a single "
+                + "partition");
+    }
+
+    @Test
+    public void testMessagesWithoutKeyAreSpread() throws Exception {
+        List<Queue> partitions = createPartitions();
+        PartitionedQueueImpl queue = new PartitionedQueueImpl("queue1", false, false, FieldTable.EMPTY_TABLE,
+                                                              partitions);
+        for (int i = 0; i < PARTITION_COUNT * 10; i++) {
+            queue.enqueue(new Message(i + 1, new Metadata("queue1", "amq.direct", 0)));
+        }
+
+        Assert.assertEquals(queue.size(), PARTITION_COUNT * 10, "Queue size should include all partitions");
+        for (Queue partition : partitions) {
+            Assert.assertEquals(partition.size(), 10, "Messages without a key should be spread across partitions");
+        }
+
+        for (int i = 0; i < PARTITION_COUNT * 10; i++) {
+            Assert.assertNotNull(queue.dequeue(), "Dequeue should return messages from all partitions");
+        }
+        Assert.assertNull(queue.dequeue());
+    }
+
+    private List<Queue> createPartitions() {
+        List<Queue> partitions = new ArrayList<>(PARTITION_COUNT);
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            partitions.add(new MemQueueImpl(PartitionedQueueImpl.getPartitionName("queue1", i), false));
+        }
+        return partitions;
+    }
+
+    private Message createMessage(long id, String partitionKey) {
+        Metadata metadata = new Metadata("queue1", "amq.direct", 0);
+        metadata.setHeaders(new FieldTable());
+        metadata.addHeader(PartitionedQueueImpl.PARTITION_KEY_HEADER.toString(), partitionKey);
+        return new Message(id, metadata);
+    }
+}
@@ -19,20 +19,34 @@
 
 package io.ballerina.messaging.broker.core.queue;
 
+import io.ballerina.messaging.broker.common.data.types.FieldTable;
+import io.ballerina.messaging.broker.common.data.types.FieldValue;
 import io.ballerina.messaging.broker.core.Message;
 import io.ballerina.messaging.broker.core.Metadata;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 public class QueueBufferTest {
 
     private Metadata mockMetadata;
     private QueueBuffer.MessageReader messageReader;
 
+    private Metadata persistentMetadata;
+
     @BeforeClass
     public void setUp() {
         mockMetadata = new Metadata("queue1", "amq.direct", 0);
+        persistentMetadata = new Metadata("queue1", "amq.direct", 0);
+        FieldTable properties = new FieldTable();
+        properties.add(Metadata.DELIVERY_MODE, FieldValue.parseShortShortInt((byte) Metadata.PERSISTENT_MESSAGE));
+        persistentMetadata.setProperties(properties);
         messageReader = (buffer, message) -> {
             message.setMetadata(mockMetadata);
             buffer.markMessageFilled(message);
@@ -100,4 +114,384 @@ public class QueueBufferTest {
 
         Assert.assertEquals(queueBuffer.size(), 0, "Buffer size should be 0 after removing all messages");
     }
+
+    @Test
+    public void testFilteredDequeueLeavesSkippedMessagesInOrder() {
+        QueueBuffer queueBuffer = new QueueBuffer(10, messageReader);
+        for (int i = 0; i < 6; i++) {
+            queueBuffer.add(new Message(i + 1, persistentMetadata));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            Message message = queueBuffer.getFirstDeliverable(m -> m.getInternalId() % 2 == 1, true);
+            Assert.assertEquals(message.getInternalId(), 2 * i + 1, "Messages accepted by the filter should be "
+                    + "delivered in order");
+        }
+        Assert.assertNull(queueBuffer.getFirstDeliverable(m -> m.getInternalId() % 2 == 1, true));
+
+        for (int i = 0; i < 3; i++) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertEquals(message.getInternalId(), 2 * i + 2, "Skipped messages should be delivered in order");
+            Assert.assertNotNull(message.getMetadata(), "Skipped messages should stay in memory");
+        }
+        Assert.assertEquals(queueBuffer.size(), 6, "Skipping should not add new entries to the buffer");
+    }
+
+    @Test
+    public void testRequeuePreservesOrder() {
+        QueueBuffer queueBuffer = new QueueBuffer(10, messageReader);
+        Message[] delivered = new Message[5];
+        for (int i = 0; i < 5; i++) {
+            queueBuffer.add(new Message(i + 1, mockMetadata));
+        }
+        for (int i = 0; i < 4; i++) {
+            delivered[i] = queueBuffer.getFirstDeliverable();
+        }
+
+        queueBuffer.requeue(delivered[3]);
+        queueBuffer.requeue(delivered[1]);
+
+        Assert.assertEquals(queueBuffer.getFirstDeliverable().getInternalId(), 2,
+                            "Requeued messages should be redelivered in the original order");
+        Assert.assertEquals(queueBuffer.getFirstDeliverable().getInternalId(), 4,
+                            "Requeued messages should be redelivered in the original order");
+        Assert.assertEquals(queueBuffer.getFirstDeliverable().getInternalId(), 5,
+                            "Undelivered messages should be delivered after the requeued messages");
+        Assert.assertEquals(queueBuffer.size(), 5, "Requeue should not add new entries to the buffer");
+    }
+
+    @Test
+    public void testBatchRequeue() {
+        QueueBuffer queueBuffer = new QueueBuffer(10, messageReader);
+        List<Message> delivered = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queueBuffer.add(new Message(i + 1, mockMetadata));
+        }
+        for (int i = 0; i < 4; i++) {
+            delivered.add(queueBuffer.getFirstDeliverable());
+        }
+        Message untracked = new Message(10, mockMetadata);
+        delivered.add(untracked);
+
+        List<Message> untrackedMessages = queueBuffer.requeue(delivered);
+
+        Assert.assertEquals(untrackedMessages, Collections.singletonList(untracked),
+                            "Messages not in the buffer should be returned");
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(queueBuffer.getFirstDeliverable().getInternalId(), i + 1,
+                                "Requeued messages should be redelivered in the original order");
+        }
+    }
+
+    @Test
+    public void testRequeueEvictsBeyondReadAheadWindow() {
+        int messageCount = 200;
+        QueueBuffer queueBuffer = new QueueBuffer(messageCount, (buffer, message) -> {
+            message.setMetadata(persistentMetadata);
+            buffer.markMessageFilled(message);
+        });
+        Message[] delivered = new Message[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            queueBuffer.add(new Message(i + 1, persistentMetadata));
+            delivered[i] = queueBuffer.getFirstDeliverable();
+        }
+
+        for (int i = messageCount - 1; i >= 0; i--) {
+            queueBuffer.requeue(delivered[i]);
+        }
+
+        int evictedCount = 0;
+        for (Message message : delivered) {
+            if (message.getMetadata() == null) {
+                evictedCount++;
+            }
+        }
+        Assert.assertTrue(evictedCount > 0, "Requeued messages beyond the read ahead window should be evicted");
+
+        for (int i = 0; i < messageCount; i++) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertNotNull(message, "Evicted messages should be read back for redelivery");
+            Assert.assertNotNull(message.getMetadata(), "Redelivered messages should never be empty");
+            Assert.assertEquals(message.getInternalId(), i + 1, "Redelivery should follow the original order");
+        }
+    }
+
+    @Test
+    public void testEvictedRequeuedMessagesAreReadById() {
+        int messageCount = 400;
+        List<List<Message>> rangeReads = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(messageCount, new QueueBuffer.MessageReader() {
+            @Override
+            public void fill(QueueBuffer buffer, Message message) {
+                message.setMetadata(persistentMetadata);
+                buffer.markMessageFilled(message);
+            }
+
+            @Override
+            public void fill(QueueBuffer buffer, List<Message> messages) {
+                rangeReads.add(messages);
+                for (Message message : messages) {
+                    fill(buffer, message);
+                }
+            }
+        });
+        Message[] delivered = new Message[messageCount];
+        for (int i = 0; i < messageCount; i++) {
+            queueBuffer.add(new Message(i + 1, persistentMetadata));
+            delivered[i] = queueBuffer.getFirstDeliverable();
+        }
+
+        for (int i = messageCount - 1; i >= 0; i -= 2) {
+            queueBuffer.requeue(delivered[i]);
+        }
+
+        for (int i = 1; i < messageCount; i += 2) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertNotNull(message.getMetadata(), "Redelivered messages should never be empty");
+            Assert.assertEquals(message.getInternalId(), i + 1, "Redelivery should follow the original order");
+        }
+        Assert.assertTrue(rangeReads.isEmpty(), "Requeued messages are not contiguous and should not be read as a "
+                + "range");
+    }
+
+    @Test
+    public void testBareMessagesAreReadInContiguousRanges() {
+        List<List<Message>> rangeReads = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(1000, new RecordingMessageReader(rangeReads));
+        for (int i = 0; i < 5; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+        queueBuffer.add(new Message(6, mockMetadata));
+        for (int i = 6; i < 10; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertNotNull(message.getMetadata(), "Messages returned from #getFirstDeliverable() should never "
+                    + "be empty");
+            Assert.assertEquals(message.getInternalId(), i + 1, "Messages should be delivered in order");
+        }
+
+        Assert.assertEquals(rangeReads.size(), 2, "In-memory messages should split the range reads");
+        assertRange(rangeReads.get(0), 1, 5);
+        assertRange(rangeReads.get(1), 7, 10);
+    }
+
+    @Test
+    public void testReadWaitsForHalfReadAheadWindow() {
+        int inMemoryLimit = 200;
+        List<List<Message>> rangeReads = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(inMemoryLimit, new RecordingMessageReader(rangeReads));
+        for (int i = 0; i < inMemoryLimit + 100; i++) {
+            queueBuffer.add(new Message(i + 1, mockMetadata));
+        }
+
+        int halfWindow = 64;
+        for (int i = 0; i < halfWindow - 1; i++) {
+            queueBuffer.remove(queueBuffer.getFirstDeliverable());
+        }
+        Assert.assertTrue(rangeReads.isEmpty(), "A read should not be submitted before there is room for half a "
+                + "read ahead window");
+
+        queueBuffer.remove(queueBuffer.getFirstDeliverable());
+        Assert.assertEquals(rangeReads.size(), 1, "A read should be submitted once there is room for half a read "
+                + "ahead window");
+        assertRange(rangeReads.get(0), inMemoryLimit + 1, inMemoryLimit + halfWindow);
+    }
+
+    @Test
+    public void testDrainedBufferReadsRemainingRoom() {
+        int inMemoryLimit = 200;
+        List<List<Message>> rangeReads = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(inMemoryLimit, new RecordingMessageReader(rangeReads));
+        for (int i = 0; i < inMemoryLimit + 100; i++) {
+            queueBuffer.add(new Message(i + 1, mockMetadata));
+        }
+
+        for (int i = 0; i < inMemoryLimit; i++) {
+            Assert.assertNotNull(queueBuffer.getFirstDeliverable(), "In-memory messages should be deliverable");
+        }
+        Assert.assertNull(queueBuffer.getFirstDeliverable(), "Bare messages should not be delivered");
+        queueBuffer.remove(new Message(1, null));
+
+        Assert.assertEquals(rangeReads.size(), 1, "A drained buffer should read without waiting for room");
+        assertRange(rangeReads.get(0), inMemoryLimit + 1, inMemoryLimit + 1);
+    }
+
+    @Test
+    public void testBareMessagesBehindReadCursorAreRead() {
+        List<Message> droppedMessages = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(1000, (buffer, message) -> {
+            if (droppedMessages.size() < 3) {
+                droppedMessages.add(message);
+            } else {
+                message.setMetadata(mockMetadata);
+            }
+            buffer.markMessageFilled(message);
+        });
+        for (int i = 0; i < 10; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+
+        Assert.assertNull(queueBuffer.getFirstDeliverable(), "Messages should not be delivered when the read fails");
+        for (int i = 0; i < 10; i++) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertNotNull(message, "Messages passed by the read cursor should be read again");
+            Assert.assertNotNull(message.getMetadata(), "Messages returned from #getFirstDeliverable() should never "
+                    + "be empty");
+            Assert.assertEquals(message.getInternalId(), i + 1, "Messages should be delivered in order");
+        }
+    }
+
+    @Test
+    public void testFailedReadIsRetriedAfterDelay() {
+        FailingMessageReader messageReader = new FailingMessageReader();
+        messageReader.failedIds.add(1L);
+        QueueBuffer queueBuffer = new QueueBuffer(1000, messageReader);
+        for (int i = 0; i < 10; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+
+        Assert.assertNull(queueBuffer.getFirstDeliverable(), "Messages should not be delivered when the read fails");
+        Assert.assertEquals(messageReader.retryDelays, Collections.singletonList(
+                QueueBuffer.INITIAL_READ_RETRY_DELAY_MILLIS));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertNull(queueBuffer.getFirstDeliverable());
+        }
+        Assert.assertEquals(messageReader.readCount, 10, "Failed message should not be read before the retry");
+
+        messageReader.runRetry();
+        Assert.assertNull(queueBuffer.getFirstDeliverable());
+        Assert.assertEquals(messageReader.readCount, 11, "Failed message should be read once the retry runs");
+        Assert.assertEquals(messageReader.retryDelays.get(1).longValue(),
+                            QueueBuffer.INITIAL_READ_RETRY_DELAY_MILLIS * 2, "Retry delay should grow");
+
+        messageReader.failedIds.clear();
+        messageReader.runRetry();
+        for (int i = 0; i < 10; i++) {
+            Message message = queueBuffer.getFirstDeliverable();
+            Assert.assertNotNull(message, "Message should be delivered once the read succeeds");
+            Assert.assertEquals(message.getInternalId(), i + 1, "Messages should be delivered in order");
+        }
+    }
+
+    @Test
+    public void testUnreadableMessageIsDropped() {
+        FailingMessageReader messageReader = new FailingMessageReader();
+        messageReader.failedIds.add(1L);
+        QueueBuffer queueBuffer = new QueueBuffer(1000, messageReader);
+        for (int i = 0; i < 10; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+
+        Message message = null;
+        for (int i = 0; i < QueueBuffer.MAX_READ_ATTEMPTS && message == null; i++) {
+            message = queueBuffer.getFirstDeliverable();
+            messageReader.runRetry();
+        }
+        if (message == null) {
+            message = queueBuffer.getFirstDeliverable();
+        }
+
+        Assert.assertNotNull(message, "Unreadable message should not block the queue");
+        Assert.assertEquals(message.getInternalId(), 2);
+        Assert.assertEquals(messageReader.readCount, 9 + QueueBuffer.MAX_READ_ATTEMPTS,
+                            "Unreadable message should be read up to the retry limit");
+        Assert.assertEquals(queueBuffer.size(), 9, "Unreadable message should be dropped from the buffer");
+    }
+
+    @Test
+    public void testRejectedNonBlockingReadIsSubmittedByBlockingRead() {
+        List<List<Message>> rangeReads = new ArrayList<>();
+        QueueBuffer queueBuffer = new QueueBuffer(1000, new RecordingMessageReader(rangeReads) {
+            @Override
+            public boolean tryFill(QueueBuffer buffer, List<Message> messages) {
+                return false;
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            queueBuffer.addBareMessage(new Message(i + 1, null));
+        }
+
+        Assert.assertNull(queueBuffer.getFirstDeliverable(false));
+        Assert.assertNull(queueBuffer.getFirstDeliverable(false));
+        Assert.assertTrue(rangeReads.isEmpty(), "Rejected read should not be submitted");
+
+        Message message = queueBuffer.getFirstDeliverable();
+        Assert.assertNotNull(message, "Blocking read should read the messages of the rejected read");
+        Assert.assertEquals(message.getInternalId(), 1);
+        Assert.assertEquals(rangeReads.size(), 1);
+        assertRange(rangeReads.get(0), 1, 10);
+    }
+
+    private void assertRange(List<Message> range, long firstId, long lastId) {
+        Assert.assertEquals(range.size(), lastId - firstId + 1, "Unexpected number of messages in the range read");
+        for (int i = 0; i < range.size(); i++) {
+            Assert.assertEquals(range.get(i).getInternalId(), firstId + i, "Range reads should be contiguous");
+        }
+    }
+
+    /**
+     * Fills messages immediately and records each range read so that tests can observe when and what is read.
+     */
+    private class RecordingMessageReader implements QueueBuffer.MessageReader {
+
+        private final List<List<Message>> rangeReads;
+
+        RecordingMessageReader(List<List<Message>> rangeReads) {
+            this.rangeReads = rangeReads;
+        }
+
+        @Override
+        public void fill(QueueBuffer buffer, Message message) {
+            message.setMetadata(mockMetadata);
+            buffer.markMessageFilled(message);
+        }
+
+        @Override
+        public void fill(QueueBuffer buffer, List<Message> messages) {
+            rangeReads.add(messages);
+            for (Message message : messages) {
+                fill(buffer, message);
+            }
+        }
+    }
+
+    /**
+     * Fails reads of the given messages and holds back retries until the test runs them.
+     */
+    private class FailingMessageReader implements QueueBuffer.MessageReader {
+
+        private final Set<Long> failedIds = new HashSet<>();
+
+        private final List<Long> retryDelays = new ArrayList<>();
+
+        private Runnable pendingRetry;
+
+        private int readCount;
+
+        @Override
+        public void fill(QueueBuffer buffer, Message message) {
+            readCount++;
+            if (!failedIds.contains(message.getInternalId())) {
+                message.setMetadata(mockMetadata);
+            }
+            buffer.markMessageFilled(message);
+        }
+
+        @Override
+        public void scheduleRetry(Runnable retry, long delayMillis) {
+            retryDelays.add(delayMillis);
+            pendingRetry = retry;
+        }
+
+        void runRetry() {
+            Runnable retry = pendingRetry;
+            pendingRetry = null;
+            if (retry != null) {
+                retry.run();
+            }
+        }
+    }
 }
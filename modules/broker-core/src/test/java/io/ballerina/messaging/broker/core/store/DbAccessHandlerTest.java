@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.store;
+
+import io.ballerina.messaging.broker.core.BrokerException;
+import io.ballerina.messaging.broker.core.Message;
+import io.ballerina.messaging.broker.core.store.dao.MessageDao;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for {@link DbAccessHandler}.
+ */
+public class DbAccessHandlerTest {
+
+    private static final String QUEUE_NAME = "queue1";
+
+    private RangeReadDao messageDao;
+
+    private DbAccessHandler dbAccessHandler;
+
+    @BeforeMethod
+    public void setUp() {
+        messageDao = new RangeReadDao();
+        dbAccessHandler = new DbAccessHandler(messageDao, 10);
+    }
+
+    @Test
+    public void testFailedRangeReadDoesNotBlockLaterReads() throws Exception {
+        messageDao.failReads = true;
+        DbOperation failedRead = createRangeRead(1);
+        dbAccessHandler.onEvent(failedRead, 0, true);
+        // Final event handler clears the event and the ring reuses it
+        failedRead.clear();
+
+        messageDao.failReads = false;
+        DbOperation nextRead = createRangeRead(2);
+        dbAccessHandler.onEvent(nextRead, 1, true);
+
+        Assert.assertEquals(messageDao.readRanges.size(), 2);
+        Assert.assertEquals(messageDao.readRanges.get(1).get(0).getInternalId(), 2,
+                            "Only the new range should be read after a failed read");
+    }
+
+    @Test
+    public void testFailedRangeReadDoesNotStopOtherReadsOfBatch() throws Exception {
+        messageDao.failReads = true;
+        dbAccessHandler.onEvent(createRangeRead(1), 0, false);
+        messageDao.failReads = false;
+        dbAccessHandler.onEvent(createRangeRead(2), 1, true);
+
+        Assert.assertEquals(messageDao.readRanges.size(), 2);
+    }
+
+    private DbOperation createRangeRead(long messageId) {
+        DbOperation operation = DbOperation.getFactory().newInstance();
+        operation.readMessageDataRange(QUEUE_NAME, null,
+                                       Collections.singletonList(new Message(messageId, null)));
+        operation.completeProcessing();
+        return operation;
+    }
+
+    /**
+     * Message DAO recording range reads.
+     */
+    private static class RangeReadDao implements MessageDao {
+
+        private final List<List<Message>> readRanges = new ArrayList<>();
+
+        private boolean failReads;
+
+        @Override
+        public void persist(Collection<Message> messageList) {
+            // Do nothing
+        }
+
+        @Override
+        public void detachFromQueue(Collection<DbOperation> dbOperations) {
+            // Do nothing
+        }
+
+        @Override
+        public void delete(Collection<Long> messageId) {
+            // Do nothing
+        }
+
+        @Override
+        public Collection<Message> readAll(String queueName) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<Message> read(Map<Long, Message> readList) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void readRange(String queueName, List<Message> messages) throws BrokerException {
+            Assert.assertEquals(queueName, QUEUE_NAME);
+            readRanges.add(messages);
+            if (failReads) {
+                throw new BrokerException("Database is not available");
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import io.ballerina.messaging.broker.common.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares a fixed worker pool with a thread per task, on platform and on virtual threads, when tasks block on I/O
+ * like delivery tasks waiting for the database. Results are logged. Virtual threads are only measured on a JVM that
+ * supports them. The measured duration can be raised with the {@code blockingTaskBenchmark.durationMillis} system
+ * property and the task count with {@code blockingTaskBenchmark.taskCount}.
+ */
+public class BlockingTaskBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingTaskBenchmarkTest.class);
+
+    private static final int TASK_COUNT = Integer.getInteger("blockingTaskBenchmark.taskCount", 2000);
+
+    private static final long DURATION_MILLIS = Long.getLong("blockingTaskBenchmark.durationMillis", 1000);
+
+    private static final long WARM_UP_MILLIS = 500;
+
+    private static final int WORKER_COUNT = 5;
+
+    private static final int BLOCK_MILLIS = 5;
+
+    @Test
+    public void testBlockingTasksOnWorkerPoolAndThreadPerTask() throws Exception {
+        ThreadFactory platformThreadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        long workerPoolThroughput = run("worker pool",
+                                        new TaskExecutorService<>(WORKER_COUNT, platformThreadFactory));
+        long platformThroughput = run("platform/task", new TaskExecutorService<>(platformThreadFactory));
+        LOGGER.info("A platform thread per task processed {} times the task invocations of the worker pool",
+                    String.format("%.2f", (double) platformThroughput / workerPoolThroughput));
+
+        if (VirtualThreads.isSupported()) {
+            long virtualThroughput = run("virtual/task",
+                                         new TaskExecutorService<>(VirtualThreads.newThreadFactory("benchmark-")));
+            LOGGER.info("A virtual thread per task processed {} times the task invocations of the worker pool",
+                        String.format("%.2f", (double) virtualThroughput / workerPoolThroughput));
+        } else {
+            LOGGER.info("Virtual threads are not supported by the JVM {}", System.getProperty("java.version"));
+        }
+    }
+
+    private long run(String name, TaskExecutorService<BlockingTask> service) throws InterruptedException {
+        LongAdder invocations = new LongAdder();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            service.add(new BlockingTask("queue-" + i, invocations));
+        }
+        service.start();
+
+        TimeUnit.MILLISECONDS.sleep(WARM_UP_MILLIS);
+        long start = invocations.sum();
+        TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+        long processed = invocations.sum() - start;
+        int platformThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        service.shutdown();
+
+        long throughput = processed * 1000 / DURATION_MILLIS;
+        LOGGER.info("{}: {} task invocations/s with {} blocking tasks and {} platform threads",
+                    name, throughput, TASK_COUNT, platformThreads);
+        Assert.assertTrue(processed > 0, name + " should process blocking tasks");
+        return throughput;
+    }
+
+    /**
+     * Always active task that blocks in each invocation.
+     */
+    private static final class BlockingTask extends Task {
+
+        private final String id;
+
+        private final LongAdder invocations;
+
+        BlockingTask(String id, LongAdder invocations) {
+            this.id = id;
+            this.invocations = invocations;
+        }
+
+        @Override
+        public void onAdd() {
+            // Do nothing
+        }
+
+        @Override
+        public void onRemove() {
+            // Do nothing
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public TaskHint call() throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(BLOCK_MILLIS);
+            invocations.increment();
+            return TaskHint.ACTIVE;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * {@link PullTaskScheduler} where all workers take tasks from a single shared queue. Used as the baseline when
+ * benchmarking the work-stealing scheduler.
+ */
+final class SharedTaskScheduler implements PullTaskScheduler {
+
+    private final BlockingQueue<TaskHolder> taskHolderQueue = new LinkedBlockingQueue<>();
+
+    @Override
+    public void schedule(TaskHolder taskHolder) {
+        taskHolderQueue.add(taskHolder);
+    }
+
+    @Override
+    public void reschedule(TaskHolder taskHolder, int workerIndex) {
+        taskHolderQueue.add(taskHolder);
+    }
+
+    @Override
+    public TaskHolder take(int workerIndex) throws InterruptedException {
+        return taskHolderQueue.take();
+    }
+
+    @Override
+    public int size() {
+        return taskHolderQueue.size();
+    }
+}
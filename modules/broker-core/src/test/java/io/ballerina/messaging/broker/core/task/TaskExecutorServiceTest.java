@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for {@link TaskExecutorService}.
+ */
+public class TaskExecutorServiceTest {
+
+    private static final int WORKER_COUNT = 4;
+
+    private TaskExecutorService<CountingTask> taskExecutorService;
+
+    @BeforeMethod
+    public void setUp() {
+        taskExecutorService = new TaskExecutorService<>(WORKER_COUNT, Executors.defaultThreadFactory());
+        taskExecutorService.start();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        taskExecutorService.shutdown();
+    }
+
+    @Test
+    public void testActiveTasksAreProcessedByAllWorkers() throws Exception {
+        int taskCount = 100;
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            taskExecutorService.add(new CountingTask("task-" + i, 10, latch));
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "All active tasks should run until they are idle");
+    }
+
+    @Test
+    public void testIdleTaskRunsOnlyWhenSignalled() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        CountingTask task = new CountingTask("idle-task", 1, latch);
+        taskExecutorService.add(task);
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        Assert.assertEquals(task.invocationCount.get(), 1, "Idle task should not be processed until signalled");
+
+        task.signal();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (task.invocationCount.get() < 2 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(task.invocationCount.get(), 2, "Signalled task should be processed once more");
+    }
+
+    @Test
+    public void testThreadPerTaskMode() throws Exception {
+        TaskExecutorService<CountingTask> threadPerTaskService =
+                new TaskExecutorService<>(Executors.defaultThreadFactory());
+        threadPerTaskService.start();
+        try {
+            int taskCount = 20;
+            CountDownLatch latch = new CountDownLatch(taskCount);
+            CountingTask[] tasks = new CountingTask[taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                tasks[i] = new CountingTask("task-" + i, 10, latch);
+                threadPerTaskService.add(tasks[i]);
+            }
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "All active tasks should run until they are idle");
+
+            tasks[0].signal();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (tasks[0].invocationCount.get() < 11 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            Assert.assertEquals(tasks[0].invocationCount.get(), 11, "Signalled task should be processed once more");
+            Assert.assertEquals(tasks[1].invocationCount.get(), 10, "Idle task should not be processed");
+        } finally {
+            threadPerTaskService.shutdown();
+        }
+    }
+
+    /**
+     * Task that is active for a given number of invocations and idle afterwards.
+     */
+    private static class CountingTask extends Task {
+
+        private final String id;
+
+        private final int activeInvocations;
+
+        private final CountDownLatch idleLatch;
+
+        private final AtomicInteger invocationCount = new AtomicInteger(0);
+
+        CountingTask(String id, int activeInvocations, CountDownLatch idleLatch) {
+            this.id = id;
+            this.activeInvocations = activeInvocations;
+            this.idleLatch = idleLatch;
+        }
+
+        @Override
+        public void onAdd() {
+            // Do nothing
+        }
+
+        @Override
+        public void onRemove() {
+            // Do nothing
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public TaskHint call() {
+            int count = invocationCount.incrementAndGet();
+            if (count < activeInvocations) {
+                return TaskHint.ACTIVE;
+            }
+            if (count == activeInvocations) {
+                idleLatch.countDown();
+            }
+            return TaskHint.IDLE;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link TaskHolder}.
+ */
+public class TaskHolderTest {
+
+    @Test
+    public void testTaskWithoutCostIsProcessedEveryTurn() throws Exception {
+        TaskHolder<CostTask> taskHolder = createTaskHolder(0, Task.DEFAULT_WEIGHT);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(taskHolder.acquireTurn());
+            taskHolder.executeTask();
+            taskHolder.reschedule();
+        }
+    }
+
+    @Test
+    public void testTaskSkipsTurnsAfterOverspending() throws Exception {
+        TaskHolder<CostTask> taskHolder = createTaskHolder(4 * TaskHolder.COST_QUANTUM, Task.DEFAULT_WEIGHT);
+
+        Assert.assertTrue(taskHolder.acquireTurn());
+        taskHolder.executeTask();
+        taskHolder.reschedule();
+
+        Assert.assertEquals(countSkippedTurns(taskHolder), 3, "Task should skip a turn per overspent quantum");
+    }
+
+    @Test
+    public void testDebtIsCapped() throws Exception {
+        TaskHolder<CostTask> taskHolder = createTaskHolder(100 * TaskHolder.COST_QUANTUM, Task.DEFAULT_WEIGHT);
+
+        Assert.assertTrue(taskHolder.acquireTurn());
+        taskHolder.executeTask();
+        taskHolder.reschedule();
+
+        Assert.assertEquals(countSkippedTurns(taskHolder), TaskHolder.MAX_DEBT_QUANTA,
+                            "Task should not skip more turns than the debt cap");
+    }
+
+    @Test
+    public void testWeightIncreasesShare() throws Exception {
+        TaskHolder<CostTask> taskHolder = createTaskHolder(4 * TaskHolder.COST_QUANTUM, 4);
+
+        Assert.assertTrue(taskHolder.acquireTurn());
+        taskHolder.executeTask();
+        taskHolder.reschedule();
+
+        Assert.assertEquals(countSkippedTurns(taskHolder), 0, "Cost within the weighted quantum should not skip turns");
+    }
+
+    @Test
+    public void testParkedTaskIsNotInDeficit() throws Exception {
+        TaskHolder<CostTask> taskHolder = createTaskHolder(4 * TaskHolder.COST_QUANTUM, Task.DEFAULT_WEIGHT);
+
+        Assert.assertTrue(taskHolder.acquireTurn());
+        taskHolder.executeTask();
+        Assert.assertTrue(taskHolder.park());
+
+        Assert.assertTrue(taskHolder.acquireTurn(), "Signalled task should be processed in its first turn");
+    }
+
+    private static TaskHolder<CostTask> createTaskHolder(long cost, int weight) {
+        CostTask task = new CostTask(cost, weight);
+        TaskHolder<CostTask> taskHolder = new TaskHolder<>(task, new WorkStealingTaskScheduler(1));
+        task.setTaskHolder(taskHolder);
+        return taskHolder;
+    }
+
+    private static int countSkippedTurns(TaskHolder<?> taskHolder) {
+        int skippedTurns = 0;
+        while (!taskHolder.acquireTurn()) {
+            skippedTurns++;
+        }
+        return skippedTurns;
+    }
+
+    /**
+     * Task reporting a fixed cost for each invocation.
+     */
+    private static class CostTask extends Task {
+
+        private final long cost;
+
+        private final int weight;
+
+        CostTask(long cost, int weight) {
+            this.cost = cost;
+            this.weight = weight;
+        }
+
+        @Override
+        public void onAdd() {
+            // Do nothing
+        }
+
+        @Override
+        public void onRemove() {
+            // Do nothing
+        }
+
+        @Override
+        public String getId() {
+            return "cost-task";
+        }
+
+        @Override
+        public int getWeight() {
+            return weight;
+        }
+
+        @Override
+        public TaskHint call() {
+            recordCost(cost);
+            return TaskHint.IDLE;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.core.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the throughput of the work-stealing scheduler with the shared queue scheduler it replaced, with 10k
+ * always active tasks. Results are logged. The measured duration can be raised with the
+ * {@code taskSchedulerBenchmark.durationMillis} system property for a meaningful comparison.
+ */
+public class TaskSchedulerBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskSchedulerBenchmarkTest.class);
+
+    private static final int TASK_COUNT = 10000;
+
+    private static final long DURATION_MILLIS = Long.getLong("taskSchedulerBenchmark.durationMillis", 1000);
+
+    private static final long WARM_UP_MILLIS = 500;
+
+    @Test
+    public void testThroughputWithTenThousandActiveQueues() throws Exception {
+        int workerCount = Runtime.getRuntime().availableProcessors();
+
+        long sharedThroughput = run("shared queue", new SharedTaskScheduler(), workerCount);
+        long workStealingThroughput = run("work stealing", new WorkStealingTaskScheduler(workerCount), workerCount);
+
+        LOGGER.info("Work stealing processed {} times the task invocations of the shared queue with {} workers",
+                    String.format("%.2f", (double) workStealingThroughput / sharedThroughput), workerCount);
+    }
+
+    private long run(String name, PullTaskScheduler scheduler, int workerCount) throws InterruptedException {
+        LongAdder invocations = new LongAdder();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        };
+        TaskExecutorService<BenchmarkTask> service = new TaskExecutorService<>(workerCount, threadFactory,
+                                                                               scheduler);
+        List<BenchmarkTask> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            BenchmarkTask task = new BenchmarkTask("queue-" + i, invocations);
+            tasks.add(task);
+            service.add(task);
+        }
+        service.start();
+
+        TimeUnit.MILLISECONDS.sleep(WARM_UP_MILLIS);
+        long start = invocations.sum();
+        TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+        long processed = invocations.sum() - start;
+        service.shutdown();
+
+        long throughput = processed * 1000 / DURATION_MILLIS;
+        LOGGER.info("{} scheduler: {} task invocations/s with {} tasks", name, throughput, TASK_COUNT);
+        Assert.assertTrue(processed > 0, name + " scheduler should process tasks");
+        for (BenchmarkTask task : tasks) {
+            Assert.assertTrue(task.invoked, name + " scheduler should run every active task. Starved " + task.id);
+        }
+        return throughput;
+    }
+
+    /**
+     * Always active task doing a small amount of work, similar to a delivery task delivering a few messages.
+     */
+    private static final class BenchmarkTask extends Task {
+
+        private final String id;
+
+        private final LongAdder invocations;
+
+        private volatile boolean invoked;
+
+        private long state;
+
+        BenchmarkTask(String id, LongAdder invocations) {
+            this.id = id;
+            this.invocations = invocations;
+        }
+
+        @Override
+        public void onAdd() {
+            // Do nothing
+        }
+
+        @Override
+        public void onRemove() {
+            // Do nothing
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public TaskHint call() {
+            for (int i = 0; i < 100; i++) {
+                state = state * 31 + i;
+            }
+            invoked = true;
+            invocations.increment();
+            return TaskHint.ACTIVE;
+        }
+    }
+}
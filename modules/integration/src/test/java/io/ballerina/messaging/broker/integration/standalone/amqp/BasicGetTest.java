@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package io.ballerina.messaging.broker.integration.standalone.amqp;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.GetResponse;
+import io.ballerina.messaging.broker.integration.util.ClientHelper;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+/**
+ * Test pulling messages with basic.get.
+ */
+public class BasicGetTest {
+
+    private static final String QUEUE_NAME = "BasicGetTestQueue";
+
+    private Connection connection;
+
+    private Channel channel;
+
+    @Parameters({"broker-hostname", "broker-port", "admin-username", "admin-password"})
+    @BeforeMethod
+    public void setUp(String hostname, String port, String username, String password) throws Exception {
+        connection = ClientHelper.getAmqpConnection(username, password, hostname, port);
+        channel = connection.createChannel();
+        channel.queueDeclare(QUEUE_NAME, false, false, false, null);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        channel.queueDelete(QUEUE_NAME);
+        channel.close();
+        connection.close();
+    }
+
+    @Test
+    public void testGetFromEmptyQueue() throws Exception {
+        Assert.assertNull(channel.basicGet(QUEUE_NAME, true), "basic.get should return nothing for an empty queue");
+    }
+
+    @Test
+    public void testGetWithAutoAck() throws Exception {
+        channel.basicPublish("<<default>>", QUEUE_NAME, new AMQP.BasicProperties(), "message1".getBytes());
+        channel.basicPublish("<<default>>", QUEUE_NAME, new AMQP.BasicProperties(), "message2".getBytes());
+
+        GetResponse response = channel.basicGet(QUEUE_NAME, true);
+        Assert.assertNotNull(response);
+        Assert.assertEquals(new String(response.getBody()), "message1");
+        Assert.assertEquals(response.getMessageCount(), 1, "Message count should include the remaining messages");
+
+        response = channel.basicGet(QUEUE_NAME, true);
+        Assert.assertNotNull(response);
+        Assert.assertEquals(new String(response.getBody()), "message2");
+        Assert.assertNull(channel.basicGet(QUEUE_NAME, true));
+    }
+
+    @Test
+    public void testRejectedMessageIsRedelivered() throws Exception {
+        channel.basicPublish("<<default>>", QUEUE_NAME, new AMQP.BasicProperties(), "message1".getBytes());
+
+        GetResponse response = channel.basicGet(QUEUE_NAME, false);
+        Assert.assertNotNull(response);
+        channel.basicReject(response.getEnvelope().getDeliveryTag(), true);
+
+        response = channel.basicGet(QUEUE_NAME, false);
+        Assert.assertNotNull(response, "Rejected message should be available again");
+        Assert.assertTrue(response.getEnvelope().isRedeliver());
+        channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+        Assert.assertNull(channel.basicGet(QUEUE_NAME, false));
+    }
+}